@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.crawler;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of byte arrays into which pages load their content, shared by the
+ * crawlers of a {@link CrawlController}. Arrays keep the size they grew to while
+ * loading a page, so once the pool is warm most pages are read straight into an
+ * array which is large enough, without allocating or copying.
+ *
+ * The most recently released array is handed out first.
+ */
+public class ContentBufferPool {
+
+    /**
+     * Size of the arrays allocated when the expected content length is unknown or smaller.
+     */
+    public static final int MIN_BUFFER_SIZE = 4096;
+
+    private final Deque<byte[]> buffers = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger pooledBuffers = new AtomicInteger();
+    private final AtomicLong allocatedBuffers = new AtomicLong();
+    private final int maxPooledBuffers;
+
+    /**
+     * @param maxPooledBuffers the number of released arrays kept for reuse
+     */
+    public ContentBufferPool(int maxPooledBuffers) {
+        this.maxPooledBuffers = maxPooledBuffers;
+    }
+
+    /**
+     * @param expectedSize the expected length of the content, or 0 if unknown
+     * @return the most recently released array if it has at least the expected size,
+     *         otherwise a new array. An array which is too small stays in the pool for
+     *         the next smaller page.
+     */
+    public byte[] borrow(int expectedSize) {
+        byte[] buffer = buffers.pollFirst();
+        if (buffer != null) {
+            if (buffer.length >= expectedSize) {
+                pooledBuffers.decrementAndGet();
+                return buffer;
+            }
+            buffers.offerFirst(buffer);
+        }
+        allocatedBuffers.incrementAndGet();
+        return new byte[Math.max(MIN_BUFFER_SIZE, expectedSize)];
+    }
+
+    /**
+     * Gives an array back to the pool. The array must not be used anymore by the caller.
+     *
+     * @param buffer an array obtained from {@link #borrow(int)}, possibly grown since
+     */
+    public void release(byte[] buffer) {
+        if (pooledBuffers.incrementAndGet() <= maxPooledBuffers) {
+            buffers.offerFirst(buffer);
+        } else {
+            pooledBuffers.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of arrays waiting to be reused
+     */
+    public int getPooledBuffers() {
+        return Math.max(0, pooledBuffers.get());
+    }
+
+    /**
+     * @return the number of arrays allocated because none could be reused
+     */
+    public long getAllocatedBuffers() {
+        return allocatedBuffers.get();
+    }
+}
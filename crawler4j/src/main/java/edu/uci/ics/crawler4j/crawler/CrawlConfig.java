@@ -30,6 +30,11 @@ import org.apache.http.impl.conn.SystemDefaultDnsResolver;
 import org.apache.http.message.BasicHeader;
 
 import edu.uci.ics.crawler4j.crawler.authentication.AuthInfo;
+import edu.uci.ics.crawler4j.dedup.DuplicateConfig;
+import edu.uci.ics.crawler4j.frontier.FrontierConfig;
+import edu.uci.ics.crawler4j.parser.ParserConfig;
+import edu.uci.ics.crawler4j.recrawl.RecrawlConfig;
+import edu.uci.ics.crawler4j.sitemap.SitemapConfig;
 
 public class CrawlConfig {
 
@@ -79,6 +84,21 @@ public class CrawlConfig {
      */
     private int politenessDelay = 200;
 
+    /**
+     * Whether the Crawl-delay of robots.txt replaces the politeness delay of a host
+     */
+    private boolean respectCrawlDelay = false;
+
+    /**
+     * Lower bound, in milliseconds, of the delay taken from a Crawl-delay
+     */
+    private int minCrawlDelay = 0;
+
+    /**
+     * Upper bound, in milliseconds, of the delay taken from a Crawl-delay
+     */
+    private int maxCrawlDelay = 30000;
+
     /**
      * Should we also crawl https pages?
      */
@@ -125,11 +145,22 @@ public class CrawlConfig {
      */
     private int maxDownloadSize = 1048576;
 
+    /**
+     * Number of content buffers kept for reuse by the pages of a crawl, 0 to allocate a
+     * new array for every page.
+     */
+    private int contentBufferPoolSize = 0;
+
     /**
      * Should we follow redirects?
      */
     private boolean followRedirects = true;
 
+    /**
+     * Should pages fetched again be requested conditionally on their ETag and Last-Modified?
+     */
+    private boolean conditionalGet = false;
+
     /**
      * Should the TLD list be updated automatically on each run? Alternatively,
      * it can be loaded from the embedded tld-names.zip file that was obtained from
@@ -235,6 +266,36 @@ public class CrawlConfig {
      */
     private int batchReadSize = 50;
 
+    /**
+     * Settings of the frontier and of the docid server.
+     */
+    private FrontierConfig frontierConfig = new FrontierConfig();
+
+    /**
+     * Settings of the staged crawling pipeline.
+     */
+    private PipelineConfig pipelineConfig = new PipelineConfig();
+
+    /**
+     * Settings of the parser.
+     */
+    private ParserConfig parserConfig = new ParserConfig();
+
+    /**
+     * Settings of the sitemap reader.
+     */
+    private SitemapConfig sitemapConfig = new SitemapConfig();
+
+    /**
+     * Settings of the continuous crawl mode.
+     */
+    private RecrawlConfig recrawlConfig = new RecrawlConfig();
+
+    /**
+     * Settings of the duplicate detection.
+     */
+    private DuplicateConfig duplicateConfig = new DuplicateConfig();
+
     /**
      * Validates the configs specified by this instance.
      *
@@ -247,6 +308,9 @@ public class CrawlConfig {
         if (politenessDelay < 0) {
             throw new Exception("Invalid value for politeness delay: " + politenessDelay);
         }
+        if (minCrawlDelay < 0 || maxCrawlDelay < minCrawlDelay) {
+            throw new Exception("Invalid bounds for crawl delay: " + minCrawlDelay + " - " + maxCrawlDelay);
+        }
         if (maxDepthOfCrawling < -1) {
             throw new Exception(
                 "Maximum crawl depth should be either a positive number or -1 for unlimited depth" +
@@ -255,6 +319,15 @@ public class CrawlConfig {
         if (maxDepthOfCrawling > Short.MAX_VALUE) {
             throw new Exception("Maximum value for crawl depth is " + Short.MAX_VALUE);
         }
+        if (contentBufferPoolSize < 0) {
+            throw new Exception("Invalid value for content buffer pool size: " + contentBufferPoolSize);
+        }
+        frontierConfig.validate();
+        pipelineConfig.validate();
+        parserConfig.validate();
+        sitemapConfig.validate();
+        recrawlConfig.validate();
+        duplicateConfig.validate();
     }
 
     public String getCrawlStorageFolder() {
@@ -377,6 +450,47 @@ public class CrawlConfig {
         this.politenessDelay = politenessDelay;
     }
 
+    public boolean isRespectCrawlDelay() {
+        return respectCrawlDelay;
+    }
+
+    /**
+     * Whether the Crawl-delay a host declares in its robots.txt for our user agent is
+     * used as the delay between two requests to this host, instead of the politeness
+     * delay. The Crawl-delay is kept between {@link #getMinCrawlDelay()} and
+     * {@link #getMaxCrawlDelay()}. Hosts without a Crawl-delay, or whose robots.txt has
+     * not been fetched, keep the politeness delay.
+     *
+     * @param respectCrawlDelay true to honor the Crawl-delay of robots.txt
+     */
+    public void setRespectCrawlDelay(boolean respectCrawlDelay) {
+        this.respectCrawlDelay = respectCrawlDelay;
+    }
+
+    public int getMinCrawlDelay() {
+        return minCrawlDelay;
+    }
+
+    /**
+     * @param minCrawlDelay the smallest delay in milliseconds a Crawl-delay may set, 0 by
+     *                      default
+     */
+    public void setMinCrawlDelay(int minCrawlDelay) {
+        this.minCrawlDelay = minCrawlDelay;
+    }
+
+    public int getMaxCrawlDelay() {
+        return maxCrawlDelay;
+    }
+
+    /**
+     * @param maxCrawlDelay the largest delay in milliseconds a Crawl-delay may set, 30
+     *                      seconds by default, so that a single host can not stall the crawl
+     */
+    public void setMaxCrawlDelay(int maxCrawlDelay) {
+        this.maxCrawlDelay = maxCrawlDelay;
+    }
+
     public boolean isIncludeHttpsPages() {
         return includeHttpsPages;
     }
@@ -479,6 +593,24 @@ public class CrawlConfig {
         this.maxDownloadSize = maxDownloadSize;
     }
 
+    public int getContentBufferPoolSize() {
+        return contentBufferPoolSize;
+    }
+
+    /**
+     * Pages load their content into buffers borrowed from a pool, instead of into a new
+     * array which grows while the content is read. The buffer of a page is given back
+     * once the page is visited, after which its content is not available anymore: a
+     * crawler which keeps pages beyond {@code visit} should copy the content with
+     * {@link Page#getContentData()} while visiting them.
+     *
+     * @param contentBufferPoolSize number of buffers kept for reuse, about the number
+     *                              of pages processed concurrently. 0 disables pooling.
+     */
+    public void setContentBufferPoolSize(int contentBufferPoolSize) {
+        this.contentBufferPoolSize = contentBufferPoolSize;
+    }
+
     public boolean isFollowRedirects() {
         return followRedirects;
     }
@@ -490,6 +622,23 @@ public class CrawlConfig {
         this.followRedirects = followRedirects;
     }
 
+    public boolean isConditionalGet() {
+        return conditionalGet;
+    }
+
+    /**
+     * When enabled, the ETag and Last-Modified of each fetched page are kept by docid, and
+     * a page fetched again is requested with If-None-Match and If-Modified-Since. A page
+     * which did not change is then answered with 304 Not Modified, without content, and
+     * handed to {@link WebCrawler#onPageNotModified(Page)}. The validators are kept across
+     * crawls when crawling is resumable.
+     *
+     * @param conditionalGet true to revalidate pages instead of downloading them again
+     */
+    public void setConditionalGet(boolean conditionalGet) {
+        this.conditionalGet = conditionalGet;
+    }
+
     public boolean isShutdownOnEmptyQueue() {
         return shutdownOnEmptyQueue;
     }
@@ -732,6 +881,72 @@ public class CrawlConfig {
         this.batchReadSize = batchReadSize;
     }
 
+    public FrontierConfig getFrontierConfig() {
+        return frontierConfig;
+    }
+
+    /**
+     * @param frontierConfig settings of the frontier and of the docid server
+     */
+    public void setFrontierConfig(FrontierConfig frontierConfig) {
+        this.frontierConfig = frontierConfig;
+    }
+
+    public PipelineConfig getPipelineConfig() {
+        return pipelineConfig;
+    }
+
+    /**
+     * @param pipelineConfig settings of the staged crawling pipeline
+     */
+    public void setPipelineConfig(PipelineConfig pipelineConfig) {
+        this.pipelineConfig = pipelineConfig;
+    }
+
+    public ParserConfig getParserConfig() {
+        return parserConfig;
+    }
+
+    /**
+     * @param parserConfig settings of the parser
+     */
+    public void setParserConfig(ParserConfig parserConfig) {
+        this.parserConfig = parserConfig;
+    }
+
+    public SitemapConfig getSitemapConfig() {
+        return sitemapConfig;
+    }
+
+    /**
+     * @param sitemapConfig settings of the sitemap reader
+     */
+    public void setSitemapConfig(SitemapConfig sitemapConfig) {
+        this.sitemapConfig = sitemapConfig;
+    }
+
+    public RecrawlConfig getRecrawlConfig() {
+        return recrawlConfig;
+    }
+
+    /**
+     * @param recrawlConfig settings of the continuous crawl mode
+     */
+    public void setRecrawlConfig(RecrawlConfig recrawlConfig) {
+        this.recrawlConfig = recrawlConfig;
+    }
+
+    public DuplicateConfig getDuplicateConfig() {
+        return duplicateConfig;
+    }
+
+    /**
+     * @param duplicateConfig settings of the duplicate detection
+     */
+    public void setDuplicateConfig(DuplicateConfig duplicateConfig) {
+        this.duplicateConfig = duplicateConfig;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -748,7 +963,9 @@ public class CrawlConfig {
         sb.append("Max total connections: " + getMaxTotalConnections() + "\n");
         sb.append("Max outgoing links to follow: " + getMaxOutgoingLinksToFollow() + "\n");
         sb.append("Max download size: " + getMaxDownloadSize() + "\n");
+        sb.append("Content buffer pool size: " + getContentBufferPoolSize() + "\n");
         sb.append("Should follow redirects?: " + isFollowRedirects() + "\n");
+        sb.append("Conditional GET: " + isConditionalGet() + "\n");
         sb.append("Proxy host: " + getProxyHost() + "\n");
         sb.append("Proxy port: " + getProxyPort() + "\n");
         sb.append("Proxy username: " + getProxyUsername() + "\n");
@@ -758,9 +975,17 @@ public class CrawlConfig {
         sb.append("Cookie policy: " + getCookiePolicy() + "\n");
         sb.append("Respect nofollow: " + isRespectNoFollow() + "\n");
         sb.append("Respect noindex: " + isRespectNoIndex() + "\n");
+        sb.append("Respect crawl delay: " + isRespectCrawlDelay() + " (" + getMinCrawlDelay() + " - " +
+                  getMaxCrawlDelay() + " ms)\n");
         sb.append("Halt on error: " + isHaltOnError() + "\n");
         sb.append("Allow single level domain:" + isAllowSingleLevelDomain() + "\n");
         sb.append("Batch read size: " + getBatchReadSize() + "\n");
+        sb.append(frontierConfig);
+        sb.append(pipelineConfig);
+        sb.append(parserConfig);
+        sb.append(sitemapConfig);
+        sb.append(recrawlConfig);
+        sb.append(duplicateConfig);
         return sb.toString();
     }
 }
@@ -21,7 +21,14 @@ import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -30,11 +37,19 @@ import org.slf4j.LoggerFactory;
 import com.sleepycat.je.Environment;
 import com.sleepycat.je.EnvironmentConfig;
 
+import edu.uci.ics.crawler4j.dedup.DuplicateDetector;
+import edu.uci.ics.crawler4j.fetcher.AsyncPageFetcher;
 import edu.uci.ics.crawler4j.fetcher.PageFetcher;
+import edu.uci.ics.crawler4j.frontier.ConcurrentFrontier;
+import edu.uci.ics.crawler4j.frontier.CrawlTrapFilter;
 import edu.uci.ics.crawler4j.frontier.DocIDServer;
 import edu.uci.ics.crawler4j.frontier.Frontier;
+import edu.uci.ics.crawler4j.frontier.OffHeapDocIDServer;
+import edu.uci.ics.crawler4j.frontier.ValidatorsDB;
 import edu.uci.ics.crawler4j.parser.Parser;
+import edu.uci.ics.crawler4j.recrawl.RevisitScheduler;
 import edu.uci.ics.crawler4j.robotstxt.RobotstxtServer;
+import edu.uci.ics.crawler4j.sitemap.SitemapServer;
 import edu.uci.ics.crawler4j.url.TLDList;
 import edu.uci.ics.crawler4j.url.URLCanonicalizer;
 import edu.uci.ics.crawler4j.url.WebURL;
@@ -66,14 +81,14 @@ public class CrawlController {
     /**
      * Is the crawling of this session finished?
      */
-    protected boolean finished;
-    private Throwable error;
+    protected volatile boolean finished;
+    private volatile Throwable error;
 
     /**
      * Is the crawling session set to 'shutdown'. Crawler threads monitor this
      * flag and when it is set they will no longer process new pages.
      */
-    protected boolean shuttingDown;
+    protected volatile boolean shuttingDown;
 
     protected PageFetcher pageFetcher;
     protected RobotstxtServer robotstxtServer;
@@ -81,6 +96,47 @@ public class CrawlController {
     protected DocIDServer docIdServer;
     protected TLDList tldList;
 
+    /**
+     * Validators of the fetched pages, if pages are requested conditionally.
+     */
+    protected ValidatorsDB validatorsDB;
+
+    /**
+     * Schedules the fetched pages again, if the crawl is continuous.
+     */
+    protected RevisitScheduler revisitScheduler;
+
+    /**
+     * Detects duplicate pages, if enabled.
+     */
+    protected DuplicateDetector duplicateDetector;
+
+    /**
+     * Prunes links into crawl traps, if any limit is set.
+     */
+    protected CrawlTrapFilter crawlTrapFilter;
+    protected SitemapServer sitemapServer;
+
+    /**
+     * Hosts of the seeds whose robots.txt sitemaps are already read.
+     */
+    private final Set<String> sitemapHosts = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Runs the crawlers when set, instead of a platform thread per crawler.
+     */
+    protected ExecutorService crawlerExecutor;
+
+    /**
+     * Processes the claimed pages in stages, if the session is pipelined.
+     */
+    private volatile CrawlPipeline pipeline;
+
+    /**
+     * Holds the content of fetched pages, if content buffers are pooled.
+     */
+    private final ContentBufferPool contentBufferPool;
+
     protected final Object waitingLock = new Object();
     protected final Environment env;
 
@@ -140,17 +196,47 @@ public class CrawlController {
         }
 
         env = new Environment(envHome, envConfig);
-        docIdServer = new DocIDServer(env, config);
-        frontier = new Frontier(env, config);
+        if (config.getFrontierConfig().isOffHeapDocIdIndex() && !resumable) {
+            docIdServer = new OffHeapDocIDServer(config);
+        } else {
+            docIdServer = new DocIDServer(env, config);
+        }
+        if (config.getFrontierConfig().isConcurrentFrontier()) {
+            frontier = new ConcurrentFrontier(env, config);
+        } else {
+            frontier = new Frontier(env, config);
+        }
+        if (config.isConditionalGet()) {
+            validatorsDB = new ValidatorsDB(env, config);
+        }
+        if (config.getRecrawlConfig().isContinuousCrawl()) {
+            revisitScheduler = new RevisitScheduler(env, config, this.tldList);
+        }
+        if (config.getDuplicateConfig().isDuplicateDetection()) {
+            duplicateDetector = new DuplicateDetector(env, config);
+        }
+        if (CrawlTrapFilter.isEnabled(config.getFrontierConfig())) {
+            crawlTrapFilter = new CrawlTrapFilter(config);
+        }
 
         this.pageFetcher = pageFetcher;
         this.parser = parser == null ? new Parser(config, tldList) : parser;
         this.robotstxtServer = robotstxtServer;
+        this.sitemapServer = new SitemapServer(config, pageFetcher, this.tldList);
+        this.contentBufferPool = (config.getContentBufferPoolSize() > 0) ?
+                                 new ContentBufferPool(config.getContentBufferPoolSize()) : null;
 
         finished = false;
         shuttingDown = false;
 
         robotstxtServer.setCrawlConfig(config);
+        if (pageFetcher.getPolitenessServer() != null) {
+            pageFetcher.getPolitenessServer().setRobotstxtServer(robotstxtServer);
+        }
+        pageFetcher.setValidatorsDB(validatorsDB);
+        if (pageFetcher instanceof AsyncPageFetcher) {
+            ((AsyncPageFetcher) pageFetcher).setContentBufferPool(contentBufferPool);
+        }
     }
 
     public Parser getParser() {
@@ -272,21 +358,19 @@ public class CrawlController {
             finished = false;
             setError(null);
             crawlersLocalData.clear();
-            final List<Thread> threads = new ArrayList<>();
+            if (config.getPipelineConfig().isPipelined()) {
+                pipeline = new CrawlPipeline(config.getPipelineConfig());
+            }
+            final List<Future<?>> tasks = new ArrayList<>();
             final List<T> crawlers = new ArrayList<>();
 
             for (int i = 1; i <= numberOfCrawlers; i++) {
                 T crawler = crawlerFactory.newInstance();
-                Thread thread = new Thread(crawler, "Crawler " + i);
-                crawler.setThread(thread);
-                crawler.init(i, this);
-                thread.start();
+                tasks.add(startCrawler(crawler, i));
                 crawlers.add(crawler);
-                threads.add(thread);
                 logger.info("Crawler {} started", i);
             }
 
-            final CrawlController controller = this;
             Thread monitorThread = new Thread(new Runnable() {
 
                 @Override
@@ -296,21 +380,17 @@ public class CrawlController {
 
                             while (true) {
                                 sleep(config.getThreadMonitoringDelaySeconds());
+                                if ((revisitScheduler != null) && !shuttingDown) {
+                                    revisitScheduler.scheduleDueUrls(frontier);
+                                }
                                 boolean someoneIsWorking = false;
-                                for (int i = 0; i < threads.size(); i++) {
-                                    Thread thread = threads.get(i);
-                                    if (!thread.isAlive()) {
+                                for (int i = 0; i < tasks.size(); i++) {
+                                    if (tasks.get(i).isDone()) {
                                         if (!shuttingDown && !config.isHaltOnError()) {
-                                            logger.info("Thread {} was dead, I'll recreate it", i);
+                                            logger.info("Crawler {} was dead, I'll recreate it", i + 1);
                                             T crawler = crawlerFactory.newInstance();
-                                            thread = new Thread(crawler, "Crawler " + (i + 1));
-                                            threads.remove(i);
-                                            threads.add(i, thread);
-                                            crawler.setThread(thread);
-                                            crawler.init(i + 1, controller);
-                                            thread.start();
-                                            crawlers.remove(i);
-                                            crawlers.add(i, crawler);
+                                            tasks.set(i, startCrawler(crawler, i + 1));
+                                            crawlers.set(i, crawler);
                                         }
                                     } else if (crawlers.get(i).isNotWaitingForNewURLs()) {
                                         someoneIsWorking = true;
@@ -318,11 +398,12 @@ public class CrawlController {
                                     Throwable t = crawlers.get(i).getError();
                                     if (t != null && config.isHaltOnError()) {
                                         throw new RuntimeException(
-                                                "error on thread [" + threads.get(i).getName() + "]", t);
+                                                "error on thread [Crawler " + (i + 1) + "]", t);
                                     }
                                 }
-                                boolean shutOnEmpty = config.isShutdownOnEmptyQueue();
-                                if (!someoneIsWorking && shutOnEmpty) {
+                                // A continuous crawl runs until it is shut down
+                                boolean shutOnEmpty = config.isShutdownOnEmptyQueue() && (revisitScheduler == null);
+                                if (!someoneIsWorking && (shutOnEmpty || shuttingDown)) {
                                     // Make sure again that none of the threads
                                     // are
                                     // alive.
@@ -333,9 +414,8 @@ public class CrawlController {
                                     sleep(config.getThreadShutdownDelaySeconds());
 
                                     someoneIsWorking = false;
-                                    for (int i = 0; i < threads.size(); i++) {
-                                        Thread thread = threads.get(i);
-                                        if (thread.isAlive() &&
+                                    for (int i = 0; i < tasks.size(); i++) {
+                                        if (!tasks.get(i).isDone() &&
                                             crawlers.get(i).isNotWaitingForNewURLs()) {
                                             someoneIsWorking = true;
                                         }
@@ -374,8 +454,10 @@ public class CrawlController {
                                             " seconds before final clean up...");
                                         sleep(config.getCleanupDelaySeconds());
 
+                                        shutDownPipeline();
                                         frontier.close();
                                         docIdServer.close();
+                                        closeFetchHistory();
                                         pageFetcher.shutDown();
 
                                         finished = true;
@@ -392,8 +474,10 @@ public class CrawlController {
                             setError(e);
                             synchronized (waitingLock) {
                                 frontier.finish();
+                                shutDownPipeline();
                                 frontier.close();
                                 docIdServer.close();
+                                closeFetchHistory();
                                 pageFetcher.shutDown();
                                 waitingLock.notifyAll();
                                 env.close();
@@ -425,6 +509,30 @@ public class CrawlController {
         }
     }
 
+    private void shutDownPipeline() {
+        if (pipeline != null) {
+            pipeline.shutdown();
+            pipeline = null;
+        }
+    }
+
+    /*
+     * Runs the crawler on a thread of its own, or on the crawler executor if one is set.
+     */
+    private Future<?> startCrawler(WebCrawler crawler, int id)
+        throws InstantiationException, IllegalAccessException {
+        if (crawlerExecutor != null) {
+            crawler.init(id, this);
+            return crawlerExecutor.submit(crawler);
+        }
+        FutureTask<?> task = new FutureTask<>(crawler, null);
+        Thread thread = new Thread(task, "Crawler " + id);
+        crawler.setThread(thread);
+        crawler.init(id, this);
+        thread.start();
+        return task;
+    }
+
     /**
      * Wait until this crawling session finishes.
      */
@@ -545,7 +653,58 @@ public class CrawlController {
                 // using the WARN level here, as the user specifically asked to add this seed
                 logger.warn("Robots.txt does not allow this seed: {}", pageUrl);
             }
+            if (config.getSitemapConfig().isFollowRobotstxtSitemaps() && sitemapHosts.add(webUrl.getHost())) {
+                for (String sitemapUrl : robotstxtServer.getSitemaps(webUrl)) {
+                    addSitemap(sitemapUrl);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a sitemap, or a sitemap index, and schedules its urls as seeds, unless they
+     * are already seen or robots.txt does not allow them. The sitemap is read while this
+     * method runs, in batches, so that the urls of large sites are never all in memory.
+     * The crawl priority of the urls comes from their priority and last modification
+     * date in the sitemap, see {@link SitemapServer#getPriority(String, String)}.
+     *
+     * @param sitemapUrl the url of the sitemap
+     *
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    public void addSitemap(String sitemapUrl) throws IOException, InterruptedException {
+        long[] scheduled = new long[1];
+        long read = sitemapServer.read(sitemapUrl, urls -> scheduled[0] += scheduleSitemapUrls(urls));
+        logger.info("Scheduled {} of the {} urls of sitemap {}", scheduled[0], read, sitemapUrl);
+    }
+
+    private int scheduleSitemapUrls(List<WebURL> urls) throws IOException, InterruptedException {
+        Map<String, WebURL> unique = new LinkedHashMap<>();
+        for (WebURL webUrl : urls) {
+            unique.putIfAbsent(webUrl.getURL(), webUrl);
+        }
+        Map<String, Integer> seenDocIds = docIdServer.getDocIds(unique.keySet());
+        List<WebURL> toSchedule = new ArrayList<>();
+        for (WebURL webUrl : unique.values()) {
+            if (!seenDocIds.containsKey(webUrl.getURL()) && robotstxtServer.allows(webUrl)) {
+                toSchedule.add(webUrl);
+            }
+        }
+        if (toSchedule.isEmpty()) {
+            return 0;
+        }
+        List<String> newUrls = new ArrayList<>(toSchedule.size());
+        for (WebURL webUrl : toSchedule) {
+            newUrls.add(webUrl.getURL());
         }
+        Map<String, Integer> newDocIds = docIdServer.resolveOrAssign(newUrls);
+        toSchedule.removeIf(webUrl -> {
+            webUrl.setDocid(newDocIds.get(webUrl.getURL()));
+            return webUrl.getDocid() < 0;
+        });
+        frontier.scheduleAll(toSchedule);
+        return toSchedule.size();
     }
 
     /**
@@ -614,6 +773,49 @@ public class CrawlController {
         this.docIdServer = docIdServer;
     }
 
+    /**
+     * @return the validators of the fetched pages, or null if pages are not requested
+     * conditionally
+     */
+    public ValidatorsDB getValidatorsDB() {
+        return validatorsDB;
+    }
+
+    /**
+     * @return the scheduler of the revisits, or null if the crawl is not continuous
+     */
+    public RevisitScheduler getRevisitScheduler() {
+        return revisitScheduler;
+    }
+
+    /**
+     * @return the detector of duplicate pages, or null if duplicates are not detected
+     */
+    public DuplicateDetector getDuplicateDetector() {
+        return duplicateDetector;
+    }
+
+    /**
+     * @return the filter of links into crawl traps, which counts the pruned urls, or null
+     * if no limit is set
+     */
+    public CrawlTrapFilter getCrawlTrapFilter() {
+        return crawlTrapFilter;
+    }
+
+    private void closeFetchHistory() {
+        if (validatorsDB != null) {
+            pageFetcher.setValidatorsDB(null);
+            validatorsDB.close();
+        }
+        if (revisitScheduler != null) {
+            revisitScheduler.close();
+        }
+        if (duplicateDetector != null) {
+            duplicateDetector.close();
+        }
+    }
+
     /**
      * @deprecated implements a factory {@link WebCrawlerFactory} and inject your cutom data as
      * shown <a href="https://github.com/yasserg/crawler4j#using-a-factory">here</a> .
@@ -657,14 +859,46 @@ public class CrawlController {
         return config;
     }
 
-    protected synchronized Throwable getError() {
+    protected Throwable getError() {
         return error;
     }
 
-    private synchronized void setError(Throwable e) {
+    private void setError(Throwable e) {
         this.error = e;
     }
 
+    /**
+     * @return the pool holding the content of fetched pages, or null if content buffers
+     *         are not pooled
+     */
+    public ContentBufferPool getContentBufferPool() {
+        return contentBufferPool;
+    }
+
+    /**
+     * @return the pipeline of the running session, or null if it is not pipelined
+     */
+    CrawlPipeline getPipeline() {
+        return pipeline;
+    }
+
+    public ExecutorService getCrawlerExecutor() {
+        return crawlerExecutor;
+    }
+
+    /**
+     * Runs the crawlers of the next sessions on the given executor instead of
+     * creating a platform thread per crawler. On runtimes which support them, an
+     * executor starting a virtual thread per task makes large numbers of
+     * concurrent crawlers cheap. The executor must be able to run all crawlers
+     * at the same time, and is not shut down by the controller.
+     *
+     * @param crawlerExecutor the executor, or null to start a thread per crawler
+     */
+    public void setCrawlerExecutor(ExecutorService crawlerExecutor) {
+        this.crawlerExecutor = crawlerExecutor;
+    }
+
     public TLDList getTldList() {
         return tldList;
     }
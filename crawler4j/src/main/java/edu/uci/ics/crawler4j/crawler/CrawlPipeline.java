@@ -0,0 +1,196 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.crawler;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import edu.uci.ics.crawler4j.crawler.exceptions.ParseException;
+import edu.uci.ics.crawler4j.url.WebURL;
+
+/**
+ * Processes the urls claimed by the crawlers in three stages: fetching the page,
+ * parsing it, and scheduling its outgoing links before visiting it. Each stage
+ * has its own pool of threads and a bounded queue; a stage whose queue is full
+ * blocks the stage feeding it, down to the crawler threads claiming urls.
+ *
+ * A page is handed to the next stage by the thread which finished the current
+ * one, so a page is only ever processed by one thread at a time.
+ */
+class CrawlPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrawlPipeline.class);
+
+    /**
+     * One step of the processing of a page.
+     */
+    private interface Step {
+        /**
+         * @return true if the page was handed over to the next stage
+         */
+        boolean run() throws ParseException;
+    }
+
+    private final ThreadPoolExecutor fetchStage;
+    private final ThreadPoolExecutor parseStage;
+    private final ThreadPoolExecutor linkStage;
+
+    CrawlPipeline(PipelineConfig config) {
+        fetchStage = newStage("Fetch stage", config.getFetchThreads(), config.getStageQueueCapacity());
+        parseStage = newStage("Parse stage", config.getParseThreads(), config.getStageQueueCapacity());
+        linkStage = newStage("Link stage", config.getLinkThreads(), config.getStageQueueCapacity());
+    }
+
+    private static ThreadPoolExecutor newStage(String name, int threads, int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                      new ArrayBlockingQueue<>(queueCapacity),
+                                      new ThreadFactoryBuilder().setNameFormat(name + " %d").setDaemon(true)
+                                                                .build(),
+                                      CrawlPipeline::waitForRoom);
+    }
+
+    /*
+     * A full queue makes the submitting thread wait for room instead of rejecting the page.
+     */
+    private static void waitForRoom(Runnable task, ThreadPoolExecutor stage) {
+        if (stage.isShutdown()) {
+            throw new RejectedExecutionException("Pipeline stage is shut down");
+        }
+        try {
+            stage.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        }
+        // The stage may have been shut down, and its queue drained, while waiting
+        if (stage.isShutdown() && stage.getQueue().remove(task)) {
+            throw new RejectedExecutionException("Pipeline stage is shut down");
+        }
+    }
+
+    /**
+     * Hands a url claimed by the given crawler to the fetch stage, waiting while
+     * the fetch stage is full.
+     */
+    void submit(WebCrawler crawler, WebURL url) {
+        crawler.onPageEnteredPipeline();
+        execute(fetchStage, crawler, url, () -> {
+            Page page = crawler.fetchPage(url, null);
+            if (page == null) {
+                return false;
+            }
+            Runnable releaseContent = page::releaseContent;
+            execute(parseStage, crawler, url, () -> {
+                if (!crawler.parsePage(page)) {
+                    return false;
+                }
+                execute(linkStage, crawler, url, () -> {
+                    crawler.followLinksAndVisit(page);
+                    return false;
+                }, releaseContent);
+                return true;
+            }, releaseContent);
+            return true;
+        }, null);
+    }
+
+    /*
+     * The cleanup runs whenever the page does not reach the next stage from this step:
+     * once the step is done with it, or if the step fails, is skipped, is rejected or is
+     * dropped by a shutdown.
+     */
+    private void execute(ThreadPoolExecutor stage, WebCrawler crawler, WebURL url, Step step, Runnable cleanup) {
+        StageTask task = new StageTask(crawler, url, step, cleanup);
+        try {
+            stage.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.drop();
+        }
+    }
+
+    /**
+     * A step of the processing of a page, queued in a stage.
+     */
+    private static class StageTask implements Runnable {
+        private final WebCrawler crawler;
+        private final WebURL url;
+        private final Step step;
+        private final Runnable cleanup;
+
+        StageTask(WebCrawler crawler, WebURL url, Step step, Runnable cleanup) {
+            this.crawler = crawler;
+            this.url = url;
+            this.step = step;
+            this.cleanup = cleanup;
+        }
+
+        @Override
+        public void run() {
+            boolean handedOver = false;
+            boolean processed = false;
+            try {
+                if (!crawler.getMyController().isShuttingDown()) {
+                    handedOver = step.run();
+                    processed = true;
+                }
+            } catch (Throwable t) {
+                logger.warn("Error while processing: {}", url.getURL(), t);
+                crawler.setError(t);
+            } finally {
+                if (!handedOver) {
+                    leave(processed);
+                }
+            }
+        }
+
+        /**
+         * Lets the page leave the pipeline without running the step.
+         */
+        void drop() {
+            leave(false);
+        }
+
+        private void leave(boolean processed) {
+            try {
+                if (cleanup != null) {
+                    cleanup.run();
+                }
+            } finally {
+                crawler.onPageLeftPipeline(url, processed);
+            }
+        }
+    }
+
+    /*
+     * The steps still queued are dropped, so that their pages leave the pipeline.
+     */
+    void shutdown() {
+        for (ThreadPoolExecutor stage : new ThreadPoolExecutor[] {fetchStage, parseStage, linkStage}) {
+            for (Runnable task : stage.shutdownNow()) {
+                ((StageTask) task).drop();
+            }
+        }
+    }
+}
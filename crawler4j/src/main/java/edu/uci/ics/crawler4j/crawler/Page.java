@@ -17,9 +17,15 @@
 
 package edu.uci.ics.crawler4j.crawler;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.function.Supplier;
 
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
@@ -28,6 +34,9 @@ import org.apache.http.util.ByteArrayBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.hash.HashCode;
+
+import edu.uci.ics.crawler4j.fetcher.BufferedContentEntity;
 import edu.uci.ics.crawler4j.parser.ParseData;
 import edu.uci.ics.crawler4j.url.WebURL;
 
@@ -38,6 +47,11 @@ import edu.uci.ics.crawler4j.url.WebURL;
  */
 public class Page {
 
+    /**
+     * Largest array the JVM is expected to allocate, used when there is no maximum size
+     */
+    private static final int MAX_CONTENT_SIZE = Integer.MAX_VALUE - 8;
+
     protected final Logger logger = LoggerFactory.getLogger(Page.class);
 
     /**
@@ -88,6 +102,11 @@ public class Page {
      */
     private String language;
 
+    /**
+     * Identifies the language on first access, if it was not identified yet.
+     */
+    private Supplier<String> languageSupplier;
+
     /**
      * Headers which were present in the response of the fetch request
      */
@@ -103,6 +122,24 @@ public class Page {
      */
     protected boolean truncated = false;
 
+    /**
+     * The pool from which the content buffer is borrowed, if content buffers are pooled
+     */
+    private ContentBufferPool contentBufferPool;
+
+    /**
+     * The borrowed buffer holding the content, until it is released
+     */
+    private byte[] pooledContent;
+
+    private int pooledContentLength;
+
+    /**
+     * Hash of the content read through {@link #openContent}, which is known even if the
+     * content is not retained
+     */
+    private HashCode streamedContentHash;
+
     public Page(WebURL url) {
         this.url = url;
     }
@@ -161,7 +198,106 @@ public class Page {
      * @throws IOException when load fails
      */
     public void load(HttpEntity entity, int maxBytes) throws IOException {
+        loadMetadata(entity);
+        if (entity instanceof BufferedContentEntity) {
+            loadBufferedContent((BufferedContentEntity) entity, maxBytes);
+        } else if (contentBufferPool == null) {
+            contentData = toByteArray(entity, maxBytes);
+        } else {
+            loadIntoPooledBuffer(entity, maxBytes);
+        }
+    }
 
+    /*
+     * Reads the content straight into a borrowed buffer, which is grown when needed
+     * and kept by the pool at its new size once released.
+     */
+    private void loadIntoPooledBuffer(HttpEntity entity, int maxBytes) throws IOException {
+        releaseContent();
+        contentData = null;
+        int limit = (maxBytes > 0) ? maxBytes : MAX_CONTENT_SIZE;
+        long expectedLength = entity.getContentLength();
+        byte[] buffer = contentBufferPool.borrow((int) Math.min(Math.max(expectedLength, 0), limit));
+        int length = 0;
+        try (InputStream is = entity.getContent()) {
+            while (is != null) {
+                int capacity = Math.min(buffer.length, limit);
+                if (length == capacity) {
+                    if (capacity == limit) {
+                        truncated = is.read() != -1;
+                        break;
+                    }
+                    buffer = Arrays.copyOf(buffer, (int) Math.min(limit, buffer.length * 2L));
+                    continue;
+                }
+                int read = is.read(buffer, length, capacity - length);
+                if (read == -1) {
+                    break;
+                }
+                length += read;
+            }
+        } catch (IOException | RuntimeException e) {
+            contentBufferPool.release(buffer);
+            throw e;
+        }
+        pooledContent = buffer;
+        pooledContentLength = length;
+    }
+
+    /*
+     * Takes over the array which the content was already read into, instead of copying
+     * it. The array is expected to come from the pool of this page, if there is one.
+     */
+    private void loadBufferedContent(BufferedContentEntity entity, int maxBytes) {
+        int limit = (maxBytes > 0) ? maxBytes : MAX_CONTENT_SIZE;
+        int length = (int) entity.getContentLength();
+        if (length > limit) {
+            truncated = true;
+            length = limit;
+        }
+        if (contentBufferPool != null) {
+            releaseContent();
+            contentData = null;
+            pooledContent = entity.takeBuffer();
+            pooledContentLength = length;
+        } else {
+            byte[] buffer = entity.takeBuffer();
+            contentData = (buffer.length == length) ? buffer : Arrays.copyOf(buffer, length);
+        }
+    }
+
+    /**
+     * Opens the content of a fetched HttpEntity as a stream, so that it can be parsed
+     * while it is downloaded instead of being loaded first. The content type, encoding
+     * and charset of this page are loaded right away.
+     *
+     * @param entity HttpEntity
+     * @param maxBytes The maximum number of bytes to read, after which the stream ends
+     *                 and this page is marked as truncated
+     * @param retainContent if {@code true}, the bytes read are also kept and set as the
+     *                      content data of this page once the stream ends or is closed
+     * @return the content of the entity
+     * @throws IOException when the content cannot be opened
+     */
+    public PageContentInputStream openContent(HttpEntity entity, int maxBytes, boolean retainContent)
+        throws IOException {
+        loadMetadata(entity);
+        truncated = false;
+        streamedContentHash = null;
+        ByteArrayOutputStream retained = null;
+        if (retainContent) {
+            long length = entity.getContentLength();
+            retained = new ByteArrayOutputStream((length > 0) ? (int) Math.min(length, maxBytes) : 4096);
+        }
+        return new PageContentInputStream(this, entity.getContent(), maxBytes, retained);
+    }
+
+    /**
+     * Loads the content type, encoding and charset of this page from a fetched HttpEntity.
+     *
+     * @param entity HttpEntity
+     */
+    public void loadMetadata(HttpEntity entity) {
         contentType = null;
         Header type = entity.getContentType();
         if (type != null) {
@@ -185,8 +321,6 @@ public class Page {
         if (charset != null) {
             contentCharset = charset.displayName();
         }
-
-        contentData = toByteArray(entity, maxBytes);
     }
 
     public WebURL getWebURL() {
@@ -246,16 +380,103 @@ public class Page {
     }
 
     /**
-     * @return content of this page in binary format.
+     * @return content of this page in binary format. If the content is held by a pooled
+     * buffer, this copies it, and the copy stays available once the buffer is released.
      */
     public byte[] getContentData() {
+        if ((contentData == null) && (pooledContent != null)) {
+            contentData = Arrays.copyOf(pooledContent, pooledContentLength);
+        }
         return contentData;
     }
 
     public void setContentData(byte[] contentData) {
+        releaseContent();
         this.contentData = contentData;
     }
 
+    /**
+     * @return a read only view of the content of this page, which does not copy it, or
+     * null if there is no content. The view must not be used after
+     * {@link #releaseContent()}.
+     */
+    public ByteBuffer getContentBuffer() {
+        if (pooledContent != null) {
+            return ByteBuffer.wrap(pooledContent, 0, pooledContentLength).slice().asReadOnlyBuffer();
+        }
+        return (contentData == null) ? null : ByteBuffer.wrap(contentData).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return the array holding the content of this page, which is not copied, or null if
+     * there is no content. Only its first {@link #getContentLength()} bytes are content.
+     * Meant for parsers scanning the raw bytes, which must not modify the array nor use it
+     * after {@link #releaseContent()}.
+     */
+    public byte[] getContentArray() {
+        return (pooledContent != null) ? pooledContent : contentData;
+    }
+
+    /**
+     * @return the length of the content of this page, or 0 if there is no content
+     */
+    public int getContentLength() {
+        if (pooledContent != null) {
+            return pooledContentLength;
+        }
+        return (contentData == null) ? 0 : contentData.length;
+    }
+
+    /**
+     * @return a stream over the content of this page, which does not copy it, or null if
+     * there is no content. The stream must not be used after {@link #releaseContent()}.
+     */
+    public InputStream getContentStream() {
+        if (pooledContent != null) {
+            return new ByteArrayInputStream(pooledContent, 0, pooledContentLength);
+        }
+        return (contentData == null) ? null : new ByteArrayInputStream(contentData);
+    }
+
+    /**
+     * @return the content of this page decoded with its charset, or with the platform
+     * charset if it is unknown, or null if there is no content
+     * @throws UnsupportedEncodingException if the charset of the page is not supported
+     */
+    public String getContentAsString() throws UnsupportedEncodingException {
+        byte[] data = (pooledContent != null) ? pooledContent : contentData;
+        if (data == null) {
+            return null;
+        }
+        int length = (pooledContent != null) ? pooledContentLength : data.length;
+        return (contentCharset == null) ? new String(data, 0, length) :
+               new String(data, 0, length, contentCharset);
+    }
+
+    /**
+     * Makes this page load its content into buffers borrowed from the given pool. The
+     * buffer is given back by {@link #releaseContent()}.
+     *
+     * @param contentBufferPool the pool, or null to load the content into a new array
+     */
+    public void setContentBufferPool(ContentBufferPool contentBufferPool) {
+        this.contentBufferPool = contentBufferPool;
+    }
+
+    /**
+     * Gives the pooled buffer holding the content of this page back to its pool. The
+     * content is not available anymore afterwards, unless it was copied by
+     * {@link #getContentData()} before.
+     */
+    public void releaseContent() {
+        if (pooledContent != null) {
+            byte[] buffer = pooledContent;
+            pooledContent = null;
+            pooledContentLength = 0;
+            contentBufferPool.release(buffer);
+        }
+    }
+
     /**
      * @return ContentType of this page.
      * For example: "text/html; charset=UTF-8"
@@ -296,14 +517,45 @@ public class Page {
      * @return Language
      */
     public String getLanguage() {
+        Supplier<String> supplier = languageSupplier;
+        if (supplier != null) {
+            language = supplier.get();
+            languageSupplier = null;
+        }
         return language;
     }
 
     public void setLanguage(String language) {
         this.language = language;
+        this.languageSupplier = null;
+    }
+
+    /**
+     * @param languageSupplier identifies the language of this page when it is first asked for
+     */
+    public void setLanguageSupplier(Supplier<String> languageSupplier) {
+        this.language = null;
+        this.languageSupplier = languageSupplier;
     }
 
     public boolean isTruncated() {
         return truncated;
     }
+
+    void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    /**
+     * @return the murmur3_128 hash of the content read through the stream returned by
+     * {@link #openContent}, once the stream ended or was closed, or null. It is the same
+     * as the hash of the content data the stream retains.
+     */
+    public HashCode getStreamedContentHash() {
+        return streamedContentHash;
+    }
+
+    void setStreamedContentHash(HashCode streamedContentHash) {
+        this.streamedContentHash = streamedContentHash;
+    }
 }
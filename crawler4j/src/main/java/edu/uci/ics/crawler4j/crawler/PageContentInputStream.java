@@ -0,0 +1,173 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.crawler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * The content of a page, read from the response while it is downloaded. At most
+ * the maximum download size is read, after which the stream ends and the page is
+ * marked as truncated. The bytes read may be kept, in which case they become the
+ * content data of the page once the stream ends or is closed. Either way the bytes
+ * read are hashed, so that changes of the page can be told without keeping them.
+ *
+ * Parsers usually wrap the exceptions thrown while reading their input, so the
+ * first one is also kept and available through {@link #getReadFailure()}.
+ */
+public class PageContentInputStream extends FilterInputStream {
+
+    private final Page page;
+    private final int maxBytes;
+    private ByteArrayOutputStream retained;
+    private Hasher hasher = Hashing.murmur3_128().newHasher();
+    private long count;
+    private IOException readFailure;
+
+    PageContentInputStream(Page page, InputStream in, int maxBytes, ByteArrayOutputStream retained) {
+        super(in);
+        this.page = page;
+        this.maxBytes = maxBytes;
+        this.retained = retained;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return (read == -1) ? -1 : (single[0] & 0xff);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if ((in == null) || isLimitReached()) {
+            complete();
+            return -1;
+        }
+        if (maxBytes > 0) {
+            len = (int) Math.min(len, maxBytes - count);
+        }
+        int read;
+        try {
+            read = in.read(b, off, len);
+        } catch (IOException e) {
+            if (readFailure == null) {
+                readFailure = e;
+            }
+            throw e;
+        }
+        if (read == -1) {
+            complete();
+            return -1;
+        }
+        count += read;
+        hasher.putBytes(b, off, read);
+        if (retained != null) {
+            retained.write(b, off, read);
+        }
+        return read;
+    }
+
+    /*
+     * Once the maximum is read, one more byte tells whether the content was truncated.
+     */
+    private boolean isLimitReached() throws IOException {
+        if ((maxBytes <= 0) || (count < maxBytes)) {
+            return false;
+        }
+        if (!page.isTruncated() && (in.read() != -1)) {
+            page.setTruncated(true);
+        }
+        return true;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(n, 4096)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (in == null) ? 0 : in.available();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        // Not supported
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    @Override
+    public void close() throws IOException {
+        complete();
+        if (in != null) {
+            in.close();
+        }
+    }
+
+    private void complete() {
+        if (hasher != null) {
+            page.setStreamedContentHash(hasher.hash());
+            hasher = null;
+        }
+        if (retained != null) {
+            page.setContentData(retained.toByteArray());
+            retained = null;
+        }
+    }
+
+    /**
+     * @return the number of bytes read so far
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the first exception thrown while reading the content, or null
+     */
+    public IOException getReadFailure() {
+        return readFailure;
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.crawler;
+
+/**
+ * Settings of the staged crawling pipeline, available through
+ * {@link CrawlConfig#getPipelineConfig()}.
+ */
+public class PipelineConfig {
+
+    /**
+     * Should pages be fetched, parsed and have their links scheduled by separate pools
+     * of threads, instead of entirely on the crawler thread which claimed them?
+     */
+    private boolean pipelined = false;
+
+    /**
+     * Number of threads fetching pages and loading their content.
+     */
+    private int fetchThreads = 10;
+
+    /**
+     * Number of threads parsing the fetched pages.
+     */
+    private int parseThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of threads scheduling the outgoing links of parsed pages and visiting them.
+     */
+    private int linkThreads = 2;
+
+    /**
+     * Number of pages each stage may hold in its queue before the previous stage blocks.
+     */
+    private int stageQueueCapacity = 100;
+
+    /**
+     * Validates the configs specified by this instance.
+     *
+     * @throws Exception on Validation fail
+     */
+    public void validate() throws Exception {
+        if ((fetchThreads < 1) || (parseThreads < 1) || (linkThreads < 1)) {
+            throw new Exception("Every stage of the pipeline needs at least one thread");
+        }
+        if (stageQueueCapacity < 1) {
+            throw new Exception("Invalid value for stage queue capacity: " + stageQueueCapacity);
+        }
+    }
+
+    public boolean isPipelined() {
+        return pipelined;
+    }
+
+    /**
+     * Process pages in three stages connected by bounded queues: fetching, parsing, and
+     * scheduling the outgoing links. Each stage runs on its own pool, so slow network
+     * reads and expensive parses do not hold each other up, and both can be sized
+     * independently. Crawler threads then only claim URLs from the frontier.
+     *
+     * The callbacks of a crawler are invoked from the stage handling the page:
+     * fetch and redirect callbacks from the fetch stage, {@code onParseError} from the
+     * parse stage, {@code shouldVisit} and {@code visit} from the link stage. As the
+     * pages of a crawler go through the stages concurrently, these callbacks must be
+     * thread safe.
+     *
+     * @param pipelined {@code true} to process pages in stages
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    public int getFetchThreads() {
+        return fetchThreads;
+    }
+
+    /**
+     * @param fetchThreads number of threads fetching pages
+     */
+    public void setFetchThreads(int fetchThreads) {
+        this.fetchThreads = fetchThreads;
+    }
+
+    public int getParseThreads() {
+        return parseThreads;
+    }
+
+    /**
+     * @param parseThreads number of threads parsing pages, by default the number of processors
+     */
+    public void setParseThreads(int parseThreads) {
+        this.parseThreads = parseThreads;
+    }
+
+    public int getLinkThreads() {
+        return linkThreads;
+    }
+
+    /**
+     * @param linkThreads number of threads scheduling outgoing links and visiting pages
+     */
+    public void setLinkThreads(int linkThreads) {
+        this.linkThreads = linkThreads;
+    }
+
+    public int getStageQueueCapacity() {
+        return stageQueueCapacity;
+    }
+
+    /**
+     * @param stageQueueCapacity number of pages waiting for each stage, beyond which the
+     *                           previous stage blocks
+     */
+    public void setStageQueueCapacity(int stageQueueCapacity) {
+        this.stageQueueCapacity = stageQueueCapacity;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Pipelined: " + isPipelined() + "\n");
+        sb.append("Pipeline fetch threads: " + getFetchThreads() + "\n");
+        sb.append("Pipeline parse threads: " + getParseThreads() + "\n");
+        sb.append("Pipeline link threads: " + getLinkThreads() + "\n");
+        sb.append("Pipeline stage queue capacity: " + getStageQueueCapacity() + "\n");
+        return sb.toString();
+    }
+}
@@ -22,7 +22,15 @@ import java.net.SocketTimeoutException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpStatus;
 import org.apache.http.impl.EnglishReasonPhraseCatalog;
 import org.slf4j.Logger;
@@ -31,14 +39,22 @@ import org.slf4j.LoggerFactory;
 import edu.uci.ics.crawler4j.crawler.exceptions.ContentFetchException;
 import edu.uci.ics.crawler4j.crawler.exceptions.PageBiggerThanMaxSizeException;
 import edu.uci.ics.crawler4j.crawler.exceptions.ParseException;
+import edu.uci.ics.crawler4j.dedup.DuplicateConfig;
+import edu.uci.ics.crawler4j.dedup.DuplicateContent;
+import edu.uci.ics.crawler4j.dedup.DuplicateDetector;
+import edu.uci.ics.crawler4j.fetcher.AsyncPageFetcher;
 import edu.uci.ics.crawler4j.fetcher.PageFetchResult;
 import edu.uci.ics.crawler4j.fetcher.PageFetcher;
+import edu.uci.ics.crawler4j.frontier.CrawlTrapFilter;
 import edu.uci.ics.crawler4j.frontier.DocIDServer;
 import edu.uci.ics.crawler4j.frontier.Frontier;
+import edu.uci.ics.crawler4j.frontier.ValidatorsDB;
 import edu.uci.ics.crawler4j.parser.HtmlParseData;
 import edu.uci.ics.crawler4j.parser.NotAllowedContentException;
 import edu.uci.ics.crawler4j.parser.ParseData;
 import edu.uci.ics.crawler4j.parser.Parser;
+import edu.uci.ics.crawler4j.parser.ParserConfig;
+import edu.uci.ics.crawler4j.recrawl.RevisitScheduler;
 import edu.uci.ics.crawler4j.robotstxt.RobotstxtServer;
 import edu.uci.ics.crawler4j.url.WebURL;
 
@@ -66,7 +82,7 @@ public class WebCrawler implements Runnable {
     /**
      * The thread within which this crawler instance is running.
      */
-    private Thread myThread;
+    private volatile Thread myThread;
 
     /**
      * The parser that is used by this crawler instance to parse the content of the fetched pages.
@@ -94,18 +110,43 @@ public class WebCrawler implements Runnable {
      */
     private Frontier frontier;
 
+    /**
+     * The validators of the fetched pages, or null if pages are not requested conditionally.
+     */
+    private ValidatorsDB validatorsDB;
+
+    /**
+     * The scheduler of the revisits, or null if the crawl is not continuous.
+     */
+    private RevisitScheduler revisitScheduler;
+
+    /**
+     * The detector of duplicate pages, or null if duplicates are not detected.
+     */
+    private DuplicateDetector duplicateDetector;
+
+    /**
+     * The filter of links into crawl traps, or null if no limit is set.
+     */
+    private CrawlTrapFilter crawlTrapFilter;
+
     /**
      * Is the current crawler instance waiting for new URLs? This field is
      * mainly used by the controller to detect whether all of the crawler
      * instances are waiting for new URLs and therefore there is no more work
      * and crawling can be stopped.
      */
-    private boolean isWaitingForNewURLs;
+    private volatile boolean isWaitingForNewURLs;
 
-    private Throwable error;
+    private volatile Throwable error;
 
     private int batchReadSize;
 
+    /**
+     * Number of pages claimed by this crawler which are still in the pipeline.
+     */
+    private final AtomicInteger pipelinedPages = new AtomicInteger();
+
     /**
      * Initializes the current instance of the crawler
      *
@@ -123,6 +164,10 @@ public class WebCrawler implements Runnable {
         this.robotstxtServer = crawlController.getRobotstxtServer();
         this.docIdServer = crawlController.getDocIdServer();
         this.frontier = crawlController.getFrontier();
+        this.validatorsDB = crawlController.getValidatorsDB();
+        this.revisitScheduler = crawlController.getRevisitScheduler();
+        this.duplicateDetector = crawlController.getDuplicateDetector();
+        this.crawlTrapFilter = crawlController.getCrawlTrapFilter();
         this.parser = crawlController.getParser();
         this.myController = crawlController;
         this.isWaitingForNewURLs = false;
@@ -216,6 +261,35 @@ public class WebCrawler implements Runnable {
             page.url.getURL());
     }
 
+    /**
+     * This function is called if a page requested conditionally did not change since it was
+     * last fetched, and the server answered with 304 Not Modified. Such a page has no content
+     * and is neither parsed nor visited.
+     *
+     * @param page Partial page object, with the status code and the response headers
+     * @see CrawlConfig#setConditionalGet(boolean)
+     */
+    protected void onPageNotModified(Page page) {
+        logger.debug("Page not modified since it was last fetched: {}", page.getWebURL().getURL());
+        // Subclasses can override this to add their custom functionality
+    }
+
+    /**
+     * This function is called instead of {@link #visit(Page)} for a page whose text is the
+     * same as, or nearly the same as, the text of a page seen before. The links of the page
+     * are followed unless {@link DuplicateConfig#setFollowLinksOfDuplicates(boolean)} is
+     * disabled.
+     *
+     * @param page the parsed duplicate page
+     * @param duplicate the page seen before with this content
+     * @see DuplicateConfig#setDuplicateDetection(boolean)
+     */
+    protected void onDuplicateContent(Page page, DuplicateContent duplicate) {
+        logger.debug("Not visiting: {} as its content duplicates page {}", page.getWebURL().getURL(),
+                     duplicate.getOriginalDocid());
+        // Subclasses can override this to add their custom functionality
+    }
+
     /**
      * This function is called if the crawler encountered an unexpected http status code ( a
      * status code other than 3xx)
@@ -311,9 +385,11 @@ public class WebCrawler implements Runnable {
 
     @Override
     public void run() {
+        myThread = Thread.currentThread();
         try {
             onStart();
             setError(null);
+            CrawlPipeline pipeline = myController.getPipeline();
             boolean halt = false;
             while (!halt) {
                 List<WebURL> assignedURLs = new ArrayList<>(batchReadSize);
@@ -329,17 +405,35 @@ public class WebCrawler implements Runnable {
                     } catch (InterruptedException e) {
                         logger.error("Error occurred", e);
                     }
-                } else {
+                } else if (pipeline != null) {
                     for (WebURL curURL : assignedURLs) {
                         if (myController.isShuttingDown()) {
                             logger.info("Exiting because of controller shutdown.");
                             return;
                         }
                         if (curURL != null) {
-                            curURL = handleUrlBeforeProcess(curURL);
-                            processPage(curURL);
-                            frontier.setProcessed(curURL);
+                            pipeline.submit(this, handleUrlBeforeProcess(curURL));
+                        }
+                    }
+                } else {
+                    List<CompletableFuture<PageFetchResult>> fetches = fetchAllAsync(assignedURLs);
+                    try {
+                        for (int i = 0; i < assignedURLs.size(); i++) {
+                            if (myController.isShuttingDown()) {
+                                logger.info("Exiting because of controller shutdown.");
+                                return;
+                            }
+                            WebURL curURL = assignedURLs.get(i);
+                            if (curURL != null) {
+                                if (fetches == null) {
+                                    curURL = handleUrlBeforeProcess(curURL);
+                                }
+                                processPage(curURL, fetches == null ? null : fetches.get(i));
+                                frontier.setProcessed(curURL);
+                            }
                         }
+                    } finally {
+                        cancelAll(fetches);
                     }
                 }
                 if (myController.getConfig().isHaltOnError() && myController.getError() != null) {
@@ -352,6 +446,62 @@ public class WebCrawler implements Runnable {
         }
     }
 
+    /*
+     * With an AsyncPageFetcher, the whole batch is sent at once so that the
+     * politeness delays and network waits of its urls overlap. The pages are then
+     * processed in order as their responses arrive. Returns null otherwise.
+     */
+    private List<CompletableFuture<PageFetchResult>> fetchAllAsync(List<WebURL> assignedURLs) {
+        if (!(pageFetcher instanceof AsyncPageFetcher)) {
+            return null;
+        }
+        List<CompletableFuture<PageFetchResult>> fetches = new ArrayList<>(assignedURLs.size());
+        for (int i = 0; i < assignedURLs.size(); i++) {
+            WebURL curURL = assignedURLs.get(i);
+            if (curURL == null) {
+                fetches.add(null);
+            } else {
+                curURL = handleUrlBeforeProcess(curURL);
+                assignedURLs.set(i, curURL);
+                fetches.add(((AsyncPageFetcher) pageFetcher).fetchPageAsync(curURL));
+            }
+        }
+        return fetches;
+    }
+
+    /*
+     * Drops the requests of a batch which was not processed to the end, and the
+     * content of the responses which were not consumed.
+     */
+    private static void cancelAll(List<CompletableFuture<PageFetchResult>> fetches) {
+        if (fetches != null) {
+            for (CompletableFuture<PageFetchResult> fetch : fetches) {
+                if ((fetch != null) && !fetch.cancel(false) && !fetch.isCompletedExceptionally()) {
+                    fetch.join().discardContentIfNotConsumed();
+                }
+            }
+        }
+    }
+
+    private static PageFetchResult awaitFetch(CompletableFuture<PageFetchResult> fetch)
+        throws IOException, InterruptedException, PageBiggerThanMaxSizeException, ContentFetchException {
+        try {
+            return fetch.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof PageBiggerThanMaxSizeException) {
+                throw (PageBiggerThanMaxSizeException) cause;
+            } else if (cause instanceof ContentFetchException) {
+                throw (ContentFetchException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
     /**
      * Classes that extends WebCrawler should overwrite this function to tell the
      * crawler whether the given url should be crawled or not. The following
@@ -410,15 +560,36 @@ public class WebCrawler implements Runnable {
         // Sub-classed should override this to add their custom functionality
     }
 
-    private void processPage(WebURL curURL) throws IOException, InterruptedException, ParseException {
-        PageFetchResult fetchResult = null;
-        Page page = new Page(curURL);
+    private void processPage(WebURL curURL, CompletableFuture<PageFetchResult> pendingFetch)
+        throws ParseException {
+        if (curURL == null) {
+            return;
+        }
+        Page page = fetchPage(curURL, pendingFetch);
+        if (page == null) {
+            return;
+        }
         try {
-            if (curURL == null) {
-                return;
+            if (parsePage(page)) {
+                followLinksAndVisit(page);
             }
+        } finally {
+            page.releaseContent();
+        }
+    }
 
-            fetchResult = pageFetcher.fetchPage(curURL);
+    /**
+     * Fetches the given url and loads its content. Redirects and unexpected status
+     * codes are handled here.
+     *
+     * @return the page if its content was loaded and it should be parsed, null otherwise
+     */
+    Page fetchPage(WebURL curURL, CompletableFuture<PageFetchResult> pendingFetch) throws ParseException {
+        PageFetchResult fetchResult = null;
+        Page page = new Page(curURL);
+        page.setContentBufferPool(myController.getContentBufferPool());
+        try {
+            fetchResult = (pendingFetch == null) ? pageFetcher.fetchPage(curURL) : awaitFetch(pendingFetch);
             int statusCode = fetchResult.getStatusCode();
             handlePageStatusCode(curURL, statusCode,
                                  EnglishReasonPhraseCatalog.INSTANCE.getReason(statusCode,
@@ -442,7 +613,7 @@ public class WebCrawler implements Runnable {
                     String movedToUrl = fetchResult.getMovedToUrl();
                     if (movedToUrl == null) {
                         onRedirectedToInvalidUrl(page);
-                        return;
+                        return null;
                     }
                     page.setRedirectedToUrl(movedToUrl);
                     onRedirectedStatusCode(page);
@@ -451,7 +622,7 @@ public class WebCrawler implements Runnable {
                         int newDocId = docIdServer.getDocId(movedToUrl);
                         if (newDocId > 0) {
                             logger.debug("Redirect page: {} is already seen", curURL);
-                            return;
+                            return null;
                         }
 
                         WebURL webURL = new WebURL();
@@ -476,6 +647,11 @@ public class WebCrawler implements Runnable {
                                          webURL.getURL());
                         }
                     }
+                } else if (statusCode == HttpStatus.SC_NOT_MODIFIED) {
+                    if (revisitScheduler != null) {
+                        revisitScheduler.onNotModified(curURL);
+                    }
+                    onPageNotModified(page);
                 } else { // All other http codes other than 3xx & 200
                     String description =
                         EnglishReasonPhraseCatalog.INSTANCE.getReason(fetchResult.getStatusCode(),
@@ -487,100 +663,207 @@ public class WebCrawler implements Runnable {
                     onUnexpectedStatusCode(curURL.getURL(), fetchResult.getStatusCode(),
                                            contentType, description);
                 }
+                return null;
+            }
 
-            } else { // if status code is 200
-                if (!curURL.getURL().equals(fetchResult.getFetchedUrl())) {
-                    if (docIdServer.isSeenBefore(fetchResult.getFetchedUrl())) {
-                        logger.debug("Redirect page: {} has already been seen", curURL);
-                        return;
-                    }
-                    curURL.setURL(fetchResult.getFetchedUrl());
-                    curURL.setDocid(docIdServer.getNewDocID(fetchResult.getFetchedUrl()));
+            // if status code is 200
+            if (!curURL.getURL().equals(fetchResult.getFetchedUrl())) {
+                if (docIdServer.isSeenBefore(fetchResult.getFetchedUrl())) {
+                    logger.debug("Redirect page: {} has already been seen", curURL);
+                    return null;
                 }
+                curURL.setURL(fetchResult.getFetchedUrl());
+                curURL.setDocid(docIdServer.getNewDocID(fetchResult.getFetchedUrl()));
+            }
 
-                if (!fetchResult.fetchContent(page,
-                                              myController.getConfig().getMaxDownloadSize())) {
+            ParserConfig parserConfig = myController.getConfig().getParserConfig();
+            int maxDownloadSize = myController.getConfig().getMaxDownloadSize();
+            if (parserConfig.isStreamingParse() && isStreamable(fetchResult)) {
+                if (!fetchResult.parseContent(page, maxDownloadSize, parserConfig.isRetainStreamedContent(),
+                                              parser)) {
                     throw new ContentFetchException();
                 }
+            } else if (!fetchResult.fetchContent(page, maxDownloadSize)) {
+                throw new ContentFetchException();
+            }
 
-                if (page.isTruncated()) {
-                    logger.warn(
-                        "Warning: unknown page size exceeded max-download-size, truncated to: " +
-                        "({}), at URL: {}",
-                        myController.getConfig().getMaxDownloadSize(), curURL.getURL());
-                }
+            if (page.isTruncated()) {
+                logger.warn(
+                    "Warning: unknown page size exceeded max-download-size, truncated to: " +
+                    "({}), at URL: {}",
+                    myController.getConfig().getMaxDownloadSize(), curURL.getURL());
+            } else if (validatorsDB != null) {
+                validatorsDB.put(curURL.getDocid(), getHeaderValue(fetchResult, HttpHeaders.ETAG),
+                                 getHeaderValue(fetchResult, HttpHeaders.LAST_MODIFIED));
+            }
+            if (revisitScheduler != null) {
+                revisitScheduler.onFetched(page);
+            }
+            return page;
+        } catch (Exception e) {
+            try {
+                onProcessingException(page, e);
+            } finally {
+                // The content may already be loaded, as when recording its validators fails
+                page.releaseContent();
+            }
+            return null;
+        } finally {
+            if (fetchResult != null) {
+                fetchResult.discardContentIfNotConsumed();
+            }
+        }
+    }
 
-                parser.parse(page, curURL.getURL());
-
-                if (shouldFollowLinksIn(page.getWebURL())) {
-                    ParseData parseData = page.getParseData();
-                    List<WebURL> toSchedule = new ArrayList<>();
-                    int maxCrawlDepth = myController.getConfig().getMaxDepthOfCrawling();
-                    for (WebURL webURL : parseData.getOutgoingUrls()) {
-                        webURL.setParentDocid(curURL.getDocid());
-                        webURL.setParentUrl(curURL.getURL());
-                        int newdocid = docIdServer.getDocId(webURL.getURL());
-                        if (newdocid > 0) {
-                            // This is not the first time that this Url is visited. So, we set the
-                            // depth to a negative number.
-                            webURL.setDepth((short) -1);
-                            webURL.setDocid(newdocid);
-                        } else {
-                            webURL.setDocid(-1);
-                            webURL.setDepth((short) (curURL.getDepth() + 1));
-                            if ((maxCrawlDepth == -1) || (curURL.getDepth() < maxCrawlDepth)) {
-                                if (shouldVisit(page, webURL)) {
-                                    if (robotstxtServer.allows(webURL)) {
-                                        webURL.setDocid(docIdServer.getNewDocID(webURL.getURL()));
+    private static String getHeaderValue(PageFetchResult fetchResult, String name) {
+        for (Header header : fetchResult.getResponseHeaders()) {
+            if (header.getName().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    private boolean isStreamable(PageFetchResult fetchResult) {
+        HttpEntity entity = fetchResult.getEntity();
+        if ((entity == null) || (entity.getContentType() == null)) {
+            return false;
+        }
+        return parser.isStreamable(entity.getContentType().getValue());
+    }
+
+    /**
+     * Parses the content of a fetched page, unless it was already parsed while it was
+     * downloaded.
+     *
+     * @return true if the page was parsed and its links and content should be processed
+     */
+    boolean parsePage(Page page) throws ParseException {
+        try {
+            if (page.getParseData() == null) {
+                parser.parse(page, page.getWebURL().getURL());
+            }
+            return true;
+        } catch (Exception e) {
+            onProcessingException(page, e);
+            return false;
+        }
+    }
+
+    /**
+     * Schedules the outgoing links of a parsed page, and hands the page to {@link #visit(Page)},
+     * or to {@link #onDuplicateContent(Page, DuplicateContent)} if it duplicates a page seen before.
+     */
+    void followLinksAndVisit(Page page) throws ParseException {
+        WebURL curURL = page.getWebURL();
+        try {
+            DuplicateContent duplicate = (duplicateDetector == null) ? null : duplicateDetector.check(page);
+            boolean skipLinks = (duplicate != null) &&
+                                !myController.getConfig().getDuplicateConfig().isFollowLinksOfDuplicates();
+            if (skipLinks) {
+                logger.debug("Not looking for links in duplicate page {}", curURL.getURL());
+            } else if (shouldFollowLinksIn(curURL)) {
+                ParseData parseData = page.getParseData();
+                Set<WebURL> outgoingUrls = parseData.getOutgoingUrls();
+                List<String> urls = new ArrayList<>(outgoingUrls.size());
+                for (WebURL webURL : outgoingUrls) {
+                    urls.add(webURL.getURL());
+                }
+                Map<String, Integer> seenDocIds = docIdServer.getDocIds(urls);
+
+                List<WebURL> toSchedule = new ArrayList<>();
+                int maxCrawlDepth = myController.getConfig().getMaxDepthOfCrawling();
+                for (WebURL webURL : outgoingUrls) {
+                    webURL.setParentDocid(curURL.getDocid());
+                    webURL.setParentUrl(curURL.getURL());
+                    Integer newdocid = seenDocIds.get(webURL.getURL());
+                    if (newdocid != null) {
+                        // This is not the first time that this Url is visited. So, we set the
+                        // depth to a negative number.
+                        webURL.setDepth((short) -1);
+                        webURL.setDocid(newdocid);
+                    } else {
+                        webURL.setDocid(-1);
+                        webURL.setDepth((short) (curURL.getDepth() + 1));
+                        if ((maxCrawlDepth == -1) || (curURL.getDepth() < maxCrawlDepth)) {
+                            if (shouldVisit(page, webURL)) {
+                                if (robotstxtServer.allows(webURL)) {
+                                    CrawlTrapFilter.Trap trap =
+                                        (crawlTrapFilter == null) ? null : crawlTrapFilter.check(webURL);
+                                    if (trap == null) {
                                         toSchedule.add(webURL);
                                     } else {
-                                        logger.debug(
-                                            "Not visiting: {} as per the server's \"robots.txt\" " +
-                                            "policy", webURL.getURL());
+                                        logger.debug("Not visiting: {} as it looks like a crawl trap ({})",
+                                                     webURL.getURL(), trap);
                                     }
                                 } else {
                                     logger.debug(
-                                        "Not visiting: {} as per your \"shouldVisit\" policy",
-                                        webURL.getURL());
+                                        "Not visiting: {} as per the server's \"robots.txt\" " +
+                                        "policy", webURL.getURL());
                                 }
+                            } else {
+                                logger.debug(
+                                    "Not visiting: {} as per your \"shouldVisit\" policy",
+                                    webURL.getURL());
                             }
                         }
                     }
-                    frontier.scheduleAll(toSchedule);
-                } else {
-                    logger.debug("Not looking for links in page {}, "
-                                 + "as per your \"shouldFollowLinksInPage\" policy",
-                                 page.getWebURL().getURL());
                 }
 
-                boolean noIndex = myController.getConfig().isRespectNoIndex() &&
-                    page.getContentType() != null &&
-                    page.getContentType().contains("html") &&
-                    ((HtmlParseData)page.getParseData())
-                        .getMetaTagValue("robots").
-                        contains("noindex");
-
-                if (!noIndex) {
-                    visit(page);
+                if (!toSchedule.isEmpty()) {
+                    urls.clear();
+                    for (WebURL webURL : toSchedule) {
+                        urls.add(webURL.getURL());
+                    }
+                    Map<String, Integer> newDocIds = docIdServer.resolveOrAssign(urls);
+                    // Urls without a docid, as when the whole batch failed, cannot be scheduled
+                    toSchedule.removeIf(webURL -> {
+                        webURL.setDocid(newDocIds.get(webURL.getURL()));
+                        return webURL.getDocid() <= 0;
+                    });
                 }
+                frontier.scheduleAll(toSchedule);
+            } else {
+                logger.debug("Not looking for links in page {}, "
+                             + "as per your \"shouldFollowLinksInPage\" policy",
+                             curURL.getURL());
             }
-        } catch (PageBiggerThanMaxSizeException e) {
-            onPageBiggerThanMaxSize(curURL.getURL(), e.getPageSize());
-        } catch (ParseException pe) {
-            onParseError(curURL, pe);
-        } catch (ContentFetchException | SocketTimeoutException cfe) {
+
+            boolean noIndex = myController.getConfig().isRespectNoIndex() &&
+                page.getContentType() != null &&
+                page.getContentType().contains("html") &&
+                ((HtmlParseData)page.getParseData())
+                    .getMetaTagValue("robots").
+                    contains("noindex");
+
+            if (duplicate != null) {
+                onDuplicateContent(page, duplicate);
+            } else if (!noIndex) {
+                visit(page);
+            }
+        } catch (Exception e) {
+            onProcessingException(page, e);
+        }
+    }
+
+    /*
+     * Hands an exception thrown while processing a page to the matching callback.
+     */
+    private void onProcessingException(Page page, Exception e) throws ParseException {
+        WebURL curURL = page.getWebURL();
+        if (e instanceof PageBiggerThanMaxSizeException) {
+            onPageBiggerThanMaxSize(curURL.getURL(), ((PageBiggerThanMaxSizeException) e).getPageSize());
+        } else if (e instanceof ParseException) {
+            onParseError(curURL, (ParseException) e);
+        } else if ((e instanceof ContentFetchException) || (e instanceof SocketTimeoutException)) {
             onContentFetchError(curURL);
             onContentFetchError(page);
-        } catch (NotAllowedContentException nace) {
+        } else if (e instanceof NotAllowedContentException) {
             logger.debug(
                 "Skipping: {} as it contains binary content which you configured not to crawl",
                 curURL.getURL());
-        } catch (IOException | InterruptedException | RuntimeException e) {
+        } else {
             onUnhandledException(curURL, e);
-        } finally {
-            if (fetchResult != null) {
-                fetchResult.discardContentIfNotConsumed();
-            }
         }
     }
 
@@ -593,14 +876,32 @@ public class WebCrawler implements Runnable {
     }
 
     public boolean isNotWaitingForNewURLs() {
-        return !isWaitingForNewURLs;
+        return !isWaitingForNewURLs || (pipelinedPages.get() > 0);
+    }
+
+    void onPageEnteredPipeline() {
+        pipelinedPages.incrementAndGet();
+    }
+
+    /*
+     * Pages which were not processed, because the crawl is shutting down, stay in
+     * process so that a resumable crawl fetches them again.
+     */
+    void onPageLeftPipeline(WebURL curURL, boolean processed) {
+        try {
+            if (processed) {
+                frontier.setProcessed(curURL);
+            }
+        } finally {
+            pipelinedPages.decrementAndGet();
+        }
     }
 
-    protected synchronized Throwable getError() {
+    protected Throwable getError() {
         return error;
     }
 
-    private synchronized void setError(Throwable error) {
+    void setError(Throwable error) {
         this.error = error;
     }
 }
@@ -0,0 +1,132 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.dedup;
+
+import edu.uci.ics.crawler4j.crawler.CrawlConfig;
+
+/**
+ * Settings of the {@link DuplicateDetector}, available through {@link CrawlConfig#getDuplicateConfig()}.
+ */
+public class DuplicateConfig {
+
+    /**
+     * Should pages whose text was already seen on another page be handed to
+     * onDuplicateContent instead of visit?
+     */
+    private boolean duplicateDetection = false;
+
+    /**
+     * Should pages whose text is nearly the same as the text of another page also be
+     * detected, or only pages with the same text?
+     */
+    private boolean nearDuplicateDetection = true;
+
+    /**
+     * Maximum number of bits by which the SimHash fingerprints of near duplicates differ.
+     */
+    private int maxHammingDistance = 3;
+
+    /**
+     * Should the links of duplicate pages be followed?
+     */
+    private boolean followLinksOfDuplicates = true;
+
+    /**
+     * Validates the configs specified by this instance.
+     *
+     * @throws Exception on Validation fail
+     */
+    public void validate() throws Exception {
+        if ((maxHammingDistance < 0) || (maxHammingDistance > DuplicateDetector.MAX_HAMMING_DISTANCE)) {
+            throw new Exception("Invalid value for maximum Hamming distance: " + maxHammingDistance +
+                                ". It should be between 0 and " + DuplicateDetector.MAX_HAMMING_DISTANCE);
+        }
+    }
+
+    public boolean isDuplicateDetection() {
+        return duplicateDetection;
+    }
+
+    /**
+     * When enabled, the text of each parsed page is fingerprinted before the page is
+     * visited. A page with the same text as a page visited before, such as a mirror or
+     * the same page under another session id, or with nearly the same text, such as a
+     * print view, is handed to {@link edu.uci.ics.crawler4j.crawler.WebCrawler#onDuplicateContent}
+     * instead of being visited. The fingerprints are kept next to the docids, across
+     * crawls when crawling is resumable.
+     *
+     * @param duplicateDetection true to detect duplicate pages
+     */
+    public void setDuplicateDetection(boolean duplicateDetection) {
+        this.duplicateDetection = duplicateDetection;
+    }
+
+    public boolean isNearDuplicateDetection() {
+        return nearDuplicateDetection;
+    }
+
+    /**
+     * @param nearDuplicateDetection true to also detect pages whose text nearly matches the
+     *                               text of another page, by comparing SimHash fingerprints
+     *                               of their word shingles. Pages with very little text are
+     *                               only compared exactly.
+     */
+    public void setNearDuplicateDetection(boolean nearDuplicateDetection) {
+        this.nearDuplicateDetection = nearDuplicateDetection;
+    }
+
+    public int getMaxHammingDistance() {
+        return maxHammingDistance;
+    }
+
+    /**
+     * The fingerprints are indexed according to this distance, so it should not change
+     * between the runs of a resumable crawl. They are split into distance + 1 blocks, and
+     * each lookup compares the fingerprints sharing one of these blocks: with the 16 bit
+     * blocks of distance 3, about 4 in 65536 of the indexed pages.
+     *
+     * @param maxHammingDistance maximum number of bits, between 0 and 3, by which the 64 bit
+     *                           SimHash fingerprints of two near duplicates differ, 3 by default
+     */
+    public void setMaxHammingDistance(int maxHammingDistance) {
+        this.maxHammingDistance = maxHammingDistance;
+    }
+
+    public boolean isFollowLinksOfDuplicates() {
+        return followLinksOfDuplicates;
+    }
+
+    /**
+     * @param followLinksOfDuplicates false to skip the link extraction of duplicate pages, so
+     *                                that crawl traps which serve the same page under ever new
+     *                                urls stop growing the frontier
+     */
+    public void setFollowLinksOfDuplicates(boolean followLinksOfDuplicates) {
+        this.followLinksOfDuplicates = followLinksOfDuplicates;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Duplicate detection: " + isDuplicateDetection() + "\n");
+        sb.append("Near duplicate detection: " + isNearDuplicateDetection() + " (max Hamming distance " +
+                  getMaxHammingDistance() + ")\n");
+        sb.append("Follow links of duplicates: " + isFollowLinksOfDuplicates() + "\n");
+        return sb.toString();
+    }
+}
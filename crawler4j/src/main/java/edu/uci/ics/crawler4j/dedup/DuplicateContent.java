@@ -0,0 +1,61 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.dedup;
+
+/**
+ * Tells which page a duplicate page duplicates.
+ */
+public class DuplicateContent {
+    private final int originalDocid;
+    private final boolean exact;
+    private final int distance;
+
+    public DuplicateContent(int originalDocid, boolean exact, int distance) {
+        this.originalDocid = originalDocid;
+        this.exact = exact;
+        this.distance = distance;
+    }
+
+    /**
+     * @return the docid of the page seen first with this content
+     */
+    public int getOriginalDocid() {
+        return originalDocid;
+    }
+
+    /**
+     * @return true if the text of both pages is the same
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * @return the number of bits by which the SimHash fingerprints of both pages differ,
+     * always 0 for exact duplicates
+     */
+    public int getDistance() {
+        return distance;
+    }
+
+    @Override
+    public String toString() {
+        return "DuplicateContent{originalDocid=" + originalDocid + ", exact=" + exact + ", distance=" + distance +
+               "}";
+    }
+}
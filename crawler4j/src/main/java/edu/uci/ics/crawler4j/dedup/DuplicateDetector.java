@@ -0,0 +1,369 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.dedup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.sleepycat.bind.tuple.TupleInput;
+import com.sleepycat.bind.tuple.TupleOutput;
+import com.sleepycat.je.Cursor;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseConfig;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.OperationStatus;
+import com.sleepycat.je.Transaction;
+
+import edu.uci.ics.crawler4j.crawler.CrawlConfig;
+import edu.uci.ics.crawler4j.crawler.Page;
+import edu.uci.ics.crawler4j.parser.HtmlParseData;
+import edu.uci.ics.crawler4j.parser.ParseData;
+import edu.uci.ics.crawler4j.parser.TextParseData;
+import edu.uci.ics.crawler4j.util.Util;
+
+/**
+ * Detects pages whose text was already seen on another page. The text of each page is
+ * fingerprinted twice: with a hash of its words, which finds exact duplicates, and with
+ * a SimHash of its word shingles, which finds near duplicates whose fingerprints differ
+ * by at most {@link DuplicateConfig#getMaxHammingDistance()} bits.
+ *
+ * The SimHash fingerprints are split into one more block than this distance, so that any
+ * two near duplicates have at least one block in common. They are indexed by block, and
+ * a lookup only compares the fingerprints which share a block with the page. With blocks
+ * of b bits, a lookup among n indexed pages compares about (64 / b) * n / 2^b fingerprints,
+ * which is why the distance is at most {@link #MAX_HAMMING_DISTANCE}.
+ *
+ * Duplicates are not indexed, only the first page with a given text is. The fingerprints
+ * of a page fetched again replace its previous fingerprints.
+ */
+public class DuplicateDetector {
+    private static final Logger logger = LoggerFactory.getLogger(DuplicateDetector.class);
+
+    /**
+     * The largest supported distance, for which blocks are 16 bits wide. Narrower blocks
+     * would match a growing share of the index on each lookup.
+     */
+    static final int MAX_HAMMING_DISTANCE = 3;
+
+    private static final String HASHES_DATABASE_NAME = "ContentHashes";
+    private static final String SIMHASHES_DATABASE_NAME = "ContentSimHashes";
+    private static final String FINGERPRINTS_DATABASE_NAME = "ContentFingerprints";
+
+    /**
+     * Length of the block number and block value which start the keys of the SimHash index.
+     */
+    private static final int BLOCK_PREFIX_LENGTH = 9;
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int SHINGLE_SIZE = 3;
+
+    /**
+     * Pages with fewer words are only compared exactly, as a few shared words would make
+     * their SimHash fingerprints close.
+     */
+    static final int MIN_WORDS_FOR_SIMHASH = 20;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final Environment env;
+    private final CrawlConfig config;
+
+    /**
+     * Keyed by the hash of the text of a page, holds its docid.
+     */
+    private final Database hashesDB;
+
+    /**
+     * Keyed by block number, block value and docid, holds the SimHash of a page.
+     */
+    private final Database simHashesDB;
+
+    /**
+     * Keyed by docid, holds the fingerprints of a page, so that they can be replaced.
+     */
+    private final Database fingerprintsDB;
+
+    private final Object mutex = new Object();
+
+    public DuplicateDetector(Environment env, CrawlConfig config) {
+        this.env = env;
+        this.config = config;
+        hashesDB = openDatabase(HASHES_DATABASE_NAME);
+        simHashesDB = openDatabase(SIMHASHES_DATABASE_NAME);
+        fingerprintsDB = openDatabase(FINGERPRINTS_DATABASE_NAME);
+    }
+
+    private Database openDatabase(String dbName) {
+        DatabaseConfig dbConfig = new DatabaseConfig();
+        dbConfig.setAllowCreate(true);
+        dbConfig.setTransactional(config.isResumableCrawling());
+        dbConfig.setDeferredWrite(!config.isResumableCrawling());
+        return env.openDatabase(null, dbName, dbConfig);
+    }
+
+    /**
+     * The fingerprints of the text of a page.
+     */
+    static class Fingerprint {
+        final long hash;
+        final boolean hasSimHash;
+        final long simHash;
+
+        Fingerprint(long hash, boolean hasSimHash, long simHash) {
+            this.hash = hash;
+            this.hasSimHash = hasSimHash;
+            this.simHash = simHash;
+        }
+    }
+
+    /**
+     * Looks for a page seen before with the same, or nearly the same, text as the given
+     * parsed page. If there is none, the page is indexed.
+     *
+     * @param page a parsed page
+     * @return the page duplicated by the given page, or null if the page is not a duplicate
+     */
+    public DuplicateContent check(Page page) {
+        Fingerprint fingerprint = fingerprint(page);
+        if (fingerprint == null) {
+            return null;
+        }
+        int docId = page.getWebURL().getDocid();
+        synchronized (mutex) {
+            Transaction txn = beginTransaction();
+            try {
+                DuplicateContent duplicate = find(txn, docId, fingerprint);
+                if (duplicate == null) {
+                    index(txn, docId, fingerprint);
+                }
+                commit(txn);
+                txn = null;
+                return duplicate;
+            } finally {
+                if (txn != null) {
+                    txn.abort();
+                }
+            }
+        }
+    }
+
+    private DuplicateContent find(Transaction txn, int docId, Fingerprint fingerprint) {
+        DatabaseEntry value = new DatabaseEntry();
+        if (hashesDB.get(txn, hashKey(fingerprint.hash), value, null) == OperationStatus.SUCCESS) {
+            int originalDocId = Util.byteArray2Int(value.getData());
+            if (originalDocId != docId) {
+                return new DuplicateContent(originalDocId, true, 0);
+            }
+        }
+        if (!fingerprint.hasSimHash) {
+            return null;
+        }
+        int maxDistance = config.getDuplicateConfig().getMaxHammingDistance();
+        int bestDocId = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        DatabaseEntry key = new DatabaseEntry();
+        try (Cursor cursor = simHashesDB.openCursor(txn, null)) {
+            for (int block = 0; block <= maxDistance; ++block) {
+                byte[] prefix = blockKey(fingerprint.simHash, block, Integer.MIN_VALUE);
+                key.setData(prefix);
+                OperationStatus status = cursor.getSearchKeyRange(key, value, null);
+                while ((status == OperationStatus.SUCCESS) && hasBlockPrefix(key, prefix)) {
+                    int candidateDocId = new TupleInput(key.getData(), key.getOffset() + BLOCK_PREFIX_LENGTH,
+                                                        4).readInt();
+                    int distance = Long.bitCount(new TupleInput(value.getData()).readLong() ^ fingerprint.simHash);
+                    if ((candidateDocId != docId) && (distance <= maxDistance) && (distance < bestDistance)) {
+                        bestDocId = candidateDocId;
+                        bestDistance = distance;
+                    }
+                    status = cursor.getNext(key, value, null);
+                }
+            }
+        }
+        return (bestDocId == -1) ? null : new DuplicateContent(bestDocId, false, bestDistance);
+    }
+
+    private void index(Transaction txn, int docId, Fingerprint fingerprint) {
+        DatabaseEntry value = new DatabaseEntry();
+        DatabaseEntry docIdKey = new DatabaseEntry(Util.int2ByteArray(docId));
+        if (fingerprintsDB.get(txn, docIdKey, value, null) == OperationStatus.SUCCESS) {
+            TupleInput input = new TupleInput(value.getData());
+            Fingerprint previous = new Fingerprint(input.readLong(), input.readBoolean(), input.readLong());
+            DatabaseEntry previousHashKey = hashKey(previous.hash);
+            if ((hashesDB.get(txn, previousHashKey, value, null) == OperationStatus.SUCCESS) &&
+                (Util.byteArray2Int(value.getData()) == docId)) {
+                hashesDB.delete(txn, previousHashKey);
+            }
+            if (previous.hasSimHash) {
+                for (int block = 0; block <= config.getDuplicateConfig().getMaxHammingDistance(); ++block) {
+                    simHashesDB.delete(txn, new DatabaseEntry(blockKey(previous.simHash, block, docId)));
+                }
+            }
+        }
+
+        hashesDB.put(txn, hashKey(fingerprint.hash), new DatabaseEntry(Util.int2ByteArray(docId)));
+        if (fingerprint.hasSimHash) {
+            DatabaseEntry simHash = new DatabaseEntry(new TupleOutput().writeLong(fingerprint.simHash).toByteArray());
+            for (int block = 0; block <= config.getDuplicateConfig().getMaxHammingDistance(); ++block) {
+                simHashesDB.put(txn, new DatabaseEntry(blockKey(fingerprint.simHash, block, docId)), simHash);
+            }
+        }
+        TupleOutput output = new TupleOutput();
+        output.writeLong(fingerprint.hash);
+        output.writeBoolean(fingerprint.hasSimHash);
+        output.writeLong(fingerprint.simHash);
+        fingerprintsDB.put(txn, docIdKey, new DatabaseEntry(output.toByteArray()));
+    }
+
+    private Transaction beginTransaction() {
+        return config.isResumableCrawling() ? env.beginTransaction(null, null) : null;
+    }
+
+    private static void commit(Transaction txn) {
+        if (txn != null) {
+            txn.commit();
+        }
+    }
+
+    private static DatabaseEntry hashKey(long hash) {
+        return new DatabaseEntry(new TupleOutput().writeLong(hash).toByteArray());
+    }
+
+    /*
+     * The key of a block is its number, its value and the docid of the page, so that the
+     * pages sharing a block are next to each other. Block i holds the bits from
+     * i * 64 / blocks up to (i + 1) * 64 / blocks.
+     */
+    private byte[] blockKey(long simHash, int block, int docId) {
+        int blocks = config.getDuplicateConfig().getMaxHammingDistance() + 1;
+        int from = block * 64 / blocks;
+        int to = (block + 1) * 64 / blocks;
+        long mask = (to - from == 64) ? -1L : ((1L << (to - from)) - 1);
+        TupleOutput output = new TupleOutput();
+        output.writeByte(block);
+        output.writeLong((simHash >>> from) & mask);
+        output.writeInt(docId);
+        return output.toByteArray();
+    }
+
+    private static boolean hasBlockPrefix(DatabaseEntry key, byte[] prefix) {
+        if (key.getSize() != prefix.length) {
+            return false;
+        }
+        byte[] data = key.getData();
+        for (int i = 0; i < BLOCK_PREFIX_LENGTH; ++i) {
+            if (data[key.getOffset() + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Pages whose text was not extracted, or which have no text, are compared by their
+     * content, exactly.
+     */
+    private Fingerprint fingerprint(Page page) {
+        List<String> words = words(getText(page.getParseData()));
+        if (words.isEmpty()) {
+            ByteBuffer content = page.getContentBuffer();
+            if (content == null) {
+                return null;
+            }
+            return new Fingerprint(HASH_FUNCTION.hashBytes(content).asLong(), false, 0);
+        }
+        Hasher hasher = HASH_FUNCTION.newHasher();
+        for (String word : words) {
+            hasher.putString(word, StandardCharsets.UTF_8).putByte((byte) 0);
+        }
+        boolean hasSimHash = config.getDuplicateConfig().isNearDuplicateDetection() &&
+                             (words.size() >= MIN_WORDS_FOR_SIMHASH);
+        return new Fingerprint(hasher.hash().asLong(), hasSimHash, hasSimHash ? simHash(words) : 0);
+    }
+
+    private static String getText(ParseData parseData) {
+        if (parseData instanceof HtmlParseData) {
+            return ((HtmlParseData) parseData).getText();
+        } else if (parseData instanceof TextParseData) {
+            return ((TextParseData) parseData).getTextContent();
+        }
+        return null;
+    }
+
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text != null) {
+            for (String word : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Computes the SimHash of the shingles of the given words: each bit of the result is
+     * the majority of this bit among the hashes of the shingles.
+     *
+     * @param words the words of a text
+     * @return the 64 bit SimHash fingerprint of the text
+     */
+    static long simHash(List<String> words) {
+        int[] weights = new int[64];
+        int shingles = Math.max(1, words.size() - SHINGLE_SIZE + 1);
+        for (int i = 0; i < shingles; ++i) {
+            Hasher hasher = HASH_FUNCTION.newHasher();
+            for (int j = i; j < Math.min(words.size(), i + SHINGLE_SIZE); ++j) {
+                hasher.putString(words.get(j), StandardCharsets.UTF_8).putByte((byte) 0);
+            }
+            long hash = hasher.hash().asLong();
+            for (int bit = 0; bit < 64; ++bit) {
+                weights[bit] += (((hash >>> bit) & 1) == 1) ? 1 : -1;
+            }
+        }
+        long simHash = 0;
+        for (int bit = 0; bit < 64; ++bit) {
+            if (weights[bit] > 0) {
+                simHash |= 1L << bit;
+            }
+        }
+        return simHash;
+    }
+
+    public void close() {
+        try {
+            hashesDB.close();
+            simHashesDB.close();
+            fingerprintsDB.close();
+        } catch (DatabaseException e) {
+            logger.error("Exception thrown while closing DuplicateDetector", e);
+        }
+    }
+}
@@ -0,0 +1,397 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.fetcher;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.security.KeyManagementException;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.entity.DeflateDecompressingEntity;
+import org.apache.http.client.entity.GzipDecompressingEntity;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.ssl.SSLContexts;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import edu.uci.ics.crawler4j.crawler.ContentBufferPool;
+import edu.uci.ics.crawler4j.crawler.CrawlConfig;
+import edu.uci.ics.crawler4j.crawler.exceptions.ContentFetchException;
+import edu.uci.ics.crawler4j.crawler.exceptions.PageBiggerThanMaxSizeException;
+import edu.uci.ics.crawler4j.url.WebURL;
+
+/**
+ * A {@link PageFetcher} which can also fetch pages asynchronously, on a non-blocking
+ * http client. The politeness delay of a request is waited for by a scheduler instead
+ * of a sleeping thread, and a few I/O threads serve all requests in flight, so a
+ * crawler thread can keep a whole batch of urls in flight and process the responses
+ * as they complete.
+ *
+ * The content of a response is read straight from the connection into a single
+ * array, borrowed from the {@link ContentBufferPool} of the crawl if there is one,
+ * up to the maximum download size, before the fetch completes. Pages take this array
+ * over instead of copying it, and the connection is released right away, so responses
+ * waiting to be processed never hold connections that other requests need. Responses
+ * are requested without compression, and cookies of form logins are only shared with
+ * the asynchronous requests through {@link CrawlConfig#getCookieStore()}.
+ *
+ * Subclasses customizing the request should override {@link #newHttpUriRequest(String)}.
+ */
+public class AsyncPageFetcher extends PageFetcher {
+
+    private static final int READ_BUFFER_SIZE = 4096;
+
+    /**
+     * The largest array which can be allocated.
+     */
+    private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+
+    private final CloseableHttpAsyncClient asyncClient;
+    private final ScheduledExecutorService politenessScheduler;
+    private volatile ContentBufferPool contentBufferPool;
+
+    /**
+     * Creates a fetcher with one I/O thread per processor.
+     *
+     * @param config the configuration of the crawl
+     */
+    public AsyncPageFetcher(CrawlConfig config)
+        throws NoSuchAlgorithmException, KeyManagementException, KeyStoreException, IOException {
+        this(config, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param config the configuration of the crawl
+     * @param ioThreads the number of threads sending the requests and reading the responses
+     */
+    public AsyncPageFetcher(CrawlConfig config, int ioThreads)
+        throws NoSuchAlgorithmException, KeyManagementException, KeyStoreException, IOException {
+        super(config);
+        if (ioThreads < 1) {
+            throw new IllegalArgumentException("At least one I/O thread is needed");
+        }
+        asyncClient = createAsyncClient(ioThreads);
+        asyncClient.start();
+        politenessScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("Politeness scheduler").setDaemon(true).build());
+    }
+
+    private CloseableHttpAsyncClient createAsyncClient(int ioThreads)
+        throws NoSuchAlgorithmException, KeyManagementException, KeyStoreException, IOException {
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(ioThreads)
+                .setConnectTimeout(config.getConnectionTimeout())
+                .setSoTimeout(config.getSocketTimeout())
+                .build();
+
+        RegistryBuilder<SchemeIOSessionStrategy> sessionStrategies = RegistryBuilder.create();
+        sessionStrategies.register("http", NoopIOSessionStrategy.INSTANCE);
+        if (config.isIncludeHttpsPages()) {
+            try {
+                // As PageFetcher, always trusting the ssl certificate
+                SSLContext sslContext = SSLContexts.custom().loadTrustMaterial(null, (chain, authType) -> true)
+                                                   .build();
+                sessionStrategies.register("https",
+                                           new SSLIOSessionStrategy(sslContext, NoopHostnameVerifier.INSTANCE));
+            } catch (NoSuchAlgorithmException | KeyManagementException | KeyStoreException | RuntimeException e) {
+                if (config.isHaltOnError()) {
+                    throw e;
+                } else {
+                    logger.warn("Exception thrown while trying to register https for asynchronous requests");
+                    logger.debug("Stacktrace", e);
+                }
+            }
+        }
+
+        PoolingNHttpClientConnectionManager asyncConnectionManager =
+                new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(ioReactorConfig), null,
+                                                        sessionStrategies.build(), config.getDnsResolver());
+        asyncConnectionManager.setMaxTotal(config.getMaxTotalConnections());
+        asyncConnectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerHost());
+
+        HttpAsyncClientBuilder clientBuilder = HttpAsyncClients.custom();
+        if (config.getCookieStore() != null) {
+            clientBuilder.setDefaultCookieStore(config.getCookieStore());
+        }
+        clientBuilder.setDefaultRequestConfig(requestConfig);
+        clientBuilder.setConnectionManager(asyncConnectionManager);
+        clientBuilder.setUserAgent(config.getUserAgentString());
+        clientBuilder.setDefaultHeaders(config.getDefaultHeaders());
+        if (config.getProxyHost() != null) {
+            clientBuilder.setProxy(new HttpHost(config.getProxyHost(), config.getProxyPort()));
+        }
+        if (credentialsProvider != null) {
+            clientBuilder.setDefaultCredentialsProvider(credentialsProvider);
+            clientBuilder.addInterceptorFirst(new BasicAuthHttpRequestInterceptor());
+        }
+        return clientBuilder.build();
+    }
+
+    /**
+     * Makes the responses be read into arrays borrowed from the given pool, which the
+     * pages loading these responses then take over. It should be the pool of the pages.
+     *
+     * @param contentBufferPool the pool, or null to read responses into new arrays
+     */
+    public void setContentBufferPool(ContentBufferPool contentBufferPool) {
+        this.contentBufferPool = contentBufferPool;
+    }
+
+    /**
+     * Reserves the politeness slot of the given url and sends the request once the
+     * slot is due, without blocking the calling thread.
+     *
+     * @param webUrl the url to be fetched
+     * @return a future completed with the fetch result, whose content is already
+     *         buffered, or with the exception {@link #fetchPage(WebURL)} would have thrown.
+     *         Cancelling the future drops the request.
+     */
+    public CompletableFuture<PageFetchResult> fetchPageAsync(WebURL webUrl) {
+        CompletableFuture<PageFetchResult> future = new CompletableFuture<>();
+        try {
+            long delay = politenessServer.reserve(webUrl);
+            if (delay > 0) {
+                politenessScheduler.schedule(() -> send(webUrl, future), delay, TimeUnit.MILLISECONDS);
+            } else {
+                send(webUrl, future);
+            }
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void send(WebURL webUrl, CompletableFuture<PageFetchResult> future) {
+        if (future.isDone()) {
+            return;
+        }
+        try {
+            String toFetchURL = webUrl.getURL();
+            HttpUriRequest request = newHttpUriRequest(toFetchURL);
+            addValidators(request, webUrl);
+            ContentConsumer consumer = new ContentConsumer(toFetchURL, request);
+            Future<PageFetchResult> response =
+                asyncClient.execute(HttpAsyncMethods.create(request), consumer, new FutureCallback<PageFetchResult>() {
+                    @Override
+                    public void completed(PageFetchResult fetchResult) {
+                        if (!future.complete(fetchResult)) {
+                            fetchResult.discardContentIfNotConsumed();
+                        }
+                    }
+
+                    @Override
+                    public void failed(Exception e) {
+                        future.completeExceptionally(consumer.contentFailure(e));
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        // The consumer stops reading early once it has enough content
+                        if (consumer.getException() != null) {
+                            failed(consumer.getException());
+                        } else if (consumer.getResult() != null) {
+                            completed(consumer.getResult());
+                        } else {
+                            future.cancel(false);
+                        }
+                    }
+                });
+            future.whenComplete((fetchResult, e) -> {
+                if (future.isCancelled()) {
+                    response.cancel(true);
+                }
+            });
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /*
+     * Reads the content of a response straight into a single array, which is grown when
+     * needed. One byte more than the maximum download size is read, so that the page
+     * still notices that the content was truncated; the rest is not read, which closes
+     * the connection.
+     */
+    private class ContentConsumer extends AbstractAsyncResponseConsumer<PageFetchResult> {
+        private final String toFetchURL;
+        private final HttpUriRequest request;
+        private final ContentBufferPool pool = contentBufferPool;
+        private final int limit = (int) Math.min(config.getMaxDownloadSize() + 1L, MAX_BUFFER_SIZE);
+
+        private PageFetchResult fetchResult;
+        private PageBiggerThanMaxSizeException tooBig;
+        private HttpEntity entity;
+        private byte[] buffer;
+        private int length;
+
+        ContentConsumer(String toFetchURL, HttpUriRequest request) {
+            this.toFetchURL = toFetchURL;
+            this.request = request;
+        }
+
+        /*
+         * As when the content is read by the crawler, a failure while reading the content
+         * of a response fails the fetch with a ContentFetchException, unless it timed out.
+         */
+        Exception contentFailure(Exception e) {
+            if ((fetchResult == null) || (e instanceof SocketTimeoutException) || config.isHaltOnError() ||
+                !((e instanceof IOException) || (e instanceof RuntimeException))) {
+                return e;
+            }
+            logger.info("Exception while fetching content for: {} [{}]", toFetchURL, e.getMessage());
+            return new ContentFetchException();
+        }
+
+        @Override
+        protected void onResponseReceived(HttpResponse response) throws IOException {
+            fetchResult = new PageFetchResult(config.isHaltOnError());
+            try {
+                readResponse(fetchResult, toFetchURL, request, response, config.getMaxDownloadSize());
+            } catch (PageBiggerThanMaxSizeException e) {
+                tooBig = e;
+            }
+        }
+
+        @Override
+        protected synchronized void onEntityEnclosed(HttpEntity entity, ContentType contentType) {
+            this.entity = entity;
+            if (tooBig == null) {
+                long contentLength = entity.getContentLength();
+                int expected = (contentLength >= 0) ? (int) Math.min(contentLength, limit) : READ_BUFFER_SIZE;
+                buffer = (pool != null) ? pool.borrow(expected) : new byte[expected];
+            }
+        }
+
+        @Override
+        protected synchronized void onContentReceived(ContentDecoder decoder, IOControl ioctrl) throws IOException {
+            if (tooBig != null) {
+                // Completing now fails the fetch without reading the content
+                responseCompleted(null);
+                return;
+            }
+            while ((buffer != null) && !decoder.isCompleted()) {
+                int capacity = Math.min(buffer.length, limit);
+                if (length == capacity) {
+                    if (capacity == limit) {
+                        responseCompleted(null);
+                        return;
+                    }
+                    buffer = Arrays.copyOf(buffer, (int) Math.min(limit, Math.max(1, buffer.length * 2L)));
+                    continue;
+                }
+                int read = decoder.read(ByteBuffer.wrap(buffer, length, capacity - length));
+                if (read <= 0) {
+                    return;
+                }
+                length += read;
+            }
+        }
+
+        @Override
+        protected synchronized PageFetchResult buildResult(HttpContext context) throws PageBiggerThanMaxSizeException {
+            if (tooBig != null) {
+                throw tooBig;
+            }
+            if (entity != null) {
+                BufferedContentEntity content = new BufferedContentEntity(buffer, length, pool);
+                content.setContentType(entity.getContentType());
+                content.setContentEncoding(entity.getContentEncoding());
+                buffer = null;
+                fetchResult.setEntity(decompressed(content));
+            }
+            return fetchResult;
+        }
+
+        /*
+         * Compression is not requested, but a server may compress anyway. Such content
+         * is decompressed, and copied, when the page loads it.
+         */
+        private HttpEntity decompressed(HttpEntity content) {
+            Header encoding = content.getContentEncoding();
+            if (encoding != null) {
+                for (HeaderElement element : encoding.getElements()) {
+                    String codec = element.getName().toLowerCase(Locale.ROOT);
+                    if (codec.equals("gzip") || codec.equals("x-gzip")) {
+                        return new GzipDecompressingEntity(content);
+                    } else if (codec.equals("deflate")) {
+                        return new DeflateDecompressingEntity(content);
+                    }
+                }
+            }
+            return content;
+        }
+
+        /*
+         * Runs on cancellation from any thread, hence the synchronization with the
+         * I/O thread writing into the array.
+         */
+        @Override
+        protected synchronized void releaseResources() {
+            if ((buffer != null) && (pool != null)) {
+                pool.release(buffer);
+            }
+            buffer = null;
+        }
+    }
+
+    @Override
+    public synchronized void shutDown() {
+        politenessScheduler.shutdownNow();
+        try {
+            asyncClient.close();
+        } catch (IOException e) {
+            logger.warn("Exception thrown while closing the asynchronous http client", e);
+        }
+        super.shutDown();
+    }
+}
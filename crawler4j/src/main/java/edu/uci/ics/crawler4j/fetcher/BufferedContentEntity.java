@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.fetcher;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+import edu.uci.ics.crawler4j.crawler.ContentBufferPool;
+import edu.uci.ics.crawler4j.crawler.Page;
+
+/**
+ * The content of a response which {@link AsyncPageFetcher} read into a single array,
+ * possibly borrowed from a {@link ContentBufferPool}. A {@link Page} takes the array
+ * over with {@link #takeBuffer()} instead of copying it. Otherwise the array goes back
+ * to the pool once the content stream is closed.
+ *
+ * The content can be read only once.
+ */
+public class BufferedContentEntity extends AbstractHttpEntity {
+
+    private static final byte[] NO_CONTENT = new byte[0];
+
+    private final int length;
+    private final ContentBufferPool contentBufferPool;
+    private byte[] buffer;
+
+    /**
+     * @param buffer the array whose first length bytes are the content
+     * @param length the length of the content
+     * @param contentBufferPool the pool the array goes back to, or null
+     */
+    public BufferedContentEntity(byte[] buffer, int length, ContentBufferPool contentBufferPool) {
+        this.buffer = buffer;
+        this.length = length;
+        this.contentBufferPool = contentBufferPool;
+    }
+
+    /**
+     * Hands the array holding the content over to the caller, which may give it back to a
+     * pool once done with it. The array may be longer than the content.
+     *
+     * @return the array whose first {@link #getContentLength()} bytes are the content
+     * @throws IllegalStateException if the content has already been taken or read
+     */
+    public synchronized byte[] takeBuffer() {
+        if (buffer == null) {
+            throw new IllegalStateException("Content has been consumed");
+        }
+        byte[] taken = buffer;
+        buffer = null;
+        return taken;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length;
+    }
+
+    @Override
+    public InputStream getContent() {
+        return new ContentStream(takeBuffer());
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        byte[] content = takeBuffer();
+        try {
+            outStream.write(content, 0, length);
+        } finally {
+            release(content);
+        }
+    }
+
+    @Override
+    public synchronized boolean isStreaming() {
+        return buffer != null;
+    }
+
+    private void release(byte[] content) {
+        if (contentBufferPool != null) {
+            contentBufferPool.release(content);
+        }
+    }
+
+    /*
+     * Gives the array back to the pool when closed, and cannot be read anymore then.
+     */
+    private class ContentStream extends ByteArrayInputStream {
+
+        ContentStream(byte[] content) {
+            super(content, 0, length);
+        }
+
+        @Override
+        public synchronized void close() {
+            if (buf == NO_CONTENT) {
+                return;
+            }
+            byte[] content = buf;
+            buf = NO_CONTENT;
+            pos = 0;
+            count = 0;
+            mark = 0;
+            release(content);
+        }
+    }
+}
@@ -27,6 +27,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import edu.uci.ics.crawler4j.crawler.Page;
+import edu.uci.ics.crawler4j.crawler.PageContentInputStream;
+import edu.uci.ics.crawler4j.crawler.exceptions.ParseException;
+import edu.uci.ics.crawler4j.parser.Parser;
 
 /**
  * @author Yasser Ganjisaffar
@@ -96,6 +99,60 @@ public class PageFetchResult {
         return false;
     }
 
+    /**
+     * Parses the content of the page while it is downloaded, instead of loading it
+     * first. Failures to read the content are handled as by
+     * {@link #fetchContent(Page, int)}.
+     *
+     * @param page the page whose content is parsed
+     * @param maxBytes The maximum number of bytes to read
+     * @param retainContent {@code true} to also keep the content data of the page
+     * @param parser the parser of the page
+     * @return true if the page was parsed, false if its content could not be read
+     * @throws ParseException if the content was read but could not be parsed
+     */
+    public boolean parseContent(Page page, int maxBytes, boolean retainContent, Parser parser)
+        throws SocketTimeoutException, IOException, ParseException {
+        page.setFetchResponseHeaders(responseHeaders);
+        PageContentInputStream content = null;
+        try {
+            content = page.openContent(entity, maxBytes, retainContent);
+            try {
+                parser.parse(page, page.getWebURL().getURL(), content);
+            } finally {
+                content.close();
+            }
+            return true;
+        } catch (ParseException e) {
+            IOException readFailure = (content == null) ? null : content.getReadFailure();
+            if (readFailure == null) {
+                throw e;
+            }
+            return handleReadFailure(page, readFailure);
+        } catch (IOException e) {
+            return handleReadFailure(page, e);
+        } catch (RuntimeException e) {
+            if (haltOnError) {
+                throw e;
+            }
+            logContentFailure(page, e);
+            return false;
+        }
+    }
+
+    private boolean handleReadFailure(Page page, IOException e) throws IOException {
+        if ((e instanceof SocketTimeoutException) || haltOnError) {
+            throw e;
+        }
+        logContentFailure(page, e);
+        return false;
+    }
+
+    private void logContentFailure(Page page, Exception e) {
+        logger.info("Exception while fetching content for: {} [{}]", page.getWebURL().getURL(),
+                    e.getMessage());
+    }
+
     public void discardContentIfNotConsumed() {
         try {
             if (entity != null) {
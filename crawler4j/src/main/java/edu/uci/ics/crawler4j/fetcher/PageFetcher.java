@@ -26,7 +26,6 @@ import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +35,7 @@ import javax.net.ssl.SSLContext;
 import org.apache.http.Header;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.NameValuePair;
 import org.apache.http.auth.AuthScope;
@@ -72,6 +72,7 @@ import edu.uci.ics.crawler4j.crawler.authentication.BasicAuthInfo;
 import edu.uci.ics.crawler4j.crawler.authentication.FormAuthInfo;
 import edu.uci.ics.crawler4j.crawler.authentication.NtAuthInfo;
 import edu.uci.ics.crawler4j.crawler.exceptions.PageBiggerThanMaxSizeException;
+import edu.uci.ics.crawler4j.frontier.ValidatorsDB;
 import edu.uci.ics.crawler4j.url.URLCanonicalizer;
 import edu.uci.ics.crawler4j.url.WebURL;
 
@@ -80,6 +81,10 @@ import edu.uci.ics.crawler4j.url.WebURL;
  */
 public class PageFetcher {
     protected static final Logger logger = LoggerFactory.getLogger(PageFetcher.class);
+    /**
+     * Not used by this class, which enforces politeness per host with {@link #politenessServer}.
+     * Kept for subclasses which throttle their own requests.
+     */
     protected final Object mutex = new Object();
     /**
      * This field is protected for retro compatibility. Please use the getter method: getConfig() to
@@ -88,13 +93,31 @@ public class PageFetcher {
     protected final CrawlConfig config;
     protected PoolingHttpClientConnectionManager connectionManager;
     protected CloseableHttpClient httpClient;
+    /**
+     * Not updated by this class, which enforces politeness per host with {@link #politenessServer}.
+     * Kept for subclasses which throttle their own requests.
+     */
     protected long lastFetchTime = 0;
+    protected PolitenessServer politenessServer;
+    /**
+     * Validators of the pages fetched before, if pages are requested conditionally.
+     */
+    protected volatile ValidatorsDB validatorsDB;
     protected IdleConnectionMonitorThread connectionMonitorThread = null;
+    /**
+     * Settings of the requests, such as their timeouts, redirects being disabled.
+     */
+    protected RequestConfig requestConfig;
+    /**
+     * Credentials of the proxy and of the sites with basic or NT authentication, or null.
+     */
+    protected CredentialsProvider credentialsProvider;
 
     public PageFetcher(CrawlConfig config) throws NoSuchAlgorithmException, KeyManagementException, KeyStoreException {
         this.config = config;
+        this.politenessServer = new PolitenessServer(config);
 
-        RequestConfig requestConfig = RequestConfig.custom()
+        requestConfig = RequestConfig.custom()
                 .setExpectContinueEnabled(false)
                 .setCookieSpec(config.getCookiePolicy())
                 .setRedirectsEnabled(false)
@@ -167,7 +190,7 @@ public class PageFetcher {
             }
 
             if (!credentialsMap.isEmpty()) {
-                CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+                credentialsProvider = new BasicCredentialsProvider();
                 credentialsMap.forEach((AuthScope authscope, Credentials credentials) -> {
                     credentialsProvider.setCredentials(authscope, credentials);
                 });
@@ -253,75 +276,67 @@ public class PageFetcher {
 
     public PageFetchResult fetchPage(WebURL webUrl)
             throws InterruptedException, IOException, PageBiggerThanMaxSizeException {
+        // Applying Politeness delay, only requests to the same host wait for each other
+        politenessServer.waitForTurn(webUrl);
+        return executeFetch(webUrl);
+    }
+
+    /**
+     * Fetches the given url with another size limit than the maximum download size, for
+     * resources such as sitemaps which are expected to be larger than pages.
+     *
+     * @param webUrl the url to be fetched
+     * @param maxSize the size in bytes above which the fetch fails when the response
+     *                announces its length
+     * @return the result of the fetch, whose entity has not been consumed yet
+     */
+    public PageFetchResult fetchPage(WebURL webUrl, long maxSize)
+            throws InterruptedException, IOException, PageBiggerThanMaxSizeException {
+        politenessServer.waitForTurn(webUrl);
+        return executeFetch(webUrl, maxSize);
+    }
+
+    /**
+     * Sends the request for the given url right away, without applying the politeness delay.
+     * Callers are expected to have reserved a fetch slot from the {@link PolitenessServer} first.
+     *
+     * @param webUrl the url to be fetched
+     * @return the result of the fetch, whose entity has not been consumed yet
+     * @throws IOException if the request fails
+     * @throws PageBiggerThanMaxSizeException if the page is larger than the maximum download size
+     */
+    protected PageFetchResult executeFetch(WebURL webUrl) throws IOException, PageBiggerThanMaxSizeException {
+        return executeFetch(webUrl, config.getMaxDownloadSize());
+    }
+
+    /**
+     * Sends the request for the given url right away, with the given size limit.
+     *
+     * @param webUrl the url to be fetched
+     * @param maxSize the size in bytes above which the fetch fails when the response
+     *                announces its length
+     * @return the result of the fetch, whose entity has not been consumed yet
+     * @throws IOException if the request fails
+     * @throws PageBiggerThanMaxSizeException if the response is larger than maxSize
+     */
+    protected PageFetchResult executeFetch(WebURL webUrl, long maxSize)
+        throws IOException, PageBiggerThanMaxSizeException {
         // Getting URL, setting headers & content
         PageFetchResult fetchResult = new PageFetchResult(config.isHaltOnError());
         String toFetchURL = webUrl.getURL();
         HttpUriRequest request = null;
         try {
             request = newHttpUriRequest(toFetchURL);
-            if (config.getPolitenessDelay() > 0) {
-                // Applying Politeness delay
-                synchronized (mutex) {
-                    long now = (new Date()).getTime();
-                    if ((now - lastFetchTime) < config.getPolitenessDelay()) {
-                        Thread.sleep(config.getPolitenessDelay() - (now - lastFetchTime));
-                    }
-                    lastFetchTime = (new Date()).getTime();
-                }
-            }
-
+            addValidators(request, webUrl);
             CloseableHttpResponse response = httpClient.execute(request);
             fetchResult.setEntity(response.getEntity());
-            fetchResult.setResponseHeaders(response.getAllHeaders());
-
-            // Setting HttpStatus
-            int statusCode = response.getStatusLine().getStatusCode();
-
-            // If Redirect ( 3xx )
-            if (statusCode == HttpStatus.SC_MOVED_PERMANENTLY ||
-                    statusCode == HttpStatus.SC_MOVED_TEMPORARILY ||
-                    statusCode == HttpStatus.SC_MULTIPLE_CHOICES ||
-                    statusCode == HttpStatus.SC_SEE_OTHER ||
-                    statusCode == HttpStatus.SC_TEMPORARY_REDIRECT ||
-                    statusCode == 308) { // todo follow
-                // https://issues.apache.org/jira/browse/HTTPCORE-389
-
-                Header header = response.getFirstHeader(HttpHeaders.LOCATION);
-                if (header != null) {
-                    String movedToUrl =
-                            URLCanonicalizer.getCanonicalURL(header.getValue(), toFetchURL);
-                    fetchResult.setMovedToUrl(movedToUrl);
-                }
-            } else if (statusCode >= 200 && statusCode <= 299) { // is 2XX, everything looks ok
-                fetchResult.setFetchedUrl(toFetchURL);
-                String uri = request.getURI().toString();
-                if (!uri.equals(toFetchURL)) {
-                    if (!URLCanonicalizer.getCanonicalURL(uri).equals(toFetchURL)) {
-                        fetchResult.setFetchedUrl(uri);
-                    }
-                }
-
-                // Checking maximum size
-                if (fetchResult.getEntity() != null) {
-                    long size = fetchResult.getEntity().getContentLength();
-                    if (size == -1) {
-                        Header length = response.getLastHeader(HttpHeaders.CONTENT_LENGTH);
-                        if (length == null) {
-                            length = response.getLastHeader("Content-length");
-                        }
-                        if (length != null) {
-                            size = Integer.parseInt(length.getValue());
-                        }
-                    }
-                    if (size > config.getMaxDownloadSize()) {
-                        //fix issue #52 - consume entity
-                        response.close();
-                        throw new PageBiggerThanMaxSizeException(size);
-                    }
-                }
+            try {
+                readResponse(fetchResult, toFetchURL, request, response, maxSize);
+            } catch (PageBiggerThanMaxSizeException e) {
+                //fix issue #52 - consume entity
+                response.close();
+                throw e;
             }
-
-            fetchResult.setStatusCode(statusCode);
             return fetchResult;
 
         } finally { // occurs also with thrown exceptions
@@ -331,6 +346,72 @@ public class PageFetcher {
         }
     }
 
+    /**
+     * Reads the status, the headers and the redirect target of the response to the given
+     * url into the fetch result, but not its entity.
+     *
+     * @param fetchResult the result to fill in
+     * @param toFetchURL the url which was requested
+     * @param request the request which was sent
+     * @param response the response to the request
+     * @param maxSize the size in bytes above which the fetch fails when the response
+     *                announces its length
+     * @throws IOException if the redirect target cannot be canonicalized
+     * @throws PageBiggerThanMaxSizeException if a successful response is larger than maxSize
+     */
+    protected void readResponse(PageFetchResult fetchResult, String toFetchURL, HttpUriRequest request,
+                                HttpResponse response, long maxSize)
+        throws IOException, PageBiggerThanMaxSizeException {
+        fetchResult.setResponseHeaders(response.getAllHeaders());
+
+        // Setting HttpStatus
+        int statusCode = response.getStatusLine().getStatusCode();
+
+        // If Redirect ( 3xx )
+        if (statusCode == HttpStatus.SC_MOVED_PERMANENTLY ||
+                statusCode == HttpStatus.SC_MOVED_TEMPORARILY ||
+                statusCode == HttpStatus.SC_MULTIPLE_CHOICES ||
+                statusCode == HttpStatus.SC_SEE_OTHER ||
+                statusCode == HttpStatus.SC_TEMPORARY_REDIRECT ||
+                statusCode == 308) { // todo follow
+            // https://issues.apache.org/jira/browse/HTTPCORE-389
+
+            Header header = response.getFirstHeader(HttpHeaders.LOCATION);
+            if (header != null) {
+                String movedToUrl =
+                        URLCanonicalizer.getCanonicalURL(header.getValue(), toFetchURL);
+                fetchResult.setMovedToUrl(movedToUrl);
+            }
+        } else if (statusCode >= 200 && statusCode <= 299) { // is 2XX, everything looks ok
+            fetchResult.setFetchedUrl(toFetchURL);
+            String uri = request.getURI().toString();
+            if (!uri.equals(toFetchURL)) {
+                if (!URLCanonicalizer.getCanonicalURL(uri).equals(toFetchURL)) {
+                    fetchResult.setFetchedUrl(uri);
+                }
+            }
+
+            // Checking maximum size
+            if (response.getEntity() != null) {
+                long size = response.getEntity().getContentLength();
+                if (size == -1) {
+                    Header length = response.getLastHeader(HttpHeaders.CONTENT_LENGTH);
+                    if (length == null) {
+                        length = response.getLastHeader("Content-length");
+                    }
+                    if (length != null) {
+                        size = Integer.parseInt(length.getValue());
+                    }
+                }
+                if (size > maxSize) {
+                    throw new PageBiggerThanMaxSizeException(size);
+                }
+            }
+        }
+
+        fetchResult.setStatusCode(statusCode);
+    }
+
     public synchronized void shutDown() {
         if (connectionMonitorThread != null) {
             connectionManager.shutdown();
@@ -349,7 +430,43 @@ public class PageFetcher {
         return new HttpGet(url);
     }
 
+    /**
+     * Makes the request conditional on the validators of the previous fetch of the page,
+     * if any. Urls which are not pages, such as robots.txt, have no docid.
+     *
+     * @param request the request for the given url
+     * @param webUrl the url to be fetched
+     */
+    protected void addValidators(HttpUriRequest request, WebURL webUrl) {
+        ValidatorsDB validators = validatorsDB;
+        if ((validators == null) || (webUrl.getDocid() <= 0)) {
+            return;
+        }
+        ValidatorsDB.Validators previous = validators.get(webUrl.getDocid());
+        if (previous == null) {
+            return;
+        }
+        if (previous.getETag() != null) {
+            request.setHeader(HttpHeaders.IF_NONE_MATCH, previous.getETag());
+        }
+        if (previous.getLastModified() != null) {
+            request.setHeader(HttpHeaders.IF_MODIFIED_SINCE, previous.getLastModified());
+        }
+    }
+
     protected CrawlConfig getConfig() {
         return config;
     }
+
+    public PolitenessServer getPolitenessServer() {
+        return politenessServer;
+    }
+
+    /**
+     * @param validatorsDB the validators of the pages fetched before, which make the requests
+     *                     for these pages conditional, or null to send plain requests
+     */
+    public void setValidatorsDB(ValidatorsDB validatorsDB) {
+        this.validatorsDB = validatorsDB;
+    }
 }
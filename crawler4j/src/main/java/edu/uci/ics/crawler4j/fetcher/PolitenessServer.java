@@ -0,0 +1,143 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.fetcher;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import edu.uci.ics.crawler4j.crawler.CrawlConfig;
+import edu.uci.ics.crawler4j.robotstxt.RobotstxtServer;
+import edu.uci.ics.crawler4j.url.WebURL;
+
+/**
+ * Enforces the politeness delay on a per host basis. Every host keeps the
+ * earliest time at which the next request may be sent to it. A crawler thread
+ * reserves its slot atomically and then sleeps without holding any lock, so
+ * threads only wait for requests to their own host.
+ */
+public class PolitenessServer {
+
+    /**
+     * Number of tracked hosts after which expired entries are purged.
+     */
+    private static final int MIN_PURGE_THRESHOLD = 10000;
+
+    private final CrawlConfig config;
+
+    /**
+     * Host name to the earliest time (in milliseconds) at which the next request
+     * to this host is allowed. Values are never mutated in place so that a
+     * purge can not remove an entry that has just been reserved.
+     */
+    private final ConcurrentMap<String, Long> nextFetchTimes = new ConcurrentHashMap<>();
+
+    private volatile int purgeThreshold = MIN_PURGE_THRESHOLD;
+
+    private volatile RobotstxtServer robotstxtServer;
+
+    public PolitenessServer(CrawlConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Reserves the next fetch slot of the host of the given url.
+     *
+     * @param url the url which is about to be fetched
+     * @return the number of milliseconds the caller has to wait before sending the request
+     */
+    public long reserve(WebURL url) {
+        long delay = getPolitenessDelay(url);
+        if (delay <= 0) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        Long reserved = nextFetchTimes.compute(url.getHost(), (host, next) ->
+            ((next == null) || (next < now)) ? (now + delay) : (next + delay));
+        purgeIfNeeded(now);
+        return Math.max(0, reserved - delay - now);
+    }
+
+    /**
+     * Blocks the calling thread until a request may be sent to the host of the given url.
+     *
+     * @param url the url which is about to be fetched
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void waitForTurn(WebURL url) throws InterruptedException {
+        long wait = reserve(url);
+        if (wait > 0) {
+            Thread.sleep(wait);
+        }
+    }
+
+    /**
+     * Returns the minimum delay between two requests to the host of the given url.
+     * The default is {@link CrawlConfig#getPolitenessDelay()}, or the Crawl-delay of
+     * the host when {@link CrawlConfig#isRespectCrawlDelay()} is set and its robots.txt
+     * declares one. Subclasses may override this method to apply host specific delays.
+     *
+     * @param url the url which is about to be fetched
+     * @return the delay in milliseconds
+     */
+    protected long getPolitenessDelay(WebURL url) {
+        RobotstxtServer robotstxt = robotstxtServer;
+        if (config.isRespectCrawlDelay() && (robotstxt != null)) {
+            Double crawlDelay = robotstxt.getCrawlDelay(url.getHost());
+            if (crawlDelay != null) {
+                long delay = Math.round(crawlDelay * 1000);
+                return Math.min(Math.max(delay, config.getMinCrawlDelay()), config.getMaxCrawlDelay());
+            }
+        }
+        return config.getPolitenessDelay();
+    }
+
+    /**
+     * Sets the server whose cached robots.txt provide the Crawl-delay of the hosts.
+     *
+     * @param robotstxtServer the robots.txt server of the crawl
+     */
+    public void setRobotstxtServer(RobotstxtServer robotstxtServer) {
+        this.robotstxtServer = robotstxtServer;
+    }
+
+    /**
+     * @return the number of hosts for which a fetch slot is currently tracked
+     */
+    public int getNumberOfTrackedHosts() {
+        return nextFetchTimes.size();
+    }
+
+    /*
+     * A host whose next allowed fetch time has passed carries no information
+     * anymore: the next request can be sent immediately anyway. These entries are
+     * dropped once the map grows beyond the threshold, so broad crawls do not
+     * keep every host they have ever seen in memory.
+     */
+    private void purgeIfNeeded(long now) {
+        if (nextFetchTimes.size() <= purgeThreshold) {
+            return;
+        }
+        for (Map.Entry<String, Long> entry : nextFetchTimes.entrySet()) {
+            if (entry.getValue() < now) {
+                nextFetchTimes.remove(entry.getKey(), entry.getValue());
+            }
+        }
+        purgeThreshold = Math.max(MIN_PURGE_THRESHOLD, nextFetchTimes.size() * 2);
+    }
+}
@@ -0,0 +1,342 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.frontier;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.Environment;
+
+import edu.uci.ics.crawler4j.crawler.CrawlConfig;
+import edu.uci.ics.crawler4j.url.WebURL;
+
+/**
+ * A frontier which spreads the pending urls over several work queues, each
+ * guarded by its own lock, instead of serializing all threads on a single
+ * mutex. Urls are assigned to a stripe by docid, or by host when the frontier is
+ * partitioned by host, so that the politeness bookkeeping of a host stays in one
+ * stripe. The crawl order is kept within a stripe only.
+ *
+ * Crawler threads which find no url wait on their own {@link Condition}, and
+ * scheduling wakes only as many of them as there are new batches to hand out.
+ */
+public class ConcurrentFrontier extends Frontier {
+
+    private final WorkQueues[] stripes;
+    private final Lock[] stripeLocks;
+
+    private final AtomicLong reservedPages;
+    private final AtomicInteger nextStripe = new AtomicInteger();
+
+    private final Lock waitersLock = new ReentrantLock();
+    private final Deque<Condition> waiters = new ArrayDeque<>();
+
+    /**
+     * Incremented whenever urls are scheduled, guarded by waitersLock. A thread
+     * only waits if nothing was scheduled since it started looking for urls.
+     */
+    private long scheduleEpoch;
+
+    public ConcurrentFrontier(Environment env, CrawlConfig config) {
+        super(env, config);
+        int numberOfStripes = Math.max(1, config.getFrontierConfig().getFrontierStripes());
+        stripes = new WorkQueues[numberOfStripes];
+        stripeLocks = new Lock[numberOfStripes];
+        stripes[0] = workQueues;
+        stripeLocks[0] = new ReentrantLock();
+        for (int i = 1; i < numberOfStripes; i++) {
+            stripes[i] = createWorkQueues(env, getStripeName(i));
+            stripeLocks[i] = new ReentrantLock();
+        }
+        reservedPages = new AtomicLong(scheduledPages);
+        if (config.isResumableCrawling()) {
+            moveOrphanedStripes(env);
+        }
+    }
+
+    private String getStripeName(int index) {
+        return getWorkQueuesName() + "-" + index;
+    }
+
+    private int getStripeIndex(WebURL url) {
+        int hash = config.getFrontierConfig().isHostPartitionedFrontier() ? HostWorkQueues.getHostId(url)
+                                                                          : url.getDocid();
+        return Math.floorMod(hash, stripes.length);
+    }
+
+    @Override
+    public void scheduleAll(List<WebURL> urls) {
+        int reserved = reservePages(urls.size());
+        if (reserved == 0) {
+            return;
+        }
+
+        List<List<WebURL>> urlsByStripe = new ArrayList<>(stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            urlsByStripe.add(new ArrayList<>());
+        }
+        for (WebURL url : urls.subList(0, reserved)) {
+            urlsByStripe.get(getStripeIndex(url)).add(url);
+        }
+
+        int newScheduledPages = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            List<WebURL> stripeUrls = urlsByStripe.get(i);
+            if (stripeUrls.isEmpty()) {
+                continue;
+            }
+            stripeLocks[i].lock();
+            try {
+                for (WebURL url : stripeUrls) {
+                    try {
+                        stripes[i].put(url);
+                        newScheduledPages++;
+                    } catch (DatabaseException e) {
+                        logger.error("Error while putting the url in the work queue", e);
+                    }
+                }
+            } finally {
+                stripeLocks[i].unlock();
+            }
+        }
+
+        if (newScheduledPages < reserved) {
+            reservedPages.addAndGet(newScheduledPages - reserved);
+        }
+        if (newScheduledPages > 0) {
+            counters.increment(Counters.ReservedCounterNames.SCHEDULED_PAGES, newScheduledPages);
+            signalWaiters(newScheduledPages);
+        }
+    }
+
+    @Override
+    public void schedule(WebURL url) {
+        scheduleAll(Collections.singletonList(url));
+    }
+
+    /*
+     * Reserves room for up to the requested number of pages below maxPagesToFetch,
+     * and returns how many pages may be scheduled.
+     */
+    private int reservePages(int requested) {
+        int maxPagesToFetch = config.getMaxPagesToFetch();
+        if (maxPagesToFetch <= 0) {
+            reservedPages.addAndGet(requested);
+            return requested;
+        }
+        while (true) {
+            long current = reservedPages.get();
+            int granted = (int) Math.max(0, Math.min(requested, maxPagesToFetch - current));
+            if (granted == 0) {
+                return 0;
+            }
+            if (reservedPages.compareAndSet(current, current + granted)) {
+                return granted;
+            }
+        }
+    }
+
+    @Override
+    public void getNextURLs(int max, List<WebURL> result) {
+        while (!isFinished) {
+            long epoch = getScheduleEpoch();
+            if (claim(max, result)) {
+                return;
+            }
+            awaitUrls(epoch, getMillisUntilNextReady());
+        }
+    }
+
+    /*
+     * Claims a batch from the first stripe which has urls, starting at a different
+     * stripe on every call. Stripes which are busy are skipped at first, and only
+     * waited for if no other stripe had urls.
+     */
+    private boolean claim(int max, List<WebURL> result) {
+        int start = Math.floorMod(nextStripe.getAndIncrement(), stripes.length);
+        int[] busyStripes = new int[stripes.length];
+        int numberOfBusyStripes = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            int index = (start + i) % stripes.length;
+            if (!stripeLocks[index].tryLock()) {
+                busyStripes[numberOfBusyStripes++] = index;
+            } else if (claimLocked(index, max, result)) {
+                return true;
+            }
+        }
+        for (int i = 0; i < numberOfBusyStripes; i++) {
+            stripeLocks[busyStripes[i]].lock();
+            if (claimLocked(busyStripes[i], max, result)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean claimLocked(int index, int max, List<WebURL> result) {
+        try {
+            result.addAll(stripes[index].claim(max, inProcessPages));
+        } catch (DatabaseException e) {
+            logger.error("Error while getting next urls", e);
+        } finally {
+            stripeLocks[index].unlock();
+        }
+        return !result.isEmpty();
+    }
+
+    private long getMillisUntilNextReady() {
+        long readyDelay = -1;
+        for (WorkQueues stripe : stripes) {
+            long stripeDelay = stripe.getMillisUntilNextReady();
+            if ((stripeDelay > 0) && ((readyDelay < 0) || (stripeDelay < readyDelay))) {
+                readyDelay = stripeDelay;
+            }
+        }
+        return readyDelay;
+    }
+
+    private long getScheduleEpoch() {
+        waitersLock.lock();
+        try {
+            return scheduleEpoch;
+        } finally {
+            waitersLock.unlock();
+        }
+    }
+
+    private void awaitUrls(long epoch, long readyDelay) {
+        waitersLock.lock();
+        try {
+            if (isFinished || (scheduleEpoch != epoch)) {
+                return;
+            }
+            Condition condition = waitersLock.newCondition();
+            waiters.addLast(condition);
+            try {
+                if (readyDelay > 0) {
+                    // Some urls are pending, but none of them may be fetched right now
+                    condition.await(readyDelay, TimeUnit.MILLISECONDS);
+                } else {
+                    condition.await();
+                }
+            } catch (InterruptedException ignored) {
+                // Do nothing
+            } finally {
+                waiters.remove(condition);
+            }
+        } finally {
+            waitersLock.unlock();
+        }
+    }
+
+    /*
+     * Wakes one waiting thread per batch of newly scheduled urls.
+     */
+    private void signalWaiters(int newScheduledPages) {
+        int batchSize = Math.max(1, config.getBatchReadSize());
+        int toWake = (newScheduledPages + batchSize - 1) / batchSize;
+        waitersLock.lock();
+        try {
+            scheduleEpoch++;
+            while ((toWake > 0) && !waiters.isEmpty()) {
+                waiters.pollFirst().signal();
+                toWake--;
+            }
+        } finally {
+            waitersLock.unlock();
+        }
+    }
+
+    @Override
+    public long getQueueLength() {
+        long length = 0;
+        for (WorkQueues stripe : stripes) {
+            length += stripe.getLength();
+        }
+        return length;
+    }
+
+    @Override
+    public void finish() {
+        super.finish();
+        waitersLock.lock();
+        try {
+            for (Condition condition : waiters) {
+                condition.signal();
+            }
+            waiters.clear();
+        } finally {
+            waitersLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (int i = 1; i < stripes.length; i++) {
+            stripes[i].close();
+        }
+        super.close();
+    }
+
+    /*
+     * When a resumable crawl is restarted with fewer stripes, the pending urls of
+     * the stripes which no longer exist are moved to the current ones.
+     */
+    private void moveOrphanedStripes(Environment env) {
+        String prefix = getWorkQueuesName() + "-";
+        for (String dbName : env.getDatabaseNames()) {
+            if (!dbName.startsWith(prefix)) {
+                continue;
+            }
+            int index;
+            try {
+                index = Integer.parseInt(dbName.substring(prefix.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (index < stripes.length) {
+                continue;
+            }
+
+            WorkQueues orphan = createWorkQueues(env, dbName);
+            int batchSize = Math.max(1, config.getBatchReadSize());
+            long moved = 0;
+            List<WebURL> urls = orphan.claim(batchSize);
+            while (!urls.isEmpty()) {
+                for (WebURL url : urls) {
+                    stripes[getStripeIndex(url)].put(url);
+                }
+                moved += urls.size();
+                urls = orphan.claim(batchSize);
+            }
+            orphan.close();
+            env.removeDatabase(null, dbName);
+            logger.info("Moved {} pending URLs from removed frontier stripe {}.", moved, dbName);
+        }
+    }
+}
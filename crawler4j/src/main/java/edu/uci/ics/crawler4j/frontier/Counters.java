@@ -17,12 +17,21 @@
 
 package edu.uci.ics.crawler4j.frontier;
 
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.sleepycat.je.Cursor;
 import com.sleepycat.je.Database;
 import com.sleepycat.je.DatabaseConfig;
@@ -36,6 +45,12 @@ import edu.uci.ics.crawler4j.crawler.CrawlConfig;
 import edu.uci.ics.crawler4j.util.Util;
 
 /**
+ * Counters are kept in memory and updated without locking. When crawling is
+ * resumable, they are written behind to the statistics database by a background
+ * thread, every {@link FrontierConfig#getCountersFlushInterval()} and as soon as
+ * {@link FrontierConfig#getCountersFlushBatchSize()} updates are pending, and on
+ * {@link #close()}. Incrementing threads never write to the database themselves.
+ *
  * @author Yasser Ganjisaffar
  */
 public class Counters {
@@ -51,13 +66,30 @@ public class Counters {
     protected Environment env;
     private CrawlConfig config;
 
+    /**
+     * Guards the writes to the statistics database and {@link #setValue(String, long)}.
+     */
     protected final Object mutex = new Object();
 
+    /**
+     * @deprecated read-only view of the counters, which are updated without locking.
+     * Use {@link #getValue(String)} and {@link #setValue(String, long)} instead.
+     */
+    @Deprecated
     protected Map<String, Long> counterValues;
 
+    private final ConcurrentMap<String, LongAdder> adders = new ConcurrentHashMap<>();
+
+    private final AtomicLong pendingUpdates = new AtomicLong();
+
+    /**
+     * Writes the counters in the background, null if crawling is not resumable.
+     */
+    private ScheduledExecutorService flusher;
+
     public Counters(Environment env, CrawlConfig config) {
         this.env = env;
-        this.counterValues = new HashMap<>();
+        this.counterValues = Collections.unmodifiableMap(Maps.transformValues(adders, LongAdder::sum));
         this.config = config;
 
     /*
@@ -83,63 +115,127 @@ public class Counters {
                 if (value.getData().length > 0) {
                     String name = new String(key.getData());
                     long counterValue = Util.byteArray2Long(value.getData());
-                    counterValues.put(name, counterValue);
+                    getAdder(name).add(counterValue);
                 }
                 result = cursor.getNext(key, value, null);
             }
             cursor.close();
             tnx.commit();
+
+            long flushInterval = config.getFrontierConfig().getCountersFlushInterval();
+            if (flushInterval > 0) {
+                flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("Counters flusher").setDaemon(true).build());
+                flusher.scheduleWithFixedDelay(this::flushInBackground, flushInterval, flushInterval,
+                                               TimeUnit.MILLISECONDS);
+            }
         }
     }
 
+    private LongAdder getAdder(String name) {
+        LongAdder adder = adders.get(name);
+        if (adder == null) {
+            adder = adders.computeIfAbsent(name, k -> new LongAdder());
+        }
+        return adder;
+    }
+
     public long getValue(String name) {
-        synchronized (mutex) {
-            Long value = counterValues.get(name);
-            if (value == null) {
-                return 0;
-            }
-            return value;
+        LongAdder value = adders.get(name);
+        if (value == null) {
+            return 0;
         }
+        return value.sum();
     }
 
+    /**
+     * Sets the value of a counter and writes it to the statistics database right away.
+     * Increments which run concurrently with this call may be lost.
+     */
     public void setValue(String name, long value) {
         synchronized (mutex) {
+            LongAdder adder = getAdder(name);
+            adder.reset();
+            adder.add(value);
+            pendingUpdates.incrementAndGet();
+            flush();
+        }
+    }
+
+    public void increment(String name) {
+        increment(name, 1);
+    }
+
+    public void increment(String name, long addition) {
+        getAdder(name).add(addition);
+        if (statisticsDB == null) {
+            return;
+        }
+        long pending = pendingUpdates.incrementAndGet();
+        if (flusher == null) {
+            flush();
+        } else if (pending == config.getFrontierConfig().getCountersFlushBatchSize()) {
+            // Only the update which reaches the batch size asks for a write, as a flush
+            // resets the number of pending updates
+            flusher.execute(this::flushInBackground);
+        }
+    }
+
+    /**
+     * Writes the current value of all counters to the statistics database, in a
+     * single transaction. Does nothing if crawling is not resumable or if no counter
+     * has changed since the last write.
+     */
+    public void flush() {
+        if (statisticsDB == null) {
+            return;
+        }
+        synchronized (mutex) {
+            if (pendingUpdates.getAndSet(0) == 0) {
+                return;
+            }
             try {
-                counterValues.put(name, value);
-                if (statisticsDB != null) {
-                    Transaction txn = env.beginTransaction(null, null);
-                    statisticsDB.put(txn, new DatabaseEntry(name.getBytes()),
-                                     new DatabaseEntry(Util.long2ByteArray(value)));
-                    txn.commit();
+                Transaction txn = env.beginTransaction(null, null);
+                for (Map.Entry<String, LongAdder> entry : adders.entrySet()) {
+                    statisticsDB.put(txn, new DatabaseEntry(entry.getKey().getBytes()),
+                                     new DatabaseEntry(Util.long2ByteArray(entry.getValue().sum())));
                 }
+                txn.commit();
             } catch (RuntimeException e) {
                 if (config.isHaltOnError()) {
                     throw e;
                 } else {
-                    logger.error("Exception setting value", e);
+                    logger.error("Exception writing counters", e);
                 }
             }
         }
     }
 
-    public void increment(String name) {
-        increment(name, 1);
-    }
-
-    public void increment(String name, long addition) {
-        synchronized (mutex) {
-            long prevValue = getValue(name);
-            setValue(name, prevValue + addition);
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("Exception writing counters in the background", e);
         }
     }
 
     public void close() {
+        if (flusher != null) {
+            // Interrupting a write would invalidate the environment, so it is waited for
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
         try {
             if (statisticsDB != null) {
+                flush();
                 statisticsDB.close();
             }
         } catch (DatabaseException e) {
             logger.error("Exception thrown while trying to close statisticsDB", e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,210 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.frontier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
+import edu.uci.ics.crawler4j.crawler.CrawlConfig;
+import edu.uci.ics.crawler4j.url.WebURL;
+
+/**
+ * Prunes the outgoing links which lead into unbounded url spaces, such as calendars,
+ * faceted search or session parameters, before they are scheduled. The limits are set
+ * in {@link FrontierConfig} and the number of pruned urls is available through
+ * {@link #getPrunedUrls(Trap)}.
+ *
+ * The budgets and the seen parameter values are kept in memory, so they start over
+ * when a resumable crawl is restarted. The values of at most
+ * {@link FrontierConfig#getMaxTrackedQueryParameters()} parameters are tracked, those
+ * of the least recently seen parameters are forgotten.
+ */
+public class CrawlTrapFilter {
+
+    /**
+     * The reasons for which a url is pruned.
+     */
+    public enum Trap {
+        /** The host already had {@link FrontierConfig#getMaxPagesPerHost()} urls scheduled. */
+        HOST_BUDGET,
+        /** A run of path segments repeats more than {@link FrontierConfig#getMaxPathRepetitions()} times. */
+        PATH_REPETITION,
+        /**
+         * A query parameter of the host, or of the path, already had
+         * {@link FrontierConfig#getMaxQueryParameterValues()} distinct values.
+         */
+        QUERY_PARAMETER_CARDINALITY
+    }
+
+    private final int maxPagesPerHost;
+    private final int maxPathRepetitions;
+    private final int maxQueryParameterValues;
+    private final boolean queryParameterLimitPerPath;
+
+    private final ConcurrentMap<String, AtomicInteger> hostBudgets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<Long>> parameterValues;
+    private final Map<Trap, LongAdder> prunedUrls = new EnumMap<>(Trap.class);
+
+    public CrawlTrapFilter(CrawlConfig config) {
+        FrontierConfig frontierConfig = config.getFrontierConfig();
+        this.maxPagesPerHost = frontierConfig.getMaxPagesPerHost();
+        this.maxPathRepetitions = frontierConfig.getMaxPathRepetitions();
+        this.maxQueryParameterValues = frontierConfig.getMaxQueryParameterValues();
+        this.queryParameterLimitPerPath = frontierConfig.isQueryParameterLimitPerPath();
+        this.parameterValues = CacheBuilder.newBuilder()
+                                           .maximumSize(frontierConfig.getMaxTrackedQueryParameters())
+                                           .<String, Set<Long>>build()
+                                           .asMap();
+        for (Trap trap : Trap.values()) {
+            prunedUrls.put(trap, new LongAdder());
+        }
+    }
+
+    /**
+     * @return true if any of the limits of the given frontier settings is enabled
+     */
+    public static boolean isEnabled(FrontierConfig frontierConfig) {
+        return (frontierConfig.getMaxPagesPerHost() > 0) || (frontierConfig.getMaxPathRepetitions() > 0) ||
+               (frontierConfig.getMaxQueryParameterValues() > 0);
+    }
+
+    /**
+     * Checks a url which is about to be scheduled. If the url is accepted, it is counted
+     * against the budget of its host and its query parameter values are remembered.
+     *
+     * @param webUrl the url to schedule
+     * @return the trap the url falls into, or null if it may be scheduled
+     */
+    public Trap check(WebURL webUrl) {
+        Trap trap = findTrap(webUrl);
+        if (trap != null) {
+            prunedUrls.get(trap).increment();
+        }
+        return trap;
+    }
+
+    private Trap findTrap(WebURL webUrl) {
+        if ((maxPathRepetitions > 0) && hasRepeatedSegments(webUrl.getPath(), maxPathRepetitions)) {
+            return Trap.PATH_REPETITION;
+        }
+
+        List<String> parameterKeys = null;
+        List<Long> parameterHashes = null;
+        if (maxQueryParameterValues > 0) {
+            String url = webUrl.getURL();
+            int queryIdx = url.indexOf('?');
+            if (queryIdx >= 0) {
+                parameterKeys = new ArrayList<>();
+                parameterHashes = new ArrayList<>();
+                String prefix = webUrl.getHost() + (queryParameterLimitPerPath ? webUrl.getPath() : "") + '?';
+                for (String parameter : url.substring(queryIdx + 1).split("&")) {
+                    int valueIdx = parameter.indexOf('=');
+                    String name = (valueIdx >= 0) ? parameter.substring(0, valueIdx) : parameter;
+                    String value = (valueIdx >= 0) ? parameter.substring(valueIdx + 1) : "";
+                    String key = prefix + name;
+                    long hash = Hashing.murmur3_128().hashString(value, StandardCharsets.UTF_8).asLong();
+                    Set<Long> values = parameterValues.get(key);
+                    if ((values != null) && !values.contains(hash) && (values.size() >= maxQueryParameterValues)) {
+                        return Trap.QUERY_PARAMETER_CARDINALITY;
+                    }
+                    parameterKeys.add(key);
+                    parameterHashes.add(hash);
+                }
+            }
+        }
+
+        if (maxPagesPerHost > 0) {
+            AtomicInteger budget = hostBudgets.computeIfAbsent(webUrl.getHost(), k -> new AtomicInteger());
+            if (budget.getAndIncrement() >= maxPagesPerHost) {
+                return Trap.HOST_BUDGET;
+            }
+        }
+
+        if (parameterKeys != null) {
+            for (int i = 0; i < parameterKeys.size(); i++) {
+                String key = parameterKeys.get(i);
+                Set<Long> values = parameterValues.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet());
+                if (values.size() < maxQueryParameterValues) {
+                    values.add(parameterHashes.get(i));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tells whether a run of consecutive path segments repeats more than the given number
+     * of times, as in {@code /a/b/a/b/a/b} which repeats {@code a/b} three times. Such paths
+     * usually come from relative links resolved against ever deeper paths.
+     */
+    static boolean hasRepeatedSegments(String path, int maxRepetitions) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        int count = segments.size();
+        for (int length = 1; (length * (maxRepetitions + 1)) <= count; length++) {
+            // A run of length repeated k times makes (k - 1) * length consecutive segments
+            // equal to the segment one run further
+            int matching = 0;
+            for (int i = 0; (i + length) < count; i++) {
+                if (segments.get(i).equals(segments.get(i + length))) {
+                    matching++;
+                    if (matching >= (length * maxRepetitions)) {
+                        return true;
+                    }
+                } else {
+                    matching = 0;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param trap the reason of pruning
+     * @return the number of urls pruned for this reason since the crawl started
+     */
+    public long getPrunedUrls(Trap trap) {
+        return prunedUrls.get(trap).sum();
+    }
+
+    /**
+     * @return the number of urls pruned for any reason since the crawl started
+     */
+    public long getPrunedUrls() {
+        long total = 0;
+        for (LongAdder adder : prunedUrls.values()) {
+            total += adder.sum();
+        }
+        return total;
+    }
+}
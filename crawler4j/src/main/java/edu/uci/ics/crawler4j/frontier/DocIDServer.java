@@ -17,20 +17,42 @@
 
 package edu.uci.ics.crawler4j.frontier;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.UnsignedBytes;
+import com.sleepycat.je.Cursor;
 import com.sleepycat.je.Database;
 import com.sleepycat.je.DatabaseConfig;
 import com.sleepycat.je.DatabaseEntry;
 import com.sleepycat.je.DatabaseException;
 import com.sleepycat.je.Environment;
 import com.sleepycat.je.OperationStatus;
+import com.sleepycat.je.Transaction;
 
 import edu.uci.ics.crawler4j.crawler.CrawlConfig;
 import edu.uci.ics.crawler4j.util.Util;
 
 /**
+ * Maps every seen url to its docid. By default the url itself is the key of the
+ * DocIDs database. When {@link FrontierConfig#getDocIdFingerprintBits()} is set, a
+ * fixed width fingerprint of the url is the key instead, and the url is stored
+ * next to the docid to detect collisions. A url whose fingerprint is already
+ * taken by another url is stored under the next free key.
+ *
  * @author Yasser Ganjisaffar
  */
 
@@ -38,28 +60,227 @@ public class DocIDServer {
     private static final Logger logger = LoggerFactory.getLogger(DocIDServer.class);
 
     private final Database docIDsDB;
+    private final Environment env;
     private static final String DATABASE_NAME = "DocIDs";
+    private static final String FINGERPRINT_DATABASE_NAME = "DocIDsByFingerprint";
+
+    private static final int MIGRATION_BATCH_SIZE = 10000;
+
+    private static final HashFunction FINGERPRINT_FUNCTION = Hashing.murmur3_128();
 
     private final Object mutex = new Object();
 
     private CrawlConfig config;
     private int lastDocID;
 
+    /**
+     * Length of the fingerprint keys in bytes, or 0 if urls are the keys.
+     */
+    private final int fingerprintLength;
+
+    /**
+     * Holds the keys of all urls which have a docid, so that most lookups of unseen
+     * urls are answered without locking and without reading the database. Keys are
+     * added before they are written to the database. Null if disabled.
+     */
+    private final BloomFilter<byte[]> seenFilter;
+
     public DocIDServer(Environment env, CrawlConfig config) {
+        this.env = env;
         this.config = config;
-        DatabaseConfig dbConfig = new DatabaseConfig();
-        dbConfig.setAllowCreate(true);
-        dbConfig.setTransactional(config.isResumableCrawling());
-        dbConfig.setDeferredWrite(!config.isResumableCrawling());
+        FrontierConfig frontierConfig = config.getFrontierConfig();
+        this.fingerprintLength = frontierConfig.getDocIdFingerprintBits() / 8;
         lastDocID = 0;
-        docIDsDB = env.openDatabase(null, DATABASE_NAME, dbConfig);
+        docIDsDB = openDatabase(getDatabaseName(fingerprintLength));
+        if (frontierConfig.getDocIdFilterExpectedUrls() > 0) {
+            seenFilter = BloomFilter.create(Funnels.byteArrayFunnel(), frontierConfig.getDocIdFilterExpectedUrls(),
+                                            frontierConfig.getDocIdFilterFalsePositiveRate());
+        } else {
+            seenFilter = null;
+        }
         if (config.isResumableCrawling()) {
+            migrateDatabases();
             int docCount = getDocCount();
             if (docCount > 0) {
                 logger.info("Loaded {} URLs that had been detected in previous crawl.", docCount);
                 lastDocID = docCount;
+                loadSeenFilter(docCount);
+            }
+        }
+    }
+
+    /**
+     * Constructor for subclasses which do not keep the docids in the DocIDs database.
+     * They have to override all public methods of this class.
+     *
+     * @param config the configuration of the crawl
+     */
+    protected DocIDServer(CrawlConfig config) {
+        this.env = null;
+        this.config = config;
+        this.fingerprintLength = 0;
+        this.docIDsDB = null;
+        this.seenFilter = null;
+    }
+
+    private static String getDatabaseName(int fingerprintLength) {
+        return fingerprintLength == 0 ? DATABASE_NAME : (FINGERPRINT_DATABASE_NAME + (fingerprintLength * 8));
+    }
+
+    private Database openDatabase(String dbName) {
+        DatabaseConfig dbConfig = new DatabaseConfig();
+        dbConfig.setAllowCreate(true);
+        dbConfig.setTransactional(config.isResumableCrawling());
+        dbConfig.setDeferredWrite(!config.isResumableCrawling());
+        return env.openDatabase(null, dbName, dbConfig);
+    }
+
+    /*
+     * Moves the urls of a previous crawl which used another key format into the
+     * database of the configured format, so that switching formats keeps the docids.
+     */
+    private void migrateDatabases() {
+        for (int length : new int[] {0, 8, 16}) {
+            String dbName = getDatabaseName(length);
+            if ((length == fingerprintLength) || !env.getDatabaseNames().contains(dbName)) {
+                continue;
+            }
+            logger.info("Migrating URLs seen in previous crawl from {} to {}", dbName,
+                        getDatabaseName(fingerprintLength));
+            Database oldDB = openDatabase(dbName);
+            long migrated = 0;
+            DatabaseEntry key = new DatabaseEntry();
+            DatabaseEntry value = new DatabaseEntry();
+            synchronized (mutex) {
+                Transaction txn = env.beginTransaction(null, null);
+                try (Cursor cursor = oldDB.openCursor(null, null)) {
+                    while (cursor.getNext(key, value, null) == OperationStatus.SUCCESS) {
+                        String url = length == 0 ? new String(key.getData())
+                                                 : new String(value.getData(), 4, value.getSize() - 4,
+                                                              StandardCharsets.UTF_8);
+                        int docId = Util.byteArray2Int(value.getData());
+                        if (lookup(txn, url, getKey(url)) < 0) {
+                            store(txn, url, getKey(url), docId);
+                        }
+                        if ((++migrated % MIGRATION_BATCH_SIZE) == 0) {
+                            txn.commit();
+                            txn = env.beginTransaction(null, null);
+                        }
+                    }
+                }
+                txn.commit();
+            }
+            oldDB.close();
+            env.removeDatabase(null, dbName);
+            logger.info("Migrated {} URLs from {}", migrated, dbName);
+        }
+    }
+
+    /*
+     * Rebuilds the filter from the keys of the database when resuming a crawl.
+     */
+    private void loadSeenFilter(int docCount) {
+        if (seenFilter == null) {
+            return;
+        }
+        long expectedUrls = config.getFrontierConfig().getDocIdFilterExpectedUrls();
+        if (docCount > expectedUrls) {
+            logger.warn("{} URLs were seen in previous crawl, more than the {} expected by the filter. " +
+                        "Its false positive rate will be higher.", docCount,
+                        expectedUrls);
+        }
+        DatabaseEntry key = new DatabaseEntry();
+        DatabaseEntry value = new DatabaseEntry();
+        value.setPartial(0, 0, true);
+        try (Cursor cursor = docIDsDB.openCursor(null, null)) {
+            while (cursor.getNext(key, value, null) == OperationStatus.SUCCESS) {
+                seenFilter.put(key.getData());
+            }
+        }
+    }
+
+    private byte[] getKey(String url) {
+        if (fingerprintLength == 0) {
+            return url.getBytes();
+        }
+        byte[] hash = FINGERPRINT_FUNCTION.hashString(url, StandardCharsets.UTF_8).asBytes();
+        return Arrays.copyOf(hash, fingerprintLength);
+    }
+
+    /*
+     * Must be called while holding the mutex. Returns the docid of the url, or -1.
+     */
+    private int lookup(Transaction txn, String url, byte[] keyData) {
+        DatabaseEntry key = new DatabaseEntry(keyData);
+        DatabaseEntry value = new DatabaseEntry();
+        while (docIDsDB.get(txn, key, value, null) == OperationStatus.SUCCESS) {
+            if (value.getData().length == 0) {
+                return -1;
+            }
+            if ((fingerprintLength == 0) || isStoredUrl(value, url)) {
+                return Util.byteArray2Int(value.getData());
+            }
+            // Fingerprint collision, the url may be stored under one of the next keys
+            key.setData(nextKey(key.getData()));
+        }
+        return -1;
+    }
+
+    /*
+     * Must be called while holding the mutex, for a url which has no docid yet. Returns
+     * the key under which the url is stored, which is the next free key after keyData
+     * if the fingerprint of another url already has that key.
+     */
+    private byte[] store(Transaction txn, String url, byte[] keyData, int docId) {
+        markSeen(keyData);
+        if (fingerprintLength == 0) {
+            docIDsDB.put(txn, new DatabaseEntry(keyData), new DatabaseEntry(Util.int2ByteArray(docId)));
+            return keyData;
+        }
+        byte[] urlBytes = url.getBytes(StandardCharsets.UTF_8);
+        byte[] valueData = new byte[4 + urlBytes.length];
+        Util.putIntInByteArray(docId, valueData, 0);
+        System.arraycopy(urlBytes, 0, valueData, 4, urlBytes.length);
+
+        DatabaseEntry key = new DatabaseEntry(keyData);
+        DatabaseEntry value = new DatabaseEntry(valueData);
+        while (docIDsDB.putNoOverwrite(txn, key, value) == OperationStatus.KEYEXIST) {
+            key.setData(nextKey(key.getData()));
+        }
+        return key.getData();
+    }
+
+    private static boolean isStoredUrl(DatabaseEntry value, String url) {
+        byte[] urlBytes = url.getBytes(StandardCharsets.UTF_8);
+        byte[] data = value.getData();
+        if (data.length != (4 + urlBytes.length)) {
+            return false;
+        }
+        for (int i = 0; i < urlBytes.length; i++) {
+            if (data[4 + i] != urlBytes[i]) {
+                return false;
             }
         }
+        return true;
+    }
+
+    private static byte[] nextKey(byte[] key) {
+        byte[] next = key.clone();
+        for (int i = next.length - 1; i >= 0; i--) {
+            if (++next[i] != 0) {
+                break;
+            }
+        }
+        return next;
+    }
+
+    /*
+     * Must be called while holding the mutex, before the key is written to the database.
+     */
+    private void markSeen(byte[] key) {
+        if (seenFilter != null) {
+            seenFilter.put(key);
+        }
     }
 
     /**
@@ -69,13 +290,13 @@ public class DocIDServer {
      * @return the docid of the url if it is seen before. Otherwise -1 is returned.
      */
     public int getDocId(String url) {
+        byte[] keyData = getKey(url);
+        if ((seenFilter != null) && !seenFilter.mightContain(keyData)) {
+            return -1;
+        }
         synchronized (mutex) {
-            OperationStatus result = null;
-            DatabaseEntry value = new DatabaseEntry();
             try {
-                DatabaseEntry key = new DatabaseEntry(url.getBytes());
-                result = docIDsDB.get(null, key, value, null);
-
+                return lookup(null, url, keyData);
             } catch (RuntimeException e) {
                 if (config.isHaltOnError()) {
                     throw e;
@@ -84,12 +305,6 @@ public class DocIDServer {
                     return -1;
                 }
             }
-
-            if ((result == OperationStatus.SUCCESS) && (value.getData().length > 0)) {
-                return Util.byteArray2Int(value.getData());
-            }
-
-            return -1;
         }
     }
 
@@ -103,8 +318,7 @@ public class DocIDServer {
                 }
 
                 ++lastDocID;
-                docIDsDB.put(null, new DatabaseEntry(url.getBytes()),
-                             new DatabaseEntry(Util.int2ByteArray(lastDocID)));
+                store(null, url, getKey(url), lastDocID);
                 return lastDocID;
             } catch (RuntimeException e) {
                 if (config.isHaltOnError()) {
@@ -117,6 +331,98 @@ public class DocIDServer {
         }
     }
 
+    /**
+     * Returns the docids of the already seen urls among the given ones.
+     *
+     * @param urls the URLs to look up
+     * @return the docid of every url which is seen before, keyed by url
+     */
+    public Map<String, Integer> getDocIds(Collection<String> urls) {
+        return resolve(urls, false);
+    }
+
+    /**
+     * Returns the docids of the given urls, and assigns new docids to the urls which
+     * are not seen before. This is the batch counterpart of {@link #getNewDocID(String)}:
+     * the whole batch is resolved under a single lock acquisition, probing the database
+     * in key order, and the new docids are written in a single transaction. If the batch
+     * fails, none of its new docids are kept, even when the crawl is not resumable.
+     *
+     * @param urls the URLs to resolve
+     * @return the docid of every url, keyed by url. It is -1 for the urls which could not
+     *         be resolved because of an error.
+     */
+    public Map<String, Integer> resolveOrAssign(Collection<String> urls) {
+        return resolve(urls, true);
+    }
+
+    private Map<String, Integer> resolve(Collection<String> urls, boolean assign) {
+        Map<String, Integer> docIds = new HashMap<>();
+        Map<String, byte[]> keys = new HashMap<>();
+        for (String url : urls) {
+            byte[] key = getKey(url);
+            if (assign || (seenFilter == null) || seenFilter.mightContain(key)) {
+                keys.put(url, key);
+            }
+        }
+        if (keys.isEmpty()) {
+            return docIds;
+        }
+        // Neighbouring keys share B-tree nodes, which are then read only once
+        List<String> sortedUrls = new ArrayList<>(keys.keySet());
+        sortedUrls.sort(Comparator.comparing(keys::get, UnsignedBytes.lexicographicalComparator()));
+
+        synchronized (mutex) {
+            Transaction txn = null;
+            int prevLastDocID = lastDocID;
+            // Without a transaction, the docids stored so far are deleted if the batch fails
+            List<byte[]> storedKeys = new ArrayList<>();
+            try {
+                if (assign && config.isResumableCrawling()) {
+                    txn = env.beginTransaction(null, null);
+                }
+                for (String url : sortedUrls) {
+                    byte[] key = keys.get(url);
+                    int docId = -1;
+                    if ((seenFilter == null) || seenFilter.mightContain(key)) {
+                        docId = lookup(txn, url, key);
+                    }
+                    if ((docId < 0) && assign) {
+                        docId = ++lastDocID;
+                        storedKeys.add(store(txn, url, key, docId));
+                    }
+                    if (docId > 0) {
+                        docIds.put(url, docId);
+                    }
+                }
+                if (txn != null) {
+                    txn.commit();
+                }
+            } catch (RuntimeException e) {
+                if (txn != null) {
+                    txn.abort();
+                } else {
+                    for (byte[] storedKey : storedKeys) {
+                        docIDsDB.delete(null, new DatabaseEntry(storedKey));
+                    }
+                }
+                lastDocID = prevLastDocID;
+                if (config.isHaltOnError()) {
+                    throw e;
+                } else {
+                    logger.error("Exception thrown while resolving DocIDs", e);
+                    docIds.clear();
+                }
+            }
+        }
+        if (assign) {
+            for (String url : urls) {
+                docIds.putIfAbsent(url, -1);
+            }
+        }
+        return docIds;
+    }
+
     public void addUrlAndDocId(String url, int docId) {
         synchronized (mutex) {
             if (docId <= lastDocID) {
@@ -133,8 +439,7 @@ public class DocIDServer {
                 throw new IllegalArgumentException("Doc id: " + prevDocid + " is already assigned to URL: " + url);
             }
 
-            docIDsDB.put(null, new DatabaseEntry(url.getBytes()),
-                         new DatabaseEntry(Util.int2ByteArray(docId)));
+            store(null, url, getKey(url), docId);
             lastDocID = docId;
         }
     }
@@ -143,7 +448,7 @@ public class DocIDServer {
         return getDocId(url) != -1;
     }
 
-    public final int getDocCount() {
+    public int getDocCount() {
         try {
             return (int) docIDsDB.count();
         } catch (DatabaseException e) {
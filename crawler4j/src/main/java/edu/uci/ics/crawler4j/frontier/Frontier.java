@@ -18,6 +18,10 @@
 package edu.uci.ics.crawler4j.frontier;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,16 +40,24 @@ public class Frontier {
     protected static final Logger logger = LoggerFactory.getLogger(Frontier.class);
 
     private static final String DATABASE_NAME = "PendingURLsDB";
+    private static final String HOST_PARTITIONED_DATABASE_NAME = "PendingURLsByHostDB";
     private static final int IN_PROCESS_RESCHEDULE_BATCH_SIZE = 100;
-    private final CrawlConfig config;
+    protected final CrawlConfig config;
     protected WorkQueues workQueues;
 
     protected InProcessPagesDB inProcessPages;
 
     protected final Object mutex = new Object();
+    /**
+     * @deprecated threads waiting for urls wait on {@link #urlsAvailable}, which does
+     * not pin the carrier of a virtual thread. This object is not used anymore.
+     */
+    @Deprecated
     protected final Object waitingList = new Object();
+    protected final Lock waitingLock = new ReentrantLock();
+    protected final Condition urlsAvailable = waitingLock.newCondition();
 
-    protected boolean isFinished = false;
+    protected volatile boolean isFinished = false;
 
     protected long scheduledPages;
 
@@ -55,7 +67,7 @@ public class Frontier {
         this.config = config;
         this.counters = new Counters(env, config);
         try {
-            workQueues = new WorkQueues(env, DATABASE_NAME, config.isResumableCrawling());
+            workQueues = createWorkQueues(env, getWorkQueuesName());
             if (config.isResumableCrawling()) {
                 scheduledPages = counters.getValue(Counters.ReservedCounterNames.SCHEDULED_PAGES);
                 inProcessPages = new InProcessPagesDB(env);
@@ -65,9 +77,13 @@ public class Frontier {
                                 numPreviouslyInProcessPages);
                     scheduledPages -= numPreviouslyInProcessPages;
 
+                    // The urls are deleted only once they are back in the work queues, where
+                    // putting them again after a crash overwrites the same keys
                     List<WebURL> urls = inProcessPages.get(IN_PROCESS_RESCHEDULE_BATCH_SIZE);
                     while (!urls.isEmpty()) {
-                        scheduleAll(urls);
+                        synchronized (mutex) {
+                            putAll(urls);
+                        }
                         inProcessPages.delete(urls.size());
                         urls = inProcessPages.get(IN_PROCESS_RESCHEDULE_BATCH_SIZE);
                     }
@@ -82,31 +98,60 @@ public class Frontier {
         }
     }
 
+    /**
+     * @return the name of the database which holds the pending urls
+     */
+    protected String getWorkQueuesName() {
+        return config.getFrontierConfig().isHostPartitionedFrontier() ? HOST_PARTITIONED_DATABASE_NAME : DATABASE_NAME;
+    }
+
+    /**
+     * Opens the work queues which store the pending urls, according to the frontier
+     * mode configured in {@link FrontierConfig}.
+     *
+     * @param env the environment in which the database is opened
+     * @param dbName the name of the database
+     * @return the work queues
+     */
+    protected WorkQueues createWorkQueues(Environment env, String dbName) {
+        if (config.getFrontierConfig().isHostPartitionedFrontier()) {
+            return new HostWorkQueues(env, dbName, config.isResumableCrawling(),
+                                      config.getPolitenessDelay());
+        }
+        return new WorkQueues(env, dbName, config.isResumableCrawling());
+    }
+
     public void scheduleAll(List<WebURL> urls) {
-        int maxPagesToFetch = config.getMaxPagesToFetch();
         synchronized (mutex) {
-            int newScheduledPage = 0;
-            for (WebURL url : urls) {
-                if ((maxPagesToFetch > 0) &&
-                    ((scheduledPages + newScheduledPage) >= maxPagesToFetch)) {
-                    break;
-                }
+            putAll(urls);
+        }
+        signalUrlsAvailable();
+    }
 
-                try {
-                    workQueues.put(url);
-                    newScheduledPage++;
-                } catch (DatabaseException e) {
-                    logger.error("Error while putting the url in the work queue", e);
-                }
-            }
-            if (newScheduledPage > 0) {
-                scheduledPages += newScheduledPage;
-                counters.increment(Counters.ReservedCounterNames.SCHEDULED_PAGES, newScheduledPage);
+    /*
+     * Must be called while holding the mutex. It is also used by the constructor,
+     * which therefore does not call any method that subclasses may override.
+     */
+    private void putAll(List<WebURL> urls) {
+        int maxPagesToFetch = config.getMaxPagesToFetch();
+        int newScheduledPage = 0;
+        for (WebURL url : urls) {
+            if ((maxPagesToFetch > 0) &&
+                ((scheduledPages + newScheduledPage) >= maxPagesToFetch)) {
+                break;
             }
-            synchronized (waitingList) {
-                waitingList.notifyAll();
+
+            try {
+                workQueues.put(url);
+                newScheduledPage++;
+            } catch (DatabaseException e) {
+                logger.error("Error while putting the url in the work queue", e);
             }
         }
+        if (newScheduledPage > 0) {
+            scheduledPages += newScheduledPage;
+            counters.increment(Counters.ReservedCounterNames.SCHEDULED_PAGES, newScheduledPage);
+        }
     }
 
     public void schedule(WebURL url) {
@@ -122,23 +167,18 @@ public class Frontier {
                 logger.error("Error while putting the url in the work queue", e);
             }
         }
+        signalUrlsAvailable();
     }
 
     public void getNextURLs(int max, List<WebURL> result) {
         while (true) {
+            long readyDelay = -1;
             synchronized (mutex) {
                 if (isFinished) {
                     return;
                 }
                 try {
-                    List<WebURL> curResults = workQueues.get(max);
-                    workQueues.delete(curResults.size());
-                    if (inProcessPages != null) {
-                        for (WebURL curPage : curResults) {
-                            inProcessPages.put(curPage);
-                        }
-                    }
-                    result.addAll(curResults);
+                    result.addAll(workQueues.claim(max, inProcessPages));
                 } catch (DatabaseException e) {
                     logger.error("Error while getting next urls", e);
                 }
@@ -146,14 +186,21 @@ public class Frontier {
                 if (result.size() > 0) {
                     return;
                 }
+                readyDelay = workQueues.getMillisUntilNextReady();
             }
 
+            waitingLock.lock();
             try {
-                synchronized (waitingList) {
-                    waitingList.wait();
+                if (readyDelay > 0) {
+                    // Some urls are pending, but none of them may be fetched right now
+                    urlsAvailable.await(readyDelay, TimeUnit.MILLISECONDS);
+                } else if (!isFinished) {
+                    urlsAvailable.await();
                 }
             } catch (InterruptedException ignored) {
                 // Do nothing
+            } finally {
+                waitingLock.unlock();
             }
             if (isFinished) {
                 return;
@@ -204,8 +251,15 @@ public class Frontier {
 
     public void finish() {
         isFinished = true;
-        synchronized (waitingList) {
-            waitingList.notifyAll();
+        signalUrlsAvailable();
+    }
+
+    private void signalUrlsAvailable() {
+        waitingLock.lock();
+        try {
+            urlsAvailable.signalAll();
+        } finally {
+            waitingLock.unlock();
         }
     }
 }
@@ -0,0 +1,419 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.frontier;
+
+import edu.uci.ics.crawler4j.crawler.CrawlConfig;
+
+/**
+ * Settings of the frontier and of the {@link DocIDServer}, available through
+ * {@link CrawlConfig#getFrontierConfig()}.
+ */
+public class FrontierConfig {
+
+    /**
+     * Should the frontier partition the pending URLs by host? If enabled, each batch
+     * handed to a crawler thread round-robins over the hosts which may be fetched,
+     * instead of following the global crawl order.
+     */
+    private boolean hostPartitionedFrontier = false;
+
+    /**
+     * Should the frontier use striped locks instead of a single mutex, so that crawler
+     * threads schedule and claim URLs concurrently?
+     */
+    private boolean concurrentFrontier = false;
+
+    /**
+     * Number of independently locked work queues of the concurrent frontier.
+     */
+    private int frontierStripes = 8;
+
+    /**
+     * Maximum time in milliseconds between two writes of the counters to the
+     * statistics database, when crawling is resumable.
+     */
+    private long countersFlushInterval = 1000;
+
+    /**
+     * Number of counter updates after which the counters are written to the
+     * statistics database, when crawling is resumable.
+     */
+    private int countersFlushBatchSize = 1000;
+
+    /**
+     * Expected number of distinct URLs, used to size the membership filter in front of
+     * the docid database. 0 disables the filter.
+     */
+    private long docIdFilterExpectedUrls = 0;
+
+    /**
+     * Acceptable false positive rate of the membership filter in front of the docid database.
+     */
+    private double docIdFilterFalsePositiveRate = 0.01;
+
+    /**
+     * Width in bits of the url fingerprints which key the docid database, or 0 to key it
+     * by the urls themselves.
+     */
+    private int docIdFingerprintBits = 0;
+
+    /**
+     * Should non resumable crawls keep the seen urls in an off heap hash table instead
+     * of the docid database?
+     */
+    private boolean offHeapDocIdIndex = false;
+
+    /**
+     * Number of urls the off heap docid index is sized for when the crawl starts.
+     */
+    private long offHeapDocIdIndexInitialCapacity = 1 << 20;
+
+    /**
+     * Maximum number of outgoing links scheduled per host, or 0 for no limit.
+     */
+    private int maxPagesPerHost = 0;
+
+    /**
+     * Maximum number of times a run of path segments may repeat in a scheduled url,
+     * or 0 for no limit.
+     */
+    private int maxPathRepetitions = 0;
+
+    /**
+     * Maximum number of distinct values of a query parameter of a host, or 0 for no limit.
+     */
+    private int maxQueryParameterValues = 0;
+
+    /**
+     * Should the distinct values of query parameters be counted per path instead of per host?
+     */
+    private boolean queryParameterLimitPerPath = false;
+
+    /**
+     * Maximum number of query parameters whose distinct values are tracked.
+     */
+    private int maxTrackedQueryParameters = 100000;
+
+    /**
+     * Validates the configs specified by this instance.
+     *
+     * @throws Exception on Validation fail
+     */
+    public void validate() throws Exception {
+        if (docIdFilterExpectedUrls < 0) {
+            throw new Exception("Invalid value for expected urls of the docid filter: " +
+                                docIdFilterExpectedUrls);
+        }
+        if ((docIdFilterFalsePositiveRate <= 0) || (docIdFilterFalsePositiveRate >= 1)) {
+            throw new Exception("Invalid value for false positive rate of the docid filter: " +
+                                docIdFilterFalsePositiveRate);
+        }
+        if ((docIdFingerprintBits != 0) && (docIdFingerprintBits != 64) && (docIdFingerprintBits != 128)) {
+            throw new Exception("Invalid value for docid fingerprint bits: " + docIdFingerprintBits +
+                                ". It should be 0, 64 or 128");
+        }
+        if (offHeapDocIdIndexInitialCapacity < 0) {
+            throw new Exception("Invalid value for initial capacity of the off heap docid index: " +
+                                offHeapDocIdIndexInitialCapacity);
+        }
+        if (frontierStripes < 1) {
+            throw new Exception("Invalid value for frontier stripes: " + frontierStripes);
+        }
+        if (maxPagesPerHost < 0) {
+            throw new Exception("Invalid value for maximum pages per host: " + maxPagesPerHost);
+        }
+        if (maxPathRepetitions < 0) {
+            throw new Exception("Invalid value for maximum path repetitions: " + maxPathRepetitions);
+        }
+        if (maxQueryParameterValues < 0) {
+            throw new Exception("Invalid value for maximum query parameter values: " + maxQueryParameterValues);
+        }
+        if (maxTrackedQueryParameters < 1) {
+            throw new Exception("Invalid value for maximum tracked query parameters: " + maxTrackedQueryParameters);
+        }
+    }
+
+    public boolean isHostPartitionedFrontier() {
+        return hostPartitionedFrontier;
+    }
+
+    /**
+     * Partition the pending URLs by host. Batches returned to the crawler threads then
+     * contain at most one URL per host, and a host is handed out again only once its
+     * politeness delay has passed. URLs of the same host keep their crawl order, but
+     * the order across hosts is no longer global.
+     *
+     * The pending URLs of both modes are stored separately, so a resumable crawl should
+     * not switch modes between runs.
+     *
+     * @param hostPartitionedFrontier {@code true} to partition the frontier by host
+     */
+    public void setHostPartitionedFrontier(boolean hostPartitionedFrontier) {
+        this.hostPartitionedFrontier = hostPartitionedFrontier;
+    }
+
+    public boolean isConcurrentFrontier() {
+        return concurrentFrontier;
+    }
+
+    /**
+     * Use a frontier which spreads the pending URLs over several work queues, each with
+     * its own lock, instead of serializing all crawler threads on a single mutex. Idle
+     * threads are woken one by one as URLs are scheduled. The crawl order is kept
+     * within each work queue only.
+     *
+     * @param concurrentFrontier {@code true} to use the concurrent frontier
+     * @see #setFrontierStripes(int)
+     */
+    public void setConcurrentFrontier(boolean concurrentFrontier) {
+        this.concurrentFrontier = concurrentFrontier;
+    }
+
+    public int getFrontierStripes() {
+        return frontierStripes;
+    }
+
+    /**
+     * Number of work queues of the concurrent frontier. A value around the number of
+     * crawler threads divided by four is usually enough to avoid contention. When a
+     * resumable crawl is restarted with fewer stripes, the pending URLs of the removed
+     * stripes are moved to the remaining ones.
+     *
+     * @param frontierStripes the number of work queues, at least 1
+     */
+    public void setFrontierStripes(int frontierStripes) {
+        this.frontierStripes = frontierStripes;
+    }
+
+    public long getCountersFlushInterval() {
+        return countersFlushInterval;
+    }
+
+    /**
+     * Maximum time in milliseconds during which counter updates, such as the number of
+     * scheduled and processed pages, are only kept in memory when crawling is resumable.
+     * A background thread writes them at this interval, and as soon as
+     * {@link #setCountersFlushBatchSize(int)} updates are pending. They are also written
+     * when the crawl shuts down. After a crash, the counters of a resumed crawl may
+     * therefore lag slightly behind. Use 0 to write every update from the updating thread.
+     *
+     * @param countersFlushInterval the interval in milliseconds
+     */
+    public void setCountersFlushInterval(long countersFlushInterval) {
+        this.countersFlushInterval = countersFlushInterval;
+    }
+
+    public int getCountersFlushBatchSize() {
+        return countersFlushBatchSize;
+    }
+
+    /**
+     * Number of counter updates after which the background thread is asked to write the
+     * counters to the statistics database, when crawling is resumable.
+     *
+     * @param countersFlushBatchSize the number of updates
+     * @see #setCountersFlushInterval(long)
+     */
+    public void setCountersFlushBatchSize(int countersFlushBatchSize) {
+        this.countersFlushBatchSize = countersFlushBatchSize;
+    }
+
+    public long getDocIdFilterExpectedUrls() {
+        return docIdFilterExpectedUrls;
+    }
+
+    /**
+     * Enables an in-memory Bloom filter in front of the docid database, sized for the given
+     * number of distinct URLs. Lookups of URLs which have never been seen, which are most
+     * of the outgoing links of a page, are then answered without reading the database.
+     * The filter takes about 1.2 bytes per expected URL at a false positive rate of 1%,
+     * and is rebuilt from the database when a crawl is resumed. If more URLs than expected
+     * are seen, the filter keeps working but lets more lookups through.
+     *
+     * @param docIdFilterExpectedUrls the expected number of URLs, or 0 to disable the filter
+     */
+    public void setDocIdFilterExpectedUrls(long docIdFilterExpectedUrls) {
+        this.docIdFilterExpectedUrls = docIdFilterExpectedUrls;
+    }
+
+    public double getDocIdFilterFalsePositiveRate() {
+        return docIdFilterFalsePositiveRate;
+    }
+
+    /**
+     * @param docIdFilterFalsePositiveRate the acceptable rate of lookups of unseen URLs which
+     *                                     still read the docid database, between 0 and 1
+     */
+    public void setDocIdFilterFalsePositiveRate(double docIdFilterFalsePositiveRate) {
+        this.docIdFilterFalsePositiveRate = docIdFilterFalsePositiveRate;
+    }
+
+    public int getDocIdFingerprintBits() {
+        return docIdFingerprintBits;
+    }
+
+    /**
+     * Key the docid database by a 64 or 128 bit fingerprint of each URL instead of the
+     * URL itself. The keys of the B-tree then have a small fixed width, so that its
+     * internal nodes fit in the cache of large crawls. The URL is still stored with its
+     * docid, so fingerprint collisions are detected and resolved.
+     *
+     * When a resumable crawl is restarted with another setting, the URLs seen so far are
+     * migrated to the new key format on startup.
+     *
+     * @param docIdFingerprintBits 64 or 128, or 0 to key the database by URL
+     */
+    public void setDocIdFingerprintBits(int docIdFingerprintBits) {
+        this.docIdFingerprintBits = docIdFingerprintBits;
+    }
+
+    public boolean isOffHeapDocIdIndex() {
+        return offHeapDocIdIndex;
+    }
+
+    /**
+     * Keep the docids of the seen URLs in a hash table outside of the Java heap instead
+     * of the docid database. Every URL then takes 12 bytes of native memory, divided by
+     * the load factor of the table, and is looked up without locking. URLs are identified
+     * by a 64 bit fingerprint, so two URLs sharing a fingerprint are considered the same.
+     *
+     * Only used when crawling is not resumable, since the table is not persisted.
+     *
+     * @param offHeapDocIdIndex {@code true} to use the off heap index
+     * @see #setOffHeapDocIdIndexInitialCapacity(long)
+     */
+    public void setOffHeapDocIdIndex(boolean offHeapDocIdIndex) {
+        this.offHeapDocIdIndex = offHeapDocIdIndex;
+    }
+
+    public long getOffHeapDocIdIndexInitialCapacity() {
+        return offHeapDocIdIndexInitialCapacity;
+    }
+
+    /**
+     * Number of URLs the off heap docid index can hold before it grows. Growing doubles the
+     * size of a part of the table and briefly blocks the crawler threads using that part,
+     * so large crawls should start with about the number of URLs they expect to see.
+     *
+     * @param offHeapDocIdIndexInitialCapacity the initial number of URLs
+     */
+    public void setOffHeapDocIdIndexInitialCapacity(long offHeapDocIdIndexInitialCapacity) {
+        this.offHeapDocIdIndexInitialCapacity = offHeapDocIdIndexInitialCapacity;
+    }
+
+    public int getMaxPagesPerHost() {
+        return maxPagesPerHost;
+    }
+
+    /**
+     * Limits the number of outgoing links scheduled per host, so that a single site
+     * generating endless pages cannot fill the frontier. Seeds, sitemap urls and
+     * redirects are not counted. Links pruned by this limit are counted by the
+     * {@link CrawlTrapFilter}.
+     *
+     * @param maxPagesPerHost the number of urls scheduled per host, or 0 for no limit
+     */
+    public void setMaxPagesPerHost(int maxPagesPerHost) {
+        this.maxPagesPerHost = maxPagesPerHost;
+    }
+
+    public int getMaxPathRepetitions() {
+        return maxPathRepetitions;
+    }
+
+    /**
+     * Prunes outgoing links whose path repeats a run of segments more than the given
+     * number of times, such as {@code /a/b/a/b/a/b}, which relative links resolved
+     * against ever deeper paths produce.
+     *
+     * @param maxPathRepetitions the number of times a run of segments may repeat, or 0 for no limit
+     */
+    public void setMaxPathRepetitions(int maxPathRepetitions) {
+        this.maxPathRepetitions = maxPathRepetitions;
+    }
+
+    public int getMaxQueryParameterValues() {
+        return maxQueryParameterValues;
+    }
+
+    /**
+     * Prunes outgoing links which would give a query parameter of a host more distinct
+     * values than the given number, such as the dates of a calendar, the combinations of
+     * a faceted search or session ids. Parameters legitimately taking many values, such
+     * as article ids, need a limit above their number of values.
+     *
+     * @param maxQueryParameterValues the number of distinct values per parameter, or 0 for no limit
+     * @see #setQueryParameterLimitPerPath(boolean)
+     */
+    public void setMaxQueryParameterValues(int maxQueryParameterValues) {
+        this.maxQueryParameterValues = maxQueryParameterValues;
+    }
+
+    public boolean isQueryParameterLimitPerPath() {
+        return queryParameterLimitPerPath;
+    }
+
+    /**
+     * Count the distinct values of a query parameter separately for each path of a host,
+     * so that a parameter name used by unrelated pages of a site gets a budget per page.
+     * A parameter spread over many paths, such as a session id, is then bounded only per
+     * path.
+     *
+     * @param queryParameterLimitPerPath {@code true} to count values per path instead of per host
+     */
+    public void setQueryParameterLimitPerPath(boolean queryParameterLimitPerPath) {
+        this.queryParameterLimitPerPath = queryParameterLimitPerPath;
+    }
+
+    public int getMaxTrackedQueryParameters() {
+        return maxTrackedQueryParameters;
+    }
+
+    /**
+     * Number of query parameters, per host or per path, whose distinct values are kept in
+     * memory to enforce {@link #setMaxQueryParameterValues(int)}. The least recently seen
+     * parameters are forgotten beyond it, so that the memory used stays bounded in broad
+     * crawls. Each parameter takes at most the maximum number of values, as 64 bit hashes.
+     *
+     * @param maxTrackedQueryParameters the number of tracked parameters, 100000 by default
+     */
+    public void setMaxTrackedQueryParameters(int maxTrackedQueryParameters) {
+        this.maxTrackedQueryParameters = maxTrackedQueryParameters;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Host partitioned frontier: " + isHostPartitionedFrontier() + "\n");
+        sb.append("Concurrent frontier: " + isConcurrentFrontier() + "\n");
+        sb.append("Frontier stripes: " + getFrontierStripes() + "\n");
+        sb.append("Counters flush interval: " + getCountersFlushInterval() + "\n");
+        sb.append("Counters flush batch size: " + getCountersFlushBatchSize() + "\n");
+        sb.append("DocId filter expected urls: " + getDocIdFilterExpectedUrls() + "\n");
+        sb.append("DocId filter false positive rate: " + getDocIdFilterFalsePositiveRate() + "\n");
+        sb.append("DocId fingerprint bits: " + getDocIdFingerprintBits() + "\n");
+        sb.append("Off heap docid index: " + isOffHeapDocIdIndex() + "\n");
+        sb.append("Off heap docid index initial capacity: " + getOffHeapDocIdIndexInitialCapacity() + "\n");
+        sb.append("Max pages per host: " + getMaxPagesPerHost() + "\n");
+        sb.append("Max path repetitions: " + getMaxPathRepetitions() + "\n");
+        sb.append("Max query parameter values: " + getMaxQueryParameterValues() + "\n");
+        sb.append("Query parameter limit per path: " + isQueryParameterLimitPerPath() + "\n");
+        sb.append("Max tracked query parameters: " + getMaxTrackedQueryParameters() + "\n");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,320 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.frontier;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sleepycat.je.Cursor;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.OperationStatus;
+import com.sleepycat.je.Transaction;
+
+import edu.uci.ics.crawler4j.url.WebURL;
+import edu.uci.ics.crawler4j.util.Util;
+
+/**
+ * Work queues which partition the pending urls by host. Every host has its own
+ * key range in the database, and the hosts which have pending urls are kept in
+ * memory, ordered by the earliest time at which they may be fetched again.
+ * {@link #claim(int, InProcessPagesDB)} round-robins over the ready hosts, so a
+ * batch contains at most one url per host unless the politeness delay of that
+ * host has already passed again.
+ *
+ * Within a host, urls keep the order of {@link WorkQueues} (priority, depth,
+ * docid). Hosts are identified by the hash of their name; two hosts sharing a
+ * hash share a queue, which only reduces the diversity of the batches.
+ */
+public class HostWorkQueues extends WorkQueues {
+    private static final Logger logger = LoggerFactory.getLogger(HostWorkQueues.class);
+
+    private static final int HOST_ID_LENGTH = 4;
+
+    /**
+     * Number of tracked hosts without pending urls after which they are purged.
+     */
+    private static final int MIN_PURGE_THRESHOLD = 10000;
+
+    private static class HostQueue {
+        private final int hostId;
+        private long earliestFetchTime;
+        private boolean ready;
+
+        HostQueue(int hostId) {
+            this.hostId = hostId;
+        }
+    }
+
+    private final long politenessDelay;
+
+    private final Map<Integer, HostQueue> hosts = new HashMap<>();
+
+    /**
+     * Hosts which may be fetched first come first, ties are broken by host id.
+     */
+    private static final Comparator<HostQueue> READY_ORDER =
+        Comparator.comparingLong((HostQueue host) -> host.earliestFetchTime).thenComparingInt(host -> host.hostId);
+
+    private final PriorityQueue<HostQueue> readyHosts = new PriorityQueue<>(READY_ORDER);
+
+    private int purgeThreshold = MIN_PURGE_THRESHOLD;
+
+    public HostWorkQueues(Environment env, String dbName, boolean resumable, long politenessDelay) {
+        super(env, dbName, resumable);
+        this.politenessDelay = politenessDelay;
+        loadHosts();
+    }
+
+    /*
+     * The key is the 4 bytes host id followed by the 6 bytes key of WorkQueues,
+     * so that all urls of a host are stored next to each other in crawl order.
+     */
+    protected static DatabaseEntry getDatabaseEntryKey(int hostId, WebURL url) {
+        byte[] keyData = new byte[HOST_ID_LENGTH + 6];
+        Util.putIntInByteArray(hostId, keyData, 0);
+        byte[] urlKey = WorkQueues.getDatabaseEntryKey(url).getData();
+        System.arraycopy(urlKey, 0, keyData, HOST_ID_LENGTH, urlKey.length);
+        return new DatabaseEntry(keyData);
+    }
+
+    protected static int getHostId(WebURL url) {
+        return url.getHost().hashCode();
+    }
+
+    private static boolean belongsTo(DatabaseEntry key, int hostId) {
+        return key.getSize() >= HOST_ID_LENGTH && Util.byteArray2Int(key.getData()) == hostId;
+    }
+
+    @Override
+    public void put(WebURL url) {
+        int hostId = getHostId(url);
+        DatabaseEntry value = new DatabaseEntry();
+        webURLBinding.objectToEntry(url, value);
+        synchronized (mutex) {
+            Transaction txn = beginTransaction();
+            urlsDB.put(txn, getDatabaseEntryKey(hostId, url), value);
+            commit(txn);
+            markReady(hostId, 0);
+        }
+    }
+
+    /**
+     * Reads, without removing them, the first max urls in ready host order: all pending
+     * urls of the host which may be fetched first, then those of the next host, and so on.
+     * Unlike {@link #claim(int, InProcessPagesDB)}, politeness delays are not waited for.
+     */
+    @Override
+    public List<WebURL> get(int max) {
+        synchronized (mutex) {
+            List<WebURL> results = new ArrayList<>(max);
+            DatabaseEntry key = new DatabaseEntry();
+            DatabaseEntry value = new DatabaseEntry();
+            Transaction txn = beginTransaction();
+            try (Cursor cursor = openCursor(txn)) {
+                for (HostQueue host : getReadyHostsInOrder()) {
+                    key.setData(hostPrefix(host.hostId));
+                    OperationStatus result = cursor.getSearchKeyRange(key, value, null);
+                    while ((results.size() < max) && (result == OperationStatus.SUCCESS) &&
+                           belongsTo(key, host.hostId)) {
+                        results.add(webURLBinding.entryToObject(value));
+                        result = cursor.getNext(key, value, null);
+                    }
+                    if (results.size() >= max) {
+                        break;
+                    }
+                }
+            }
+            commit(txn);
+            return results;
+        }
+    }
+
+    /**
+     * Removes the first count urls in the order of {@link #get(int)}. Hosts left without
+     * pending urls are not ready anymore.
+     */
+    @Override
+    public void delete(int count) {
+        synchronized (mutex) {
+            DatabaseEntry key = new DatabaseEntry();
+            DatabaseEntry value = new DatabaseEntry();
+            value.setPartial(0, 0, true);
+            int matches = 0;
+            Transaction txn = beginTransaction();
+            try (Cursor cursor = openCursor(txn)) {
+                for (HostQueue host : getReadyHostsInOrder()) {
+                    if (matches >= count) {
+                        break;
+                    }
+                    key.setData(hostPrefix(host.hostId));
+                    OperationStatus result = cursor.getSearchKeyRange(key, value, null);
+                    while ((matches < count) && (result == OperationStatus.SUCCESS) &&
+                           belongsTo(key, host.hostId)) {
+                        cursor.delete();
+                        matches++;
+                        result = cursor.getNext(key, value, null);
+                    }
+                    if ((result != OperationStatus.SUCCESS) || !belongsTo(key, host.hostId)) {
+                        host.ready = false;
+                        readyHosts.remove(host);
+                    }
+                }
+            }
+            commit(txn);
+        }
+    }
+
+    @Override
+    public List<WebURL> claim(int max, InProcessPagesDB inProcessPages) {
+        synchronized (mutex) {
+            List<WebURL> results = new ArrayList<>(max);
+            long now = System.currentTimeMillis();
+            DatabaseEntry key = new DatabaseEntry();
+            DatabaseEntry value = new DatabaseEntry();
+            Transaction txn = beginTransaction();
+            try (Cursor cursor = openCursor(txn)) {
+                while ((results.size() < max) && !readyHosts.isEmpty() &&
+                       (readyHosts.peek().earliestFetchTime <= now)) {
+                    HostQueue host = readyHosts.poll();
+                    host.ready = false;
+
+                    key.setData(hostPrefix(host.hostId));
+                    OperationStatus result = cursor.getSearchKeyRange(key, value, null);
+                    if ((result != OperationStatus.SUCCESS) || !belongsTo(key, host.hostId)) {
+                        continue;
+                    }
+                    results.add(webURLBinding.entryToObject(value));
+                    if (inProcessPages != null) {
+                        // In process pages are keyed without the host id
+                        inProcessPages.put(txn, new DatabaseEntry(key.getData(), HOST_ID_LENGTH,
+                                                                  key.getSize() - HOST_ID_LENGTH), value);
+                    }
+                    cursor.delete();
+                    host.earliestFetchTime = Math.max(now, host.earliestFetchTime) + politenessDelay;
+
+                    result = cursor.getNext(key, value, null);
+                    if ((result == OperationStatus.SUCCESS) && belongsTo(key, host.hostId)) {
+                        host.ready = true;
+                        readyHosts.add(host);
+                    }
+                }
+            }
+            commit(txn);
+            purgeIfNeeded(now);
+            return results;
+        }
+    }
+
+    @Override
+    public long getMillisUntilNextReady() {
+        synchronized (mutex) {
+            HostQueue next = readyHosts.peek();
+            if (next == null) {
+                return -1;
+            }
+            return Math.max(1, next.earliestFetchTime - System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * @return the number of hosts which currently have pending urls
+     */
+    public int getNumberOfReadyHosts() {
+        synchronized (mutex) {
+            return readyHosts.size();
+        }
+    }
+
+    private List<HostQueue> getReadyHostsInOrder() {
+        List<HostQueue> ordered = new ArrayList<>(readyHosts);
+        ordered.sort(READY_ORDER);
+        return ordered;
+    }
+
+    private void markReady(int hostId, long earliestFetchTime) {
+        HostQueue host = hosts.computeIfAbsent(hostId, HostQueue::new);
+        if (!host.ready) {
+            host.earliestFetchTime = Math.max(host.earliestFetchTime, earliestFetchTime);
+            host.ready = true;
+            readyHosts.add(host);
+        }
+    }
+
+    /*
+     * Hosts whose queue is empty are kept for a while to remember when they may
+     * be fetched next. Once their delay has passed, they carry no information anymore.
+     */
+    private void purgeIfNeeded(long now) {
+        if ((hosts.size() - readyHosts.size()) <= purgeThreshold) {
+            return;
+        }
+        Iterator<HostQueue> it = hosts.values().iterator();
+        while (it.hasNext()) {
+            HostQueue host = it.next();
+            if (!host.ready && (host.earliestFetchTime <= now)) {
+                it.remove();
+            }
+        }
+        purgeThreshold = Math.max(MIN_PURGE_THRESHOLD, (hosts.size() - readyHosts.size()) * 2);
+    }
+
+    private static byte[] hostPrefix(int hostId) {
+        byte[] prefix = new byte[HOST_ID_LENGTH];
+        Util.putIntInByteArray(hostId, prefix, 0);
+        return prefix;
+    }
+
+    /*
+     * Rebuilds the list of hosts with pending urls when resuming a crawl. Only one
+     * record per host is read, the cursor then jumps to the key range of the next host.
+     */
+    private void loadHosts() {
+        synchronized (mutex) {
+            DatabaseEntry key = new DatabaseEntry();
+            DatabaseEntry value = new DatabaseEntry();
+            value.setPartial(0, 0, true);
+            Transaction txn = beginTransaction();
+            try (Cursor cursor = openCursor(txn)) {
+                OperationStatus result = cursor.getFirst(key, value, null);
+                while ((result == OperationStatus.SUCCESS) && (key.getSize() >= HOST_ID_LENGTH)) {
+                    int hostId = Util.byteArray2Int(key.getData());
+                    markReady(hostId, 0);
+                    long nextHostId = (hostId & 0xFFFFFFFFL) + 1;
+                    if (nextHostId > 0xFFFFFFFFL) {
+                        break;
+                    }
+                    key.setData(hostPrefix((int) nextHostId));
+                    result = cursor.getSearchKeyRange(key, value, null);
+                }
+            }
+            commit(txn);
+            if (!hosts.isEmpty()) {
+                logger.info("Loaded pending urls of {} hosts from previous crawl.", hosts.size());
+            }
+        }
+    }
+}
@@ -49,6 +49,18 @@ public class InProcessPagesDB extends WorkQueues {
         }
     }
 
+    /**
+     * Records a url that has been claimed from a work queue, as part of the
+     * transaction of the claim.
+     *
+     * @param txn the transaction of the claim, may be null
+     * @param key the crawl order key of the url
+     * @param value the serialized url
+     */
+    void put(Transaction txn, DatabaseEntry key, DatabaseEntry value) {
+        urlsDB.put(txn, key, value);
+    }
+
     public boolean removeURL(WebURL webUrl) {
         synchronized (mutex) {
             DatabaseEntry key = getDatabaseEntryKey(webUrl);
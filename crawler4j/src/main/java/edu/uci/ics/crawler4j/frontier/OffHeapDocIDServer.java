@@ -0,0 +1,333 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.frontier;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import edu.uci.ics.crawler4j.crawler.CrawlConfig;
+
+/**
+ * A {@link DocIDServer} for crawls which are not resumable. It keeps a 64 bit
+ * fingerprint of every seen url and its docid in open addressing hash tables
+ * allocated outside of the Java heap, instead of in a Berkeley DB database.
+ *
+ * The tables are split in segments which grow independently. Lookups are
+ * optimistic and take no lock unless they race with a write to the same
+ * segment. Two urls sharing a fingerprint are considered the same url; with 64
+ * bit fingerprints, this is expected to happen less than once in a crawl of a
+ * hundred million urls.
+ */
+public class OffHeapDocIDServer extends DocIDServer {
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int MIN_SEGMENT_CAPACITY = 1024;
+    private static final int MAX_SEGMENT_CAPACITY = 1 << 27;
+    private static final float MAX_LOAD_FACTOR = 0.75f;
+
+    private static final HashFunction FINGERPRINT_FUNCTION = Hashing.murmur3_128();
+
+    /**
+     * Marks an empty slot. Urls whose fingerprint is 0 use {@link #ZERO_FINGERPRINT}.
+     */
+    private static final long EMPTY = 0;
+    private static final long ZERO_FINGERPRINT = 1;
+
+    private final Segment[] segments;
+
+    private final AtomicInteger lastDocID = new AtomicInteger();
+
+    public OffHeapDocIDServer(CrawlConfig config) {
+        super(config);
+        segments = new Segment[1 << SEGMENT_BITS];
+        long capacity = config.getFrontierConfig().getOffHeapDocIdIndexInitialCapacity() / segments.length;
+        int segmentCapacity = MIN_SEGMENT_CAPACITY;
+        while ((segmentCapacity < MAX_SEGMENT_CAPACITY) && (segmentCapacity * MAX_LOAD_FACTOR < capacity)) {
+            segmentCapacity <<= 1;
+        }
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    private static long getFingerprint(String url) {
+        long fingerprint = FINGERPRINT_FUNCTION.hashString(url, StandardCharsets.UTF_8).asLong();
+        return fingerprint == EMPTY ? ZERO_FINGERPRINT : fingerprint;
+    }
+
+    private Segment getSegment(long fingerprint) {
+        return segments[(int) (fingerprint >>> (Long.SIZE - SEGMENT_BITS))];
+    }
+
+    @Override
+    public int getDocId(String url) {
+        long fingerprint = getFingerprint(url);
+        return getSegment(fingerprint).get(fingerprint);
+    }
+
+    @Override
+    public int getNewDocID(String url) {
+        long fingerprint = getFingerprint(url);
+        return getSegment(fingerprint).getOrAssign(fingerprint, lastDocID);
+    }
+
+    @Override
+    public Map<String, Integer> getDocIds(Collection<String> urls) {
+        Map<String, Integer> docIds = new HashMap<>();
+        for (String url : urls) {
+            int docId = getDocId(url);
+            if (docId > 0) {
+                docIds.put(url, docId);
+            }
+        }
+        return docIds;
+    }
+
+    @Override
+    public Map<String, Integer> resolveOrAssign(Collection<String> urls) {
+        Map<String, Integer> docIds = new HashMap<>();
+        for (String url : urls) {
+            docIds.put(url, getNewDocID(url));
+        }
+        return docIds;
+    }
+
+    @Override
+    public void addUrlAndDocId(String url, int docId) {
+        long fingerprint = getFingerprint(url);
+        getSegment(fingerprint).add(fingerprint, docId, lastDocID, url);
+    }
+
+    @Override
+    public int getDocCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            count += segment.getSize();
+        }
+        return (int) count;
+    }
+
+    /**
+     * @return the number of bytes allocated outside of the heap
+     */
+    public long getAllocatedBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.getCapacity() * (long) (Long.BYTES + Integer.BYTES);
+        }
+        return bytes;
+    }
+
+    @Override
+    public void close() {
+        // Direct buffers are released once they are garbage collected
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * A linear probing hash table from fingerprint to docid. Writes hold the write
+     * lock of the segment; reads validate an optimistic stamp and retry under the
+     * read lock if a write happened meanwhile.
+     */
+    private static final class Segment {
+        private final StampedLock lock = new StampedLock();
+
+        private LongBuffer fingerprints;
+        private IntBuffer docIds;
+        private int mask;
+        private int size;
+
+        Segment(int capacity) {
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            fingerprints = ByteBuffer.allocateDirect(capacity * Long.BYTES).asLongBuffer();
+            docIds = ByteBuffer.allocateDirect(capacity * Integer.BYTES).asIntBuffer();
+            mask = capacity - 1;
+        }
+
+        int get(long fingerprint) {
+            long stamp = lock.tryOptimisticRead();
+            int docId = find(fingerprint);
+            if (lock.validate(stamp)) {
+                return docId;
+            }
+            stamp = lock.readLock();
+            try {
+                return find(fingerprint);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        int getOrAssign(long fingerprint, AtomicInteger lastDocID) {
+            int docId = get(fingerprint);
+            if (docId > 0) {
+                return docId;
+            }
+            long stamp = lock.writeLock();
+            try {
+                docId = find(fingerprint);
+                if (docId > 0) {
+                    return docId;
+                }
+                docId = lastDocID.incrementAndGet();
+                insert(fingerprint, docId);
+                return docId;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void add(long fingerprint, int docId, AtomicInteger lastDocID, String url) {
+            long stamp = lock.writeLock();
+            try {
+                int prevDocid = find(fingerprint);
+                if (prevDocid > 0) {
+                    if (prevDocid == docId) {
+                        return;
+                    }
+                    throw new IllegalArgumentException("Doc id: " + prevDocid + " is already assigned to URL: " +
+                                                       url);
+                }
+                while (true) {
+                    int current = lastDocID.get();
+                    if (docId <= current) {
+                        throw new IllegalArgumentException(
+                            "Requested doc id: " + docId + " is not larger than: " + current);
+                    }
+                    if (lastDocID.compareAndSet(current, docId)) {
+                        break;
+                    }
+                }
+                insert(fingerprint, docId);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /*
+         * May run without holding the lock, in which case the result is only used if
+         * the optimistic stamp is still valid. The tables may then be swapped
+         * concurrently, so both are read once and the probe is bounded.
+         */
+        private int find(long fingerprint) {
+            LongBuffer currentFingerprints = fingerprints;
+            IntBuffer currentDocIds = docIds;
+            if ((currentFingerprints == null) || (currentDocIds == null)) {
+                return -1;
+            }
+            int currentMask = Math.min(currentFingerprints.capacity(), currentDocIds.capacity()) - 1;
+            int index = (int) fingerprint & currentMask;
+            for (int probes = 0; probes <= currentMask; probes++) {
+                long stored = currentFingerprints.get(index);
+                if (stored == EMPTY) {
+                    return -1;
+                }
+                if (stored == fingerprint) {
+                    return currentDocIds.get(index);
+                }
+                index = (index + 1) & currentMask;
+            }
+            return -1;
+        }
+
+        /*
+         * Must hold the write lock, for a fingerprint which is not in the table.
+         */
+        private void insert(long fingerprint, int docId) {
+            if ((size + 1) > (mask + 1) * MAX_LOAD_FACTOR) {
+                grow();
+            }
+            put(fingerprints, docIds, mask, fingerprint, docId);
+            size++;
+        }
+
+        private void grow() {
+            int capacity = mask + 1;
+            if (capacity >= MAX_SEGMENT_CAPACITY) {
+                if (size + 1 > capacity - 1) {
+                    throw new IllegalStateException("Off heap docid index is full");
+                }
+                return;
+            }
+            LongBuffer oldFingerprints = fingerprints;
+            IntBuffer oldDocIds = docIds;
+            allocate(capacity << 1);
+            for (int i = 0; i < capacity; i++) {
+                long fingerprint = oldFingerprints.get(i);
+                if (fingerprint != EMPTY) {
+                    put(fingerprints, docIds, mask, fingerprint, oldDocIds.get(i));
+                }
+            }
+        }
+
+        private static void put(LongBuffer fingerprints, IntBuffer docIds, int mask, long fingerprint,
+                                int docId) {
+            int index = (int) fingerprint & mask;
+            while (fingerprints.get(index) != EMPTY) {
+                index = (index + 1) & mask;
+            }
+            docIds.put(index, docId);
+            fingerprints.put(index, fingerprint);
+        }
+
+        int getSize() {
+            long stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        int getCapacity() {
+            long stamp = lock.readLock();
+            try {
+                return fingerprints == null ? 0 : mask + 1;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void clear() {
+            long stamp = lock.writeLock();
+            try {
+                fingerprints = null;
+                docIds = null;
+                mask = 0;
+                size = 0;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.frontier;
+
+import java.nio.charset.StandardCharsets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseConfig;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.OperationStatus;
+
+import edu.uci.ics.crawler4j.crawler.CrawlConfig;
+import edu.uci.ics.crawler4j.util.Util;
+
+/**
+ * Keeps the HTTP validators, the ETag and Last-Modified response headers, of the
+ * fetched pages by docid, so that pages fetched again can be requested conditionally.
+ * Like the docids, the validators are kept across crawls when crawling is resumable.
+ */
+public class ValidatorsDB {
+    private static final Logger logger = LoggerFactory.getLogger(ValidatorsDB.class);
+
+    private static final String DATABASE_NAME = "Validators";
+
+    /**
+     * Validators longer than this are not kept, as no sane server sends them.
+     */
+    private static final int MAX_VALIDATOR_LENGTH = 1024;
+
+    /**
+     * The validators of a page. Either may be null, but not both.
+     */
+    public static class Validators {
+        private final String eTag;
+        private final String lastModified;
+
+        public Validators(String eTag, String lastModified) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * @return the ETag response header, sent back as If-None-Match, or null
+         */
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * @return the Last-Modified response header, sent back as If-Modified-Since, or null
+         */
+        public String getLastModified() {
+            return lastModified;
+        }
+    }
+
+    private final Database validatorsDB;
+
+    public ValidatorsDB(Environment env, CrawlConfig config) {
+        DatabaseConfig dbConfig = new DatabaseConfig();
+        dbConfig.setAllowCreate(true);
+        dbConfig.setTransactional(config.isResumableCrawling());
+        dbConfig.setDeferredWrite(!config.isResumableCrawling());
+        validatorsDB = env.openDatabase(null, DATABASE_NAME, dbConfig);
+    }
+
+    /**
+     * @param docId the docid of a page
+     * @return the validators of the last fetch of this page, or null if there are none
+     */
+    public Validators get(int docId) {
+        DatabaseEntry value = new DatabaseEntry();
+        if (validatorsDB.get(null, new DatabaseEntry(Util.int2ByteArray(docId)), value, null) !=
+            OperationStatus.SUCCESS) {
+            return null;
+        }
+        // Header values can't contain a line break, which separates the two validators
+        String data = new String(value.getData(), value.getOffset(), value.getSize(), StandardCharsets.UTF_8);
+        int separator = data.indexOf('\n');
+        return new Validators(emptyToNull(data.substring(0, separator)),
+                              emptyToNull(data.substring(separator + 1)));
+    }
+
+    /**
+     * Keeps the validators of a page, replacing those of a previous fetch. If the page has
+     * no validators anymore, those of the previous fetch are removed, so that they are not
+     * sent with the next fetch.
+     *
+     * @param docId the docid of the page
+     * @param eTag the ETag response header, or null
+     * @param lastModified the Last-Modified response header, or null
+     */
+    public void put(int docId, String eTag, String lastModified) {
+        String validETag = validOrEmpty(eTag);
+        String validLastModified = validOrEmpty(lastModified);
+        DatabaseEntry key = new DatabaseEntry(Util.int2ByteArray(docId));
+        if (validETag.isEmpty() && validLastModified.isEmpty()) {
+            validatorsDB.delete(null, key);
+            return;
+        }
+        String data = validETag + '\n' + validLastModified;
+        validatorsDB.put(null, key, new DatabaseEntry(data.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String validOrEmpty(String validator) {
+        if ((validator == null) || (validator.length() > MAX_VALIDATOR_LENGTH) || (validator.indexOf('\n') >= 0)) {
+            return "";
+        }
+        return validator;
+    }
+
+    private static String emptyToNull(String validator) {
+        return validator.isEmpty() ? null : validator;
+    }
+
+    public void close() {
+        try {
+            validatorsDB.close();
+        } catch (DatabaseException e) {
+            logger.error("Exception thrown while closing ValidatorsDB", e);
+        }
+    }
+}
@@ -35,12 +35,12 @@ import edu.uci.ics.crawler4j.util.Util;
  * @author Yasser Ganjisaffar
  */
 public class WorkQueues {
-    private final Database urlsDB;
+    protected final Database urlsDB;
     private final Environment env;
 
     private final boolean resumable;
 
-    private final WebURLTupleBinding webURLBinding;
+    protected final WebURLTupleBinding webURLBinding;
 
     protected final Object mutex = new Object();
 
@@ -91,6 +91,62 @@ public class WorkQueues {
         }
     }
 
+    /**
+     * Takes up to max urls out of the queue. The returned urls are removed from
+     * the queue and are therefore handed out only once.
+     *
+     * @param max the maximum number of urls to return
+     * @return the claimed urls, in crawl order
+     */
+    public List<WebURL> claim(int max) {
+        return claim(max, null);
+    }
+
+    /**
+     * Takes up to max urls out of the queue and records them as in process. The
+     * urls are read and deleted in a single cursor pass, and the whole batch,
+     * including the in process records, is committed in a single transaction.
+     *
+     * @param max the maximum number of urls to return
+     * @param inProcessPages where the claimed urls are recorded, may be null
+     * @return the claimed urls, in crawl order
+     */
+    public List<WebURL> claim(int max, InProcessPagesDB inProcessPages) {
+        synchronized (mutex) {
+            List<WebURL> results = new ArrayList<>(max);
+            DatabaseEntry key = new DatabaseEntry();
+            DatabaseEntry value = new DatabaseEntry();
+            Transaction txn = beginTransaction();
+            try (Cursor cursor = openCursor(txn)) {
+                OperationStatus result = cursor.getFirst(key, value, null);
+                while ((results.size() < max) && (result == OperationStatus.SUCCESS)) {
+                    if (value.getData().length > 0) {
+                        results.add(webURLBinding.entryToObject(value));
+                        if (inProcessPages != null) {
+                            inProcessPages.put(txn, key, value);
+                        }
+                    }
+                    cursor.delete();
+                    result = cursor.getNext(key, value, null);
+                }
+            }
+            commit(txn);
+            return results;
+        }
+    }
+
+    /**
+     * Returns the number of milliseconds after which {@link #claim(int)} may return
+     * urls that it can not return now, e.g. because their host is not yet allowed
+     * to be fetched again.
+     *
+     * @return the delay in milliseconds, or -1 if only newly scheduled urls can change
+     *         the result of {@link #claim(int)}
+     */
+    public long getMillisUntilNextReady() {
+        return -1;
+    }
+
     public void delete(int count) {
         synchronized (mutex) {
             DatabaseEntry key = new DatabaseEntry();
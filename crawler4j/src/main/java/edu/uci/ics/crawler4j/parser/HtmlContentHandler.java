@@ -73,7 +73,18 @@ public class HtmlContentHandler extends DefaultHandler {
     private boolean anchorFlag = false;
     private final StringBuilder anchorText = new StringBuilder();
 
+    private final boolean collectBodyText;
+
     public HtmlContentHandler() {
+        this(true);
+    }
+
+    /**
+     * @param collectBodyText false to skip collecting the text of the body, in which case
+     *                        {@link #getBodyText()} is empty. Anchor texts are still collected.
+     */
+    public HtmlContentHandler(boolean collectBodyText) {
+        this.collectBodyText = collectBodyText;
         isWithinBodyElement = false;
         bodyText = new StringBuilder();
         outgoingUrls = new ArrayList<>();
@@ -184,12 +195,14 @@ public class HtmlContentHandler extends DefaultHandler {
     @Override
     public void characters(char[] ch, int start, int length) throws SAXException {
         if (isWithinBodyElement) {
-            if (bodyText.length() > 0) {
-                bodyText.append(' ');
+            if (collectBodyText) {
+                if (bodyText.length() > 0) {
+                    bodyText.append(' ');
+                }
+                bodyText.append(ch, start, length);
             }
-            bodyText.append(ch, start, length);
             if (anchorFlag) {
-                anchorText.append(new String(ch, start, length));
+                anchorText.append(ch, start, length);
             }
         }
     }
@@ -19,9 +19,15 @@ package edu.uci.ics.crawler4j.parser;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import edu.uci.ics.crawler4j.url.WebURL;
 
+/**
+ * The data extracted from an html page. The text and the html may be computed
+ * from the parsed page when they are first asked for, see
+ * {@link ParserConfig#setExtractionProfile(ParserConfig.ExtractionProfile)}.
+ */
 public class HtmlParseData implements ParseData {
 
     private String html;
@@ -29,23 +35,62 @@ public class HtmlParseData implements ParseData {
     private String title;
     private Map<String, String> metaTags;
 
+    private Supplier<String> htmlSupplier;
+    private Supplier<String> textSupplier;
+
     private Set<WebURL> outgoingUrls;
     private String contentCharset;
 
+    /**
+     * @return the html of the page, or null if it was not extracted. When the content of
+     * the page is held by a pooled buffer, the html must first be asked for while the page
+     * is visited.
+     */
     public String getHtml() {
+        Supplier<String> supplier = htmlSupplier;
+        if (supplier != null) {
+            html = supplier.get();
+            htmlSupplier = null;
+        }
         return html;
     }
 
     public void setHtml(String html) {
         this.html = html;
+        this.htmlSupplier = null;
+    }
+
+    /**
+     * @param htmlSupplier computes the html when it is first asked for
+     */
+    public void setHtmlSupplier(Supplier<String> htmlSupplier) {
+        this.html = null;
+        this.htmlSupplier = htmlSupplier;
     }
 
+    /**
+     * @return the text of the body of the page, or null if it was not extracted
+     */
     public String getText() {
+        Supplier<String> supplier = textSupplier;
+        if (supplier != null) {
+            text = supplier.get();
+            textSupplier = null;
+        }
         return text;
     }
 
     public void setText(String text) {
         this.text = text;
+        this.textSupplier = null;
+    }
+
+    /**
+     * @param textSupplier computes the text when it is first asked for
+     */
+    public void setTextSupplier(Supplier<String> textSupplier) {
+        this.text = null;
+        this.textSupplier = textSupplier;
     }
 
     public String getTitle() {
@@ -80,7 +125,7 @@ public class HtmlParseData implements ParseData {
 
     @Override
     public String toString() {
-        return text;
+        return getText();
     }
 
     public void setContentCharset(String contentCharset) {
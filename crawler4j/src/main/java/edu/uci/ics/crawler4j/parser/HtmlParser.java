@@ -1,5 +1,10 @@
 package edu.uci.ics.crawler4j.parser;
 
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.http.util.ByteArrayBuffer;
+
 import edu.uci.ics.crawler4j.crawler.Page;
 import edu.uci.ics.crawler4j.crawler.exceptions.ParseException;
 
@@ -7,4 +12,32 @@ public interface HtmlParser {
 
     HtmlParseData parse(Page page, String contextURL) throws ParseException;
 
+    /**
+     * Parses the content of a page while it is read from the given stream. The page
+     * holds the content type and charset of the response, but no content data.
+     *
+     * This default implementation reads the whole stream into the content data of the
+     * page and parses it with {@link #parse(Page, String)}. Parsers able to process
+     * their input incrementally should override it.
+     *
+     * @param page the page whose content is parsed
+     * @param contextURL the url against which relative links are resolved
+     * @param content the content of the page
+     * @return the parsed data
+     * @throws ParseException if the content cannot be read or parsed
+     */
+    default HtmlParseData parse(Page page, String contextURL, InputStream content) throws ParseException {
+        try {
+            ByteArrayBuffer buffer = new ByteArrayBuffer(4096);
+            byte[] tmpBuff = new byte[4096];
+            int dataLength;
+            while ((dataLength = content.read(tmpBuff)) != -1) {
+                buffer.append(tmpBuff, 0, dataLength);
+            }
+            page.setContentData(buffer.toByteArray());
+        } catch (IOException e) {
+            throw new ParseException("could not read [" + page.getWebURL().getURL() + "]", e);
+        }
+        return parse(page, contextURL);
+    }
 }
@@ -0,0 +1,576 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.parser;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.uci.ics.crawler4j.crawler.CrawlConfig;
+import edu.uci.ics.crawler4j.crawler.Page;
+import edu.uci.ics.crawler4j.crawler.exceptions.ParseException;
+import edu.uci.ics.crawler4j.url.TLDList;
+
+/**
+ * An {@link HtmlParser} for crawls which only need the links of the pages. It
+ * scans the raw bytes of a page for the tags holding links, instead of building
+ * a DOM of SAX events for every tag, and extracts the same links as
+ * {@link TikaHtmlParser}: the {@code href} of {@code a}, {@code area} and
+ * {@code link} tags with their anchor text, the {@code src} of {@code img},
+ * {@code iframe}, {@code frame}, {@code embed} and {@code script} tags, and the
+ * urls of refresh and location meta tags. The base url, the title and the meta
+ * tags are extracted too, but the text of the page is not.
+ *
+ * Pages whose charset does not encode markup as ASCII, such as UTF-16, are
+ * converted to UTF-8 before they are scanned.
+ */
+public class LinkOnlyHtmlParser implements HtmlParser {
+
+    private static final int MAX_ANCHOR_LENGTH = 100;
+
+    private static final byte[] MARKUP = "<>/=\"' !-abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ"
+        .getBytes(StandardCharsets.US_ASCII);
+
+    private final CrawlConfig config;
+    private final TLDList tldList;
+
+    public LinkOnlyHtmlParser(CrawlConfig config, TLDList tldList) {
+        this.config = config;
+        this.tldList = tldList;
+    }
+
+    @Override
+    public HtmlParseData parse(Page page, String contextURL) throws ParseException {
+        byte[] content = page.getContentArray();
+        if (content == null) {
+            throw new ParseException("no content to parse [" + page.getWebURL().getURL() + "]", null);
+        }
+        int start = 0;
+        int end = page.getContentLength();
+
+        Charset charset = getCharset(page.getContentCharset());
+        if (!isAsciiCompatible(charset)) {
+            ByteBuffer encoded = StandardCharsets.UTF_8.encode(charset.decode(ByteBuffer.wrap(content, 0, end)));
+            content = encoded.array();
+            start = encoded.arrayOffset() + encoded.position();
+            end = encoded.arrayOffset() + encoded.limit();
+            charset = StandardCharsets.UTF_8;
+        }
+
+        Scanner scanner = new Scanner(content, start, end, charset);
+        scanner.scan();
+
+        String contentCharset = page.getContentCharset();
+        if ((contentCharset == null) || contentCharset.isEmpty()) {
+            contentCharset = scanner.metaCharset;
+        }
+
+        HtmlParseData parsedData = new HtmlParseData();
+        parsedData.setContentCharset(contentCharset);
+        parsedData.setTitle(scanner.title);
+        parsedData.setMetaTags(scanner.metaTags);
+        try {
+            parsedData.setOutgoingUrls(TikaHtmlParser.getOutgoingUrls(scanner.outgoingUrls, scanner.base,
+                                                                      contextURL, contentCharset, tldList,
+                                                                      config.getMaxOutgoingLinksToFollow()));
+        } catch (UnsupportedEncodingException | RuntimeException e) {
+            throw new ParseException("could not parse [" + page.getWebURL().getURL() + "]", e);
+        }
+        if (config.getParserConfig().getExtractionProfile().isHtmlExtracted()) {
+            parsedData.setHtmlSupplier(() -> TikaHtmlParser.decodeHtml(page));
+        }
+        return parsedData;
+    }
+
+    private static Charset getCharset(String name) {
+        if ((name == null) || name.isEmpty()) {
+            return StandardCharsets.UTF_8;
+        }
+        try {
+            return Charset.forName(name);
+        } catch (RuntimeException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    private static boolean isAsciiCompatible(Charset charset) {
+        if (charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.ISO_8859_1) ||
+            charset.equals(StandardCharsets.US_ASCII)) {
+            return true;
+        }
+        byte[] encoded = new String(MARKUP, StandardCharsets.US_ASCII).getBytes(charset);
+        return Arrays.equals(encoded, MARKUP);
+    }
+
+    /**
+     * Replaces the character references of a text by the characters they stand for.
+     * Only the numeric references and the named references which commonly appear in
+     * urls and anchors are known; other references are kept as they are.
+     */
+    static String unescape(String text) {
+        int amp = text.indexOf('&');
+        if (amp == -1) {
+            return text;
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        int pos = 0;
+        while (amp != -1) {
+            sb.append(text, pos, amp);
+            int semicolon = text.indexOf(';', amp + 1);
+            String replacement = null;
+            if ((semicolon != -1) && (semicolon - amp <= 10)) {
+                replacement = resolveReference(text.substring(amp + 1, semicolon));
+            }
+            if (replacement == null) {
+                sb.append('&');
+                pos = amp + 1;
+            } else {
+                sb.append(replacement);
+                pos = semicolon + 1;
+            }
+            amp = text.indexOf('&', pos);
+        }
+        sb.append(text, pos, text.length());
+        return sb.toString();
+    }
+
+    private static String resolveReference(String reference) {
+        switch (reference) {
+            case "amp":
+                return "&";
+            case "lt":
+                return "<";
+            case "gt":
+                return ">";
+            case "quot":
+                return "\"";
+            case "apos":
+                return "'";
+            case "nbsp":
+                return "\u00a0";
+            default:
+                break;
+        }
+        if ((reference.length() < 2) || (reference.charAt(0) != '#')) {
+            return null;
+        }
+        try {
+            int codePoint = ((reference.charAt(1) == 'x') || (reference.charAt(1) == 'X')) ?
+                            Integer.parseInt(reference.substring(2), 16) :
+                            Integer.parseInt(reference.substring(1));
+            return Character.isValidCodePoint(codePoint) ? new String(Character.toChars(codePoint)) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Scans the markup of a page once, from start to end. Text is only decoded while
+     * inside an anchor or the title.
+     */
+    private static final class Scanner {
+
+        private final byte[] content;
+        private final Charset charset;
+        private final int end;
+        private int pos;
+
+        private final List<ExtractedUrlAnchorPair> outgoingUrls = new ArrayList<>();
+        private final Map<String, String> metaTags = new HashMap<>();
+        private String base;
+        private String title;
+        private String metaCharset;
+        private String metaRefresh;
+        private String metaLocation;
+
+        private ExtractedUrlAnchorPair curUrl;
+        private final StringBuilder anchorText = new StringBuilder();
+
+        Scanner(byte[] content, int start, int end, Charset charset) {
+            this.content = content;
+            this.charset = charset;
+            this.pos = start;
+            this.end = end;
+        }
+
+        void scan() {
+            while (pos < end) {
+                int tagStart = indexOf('<', pos);
+                if (tagStart == -1) {
+                    appendAnchorText(pos, end);
+                    return;
+                }
+                appendAnchorText(pos, tagStart);
+                pos = tagStart + 1;
+                if (startsWith("!--")) {
+                    int commentEnd = indexOf("-->", pos + 3);
+                    pos = (commentEnd == -1) ? end : commentEnd + 3;
+                } else if ((pos < end) && ((at(pos) == '!') || (at(pos) == '?'))) {
+                    skipTag();
+                } else {
+                    scanTag(tagStart);
+                }
+            }
+        }
+
+        private void scanTag(int tagStart) {
+            boolean closing = (pos < end) && (at(pos) == '/');
+            if (closing) {
+                pos++;
+            }
+            int nameStart = pos;
+            if ((pos < end) && isLetter(at(pos))) {
+                while ((pos < end) && isNameChar(at(pos))) {
+                    pos++;
+                }
+            }
+            if (pos == nameStart) {
+                // Not a tag, the '<' is text
+                appendAnchorText(tagStart, pos);
+                return;
+            }
+            String name = lowerCaseAscii(nameStart, pos);
+            if (closing) {
+                skipTag();
+                endElement(name);
+                return;
+            }
+
+            switch (name) {
+                case "area":
+                case "link":
+                    // Void elements, which have no anchor text
+                    startElement(name, readAttributes());
+                    endElement(name);
+                    break;
+                case "a":
+                case "img":
+                case "iframe":
+                case "frame":
+                case "embed":
+                case "base":
+                case "meta":
+                    startElement(name, readAttributes());
+                    break;
+                case "script":
+                    startElement(name, readAttributes());
+                    skipRawText("</script");
+                    break;
+                case "style":
+                    skipTag();
+                    skipRawText("</style");
+                    break;
+                case "title":
+                    skipTag();
+                    int textStart = pos;
+                    int textEnd = skipRawText("</title");
+                    if (title == null) {
+                        title = unescape(decode(textStart, textEnd)).trim();
+                    }
+                    break;
+                default:
+                    skipTag();
+                    break;
+            }
+        }
+
+        private void startElement(String name, Map<String, String> attributes) {
+            switch (name) {
+                case "a":
+                case "area":
+                case "link":
+                    String href = attributes.get("href");
+                    if (href != null) {
+                        curUrl = newUrl(href, name);
+                        curUrl.setAttributes(attributes);
+                        anchorText.setLength(0);
+                    }
+                    break;
+                case "img":
+                case "iframe":
+                case "frame":
+                case "embed":
+                case "script":
+                    String src = attributes.get("src");
+                    if (src != null) {
+                        newUrl(src, name);
+                    }
+                    break;
+                case "base":
+                    if (base == null) { // We only consider the first occurrence of the Base element.
+                        base = attributes.get("href");
+                    }
+                    break;
+                case "meta":
+                    addMetaTag(attributes);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void addMetaTag(Map<String, String> attributes) {
+            if ((metaCharset == null) && attributes.containsKey("charset")) {
+                metaCharset = attributes.get("charset").trim();
+            }
+            String equiv = attributes.get("http-equiv");
+            if (equiv == null) { // This condition covers several cases of XHTML meta
+                equiv = attributes.get("name");
+            }
+            String value = attributes.get("content");
+            if ((equiv == null) || (value == null)) {
+                return;
+            }
+            equiv = equiv.toLowerCase();
+            metaTags.put(equiv, value);
+
+            // http-equiv="refresh" content="0;URL=http://foo.bar/..."
+            if ("refresh".equals(equiv) && (metaRefresh == null)) {
+                int urlStart = value.toLowerCase().indexOf("url=");
+                if (urlStart != -1) {
+                    metaRefresh = value.substring(urlStart + 4);
+                    newUrl(metaRefresh, "meta");
+                }
+            }
+
+            // http-equiv="location" content="http://foo.bar/..."
+            if ("location".equals(equiv) && (metaLocation == null)) {
+                metaLocation = value;
+                newUrl(metaLocation, "meta");
+            }
+
+            // http-equiv="content-type" content="text/html; charset=..."
+            if ("content-type".equals(equiv) && (metaCharset == null)) {
+                int charsetStart = value.toLowerCase().indexOf("charset=");
+                if (charsetStart != -1) {
+                    metaCharset = value.substring(charsetStart + 8).trim();
+                }
+            }
+        }
+
+        private ExtractedUrlAnchorPair newUrl(String href, String tag) {
+            ExtractedUrlAnchorPair url = new ExtractedUrlAnchorPair();
+            url.setHref(href);
+            url.setTag(tag);
+            outgoingUrls.add(url);
+            return url;
+        }
+
+        private void endElement(String name) {
+            if ((curUrl != null) && ("a".equals(name) || "area".equals(name) || "link".equals(name))) {
+                String anchor = anchorText.toString().replace('\n', ' ').replace('\t', ' ').trim();
+                if (!anchor.isEmpty()) {
+                    if (anchor.length() > MAX_ANCHOR_LENGTH) {
+                        anchor = anchor.substring(0, MAX_ANCHOR_LENGTH) + "...";
+                    }
+                    curUrl.setAnchor(anchor);
+                }
+                anchorText.setLength(0);
+                curUrl = null;
+            }
+        }
+
+        private void appendAnchorText(int from, int to) {
+            if ((curUrl != null) && (from < to) && (anchorText.length() <= MAX_ANCHOR_LENGTH * 4)) {
+                anchorText.append(unescape(decode(from, to)));
+            }
+        }
+
+        /*
+         * Reads the attributes of the current tag, up to and including its closing '>'.
+         * The first occurrence of an attribute wins.
+         */
+        private Map<String, String> readAttributes() {
+            Map<String, String> attributes = new HashMap<>();
+            while (pos < end) {
+                byte b = at(pos);
+                if (b == '>') {
+                    pos++;
+                    break;
+                }
+                if (isWhitespace(b) || (b == '/')) {
+                    pos++;
+                    continue;
+                }
+                int nameStart = pos;
+                while ((pos < end) && !isWhitespace(at(pos)) && (at(pos) != '=') && (at(pos) != '>') &&
+                       (at(pos) != '/')) {
+                    pos++;
+                }
+                if (pos == nameStart) {
+                    // A stray '='
+                    pos++;
+                    continue;
+                }
+                String name = lowerCaseAscii(nameStart, pos);
+                skipWhitespace();
+                String value = "";
+                if ((pos < end) && (at(pos) == '=')) {
+                    pos++;
+                    skipWhitespace();
+                    value = readAttributeValue();
+                }
+                attributes.putIfAbsent(name, value);
+            }
+            return attributes;
+        }
+
+        private String readAttributeValue() {
+            if (pos >= end) {
+                return "";
+            }
+            byte quote = at(pos);
+            int valueStart;
+            int valueEnd;
+            if ((quote == '"') || (quote == '\'')) {
+                valueStart = pos + 1;
+                valueEnd = indexOf((char) quote, valueStart);
+                if (valueEnd == -1) {
+                    valueEnd = end;
+                }
+                pos = Math.min(end, valueEnd + 1);
+            } else {
+                valueStart = pos;
+                while ((pos < end) && !isWhitespace(at(pos)) && (at(pos) != '>')) {
+                    pos++;
+                }
+                valueEnd = pos;
+            }
+            return unescape(decode(valueStart, valueEnd));
+        }
+
+        /*
+         * Skips to after the '>' closing the current tag, ignoring the ones in quoted values.
+         */
+        private void skipTag() {
+            byte quote = 0;
+            while (pos < end) {
+                byte b = at(pos++);
+                if (quote != 0) {
+                    if (b == quote) {
+                        quote = 0;
+                    }
+                } else if ((b == '"') || (b == '\'')) {
+                    quote = b;
+                } else if (b == '>') {
+                    return;
+                }
+            }
+        }
+
+        /*
+         * Skips the content of an element which holds no markup, up to and including its
+         * end tag, and returns where the content ends.
+         */
+        private int skipRawText(String endTag) {
+            while (pos < end) {
+                int candidate = indexOf('<', pos);
+                if (candidate == -1) {
+                    break;
+                }
+                if (regionMatchesIgnoreCase(candidate, endTag)) {
+                    pos = candidate + endTag.length();
+                    skipTag();
+                    return candidate;
+                }
+                pos = candidate + 1;
+            }
+            pos = end;
+            return end;
+        }
+
+        private byte at(int index) {
+            return content[index];
+        }
+
+        private int indexOf(char c, int from) {
+            for (int i = from; i < end; i++) {
+                if (at(i) == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int indexOf(String s, int from) {
+            for (int i = from; i <= end - s.length(); i++) {
+                if (regionMatchesIgnoreCase(i, s)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private boolean startsWith(String s) {
+            return regionMatchesIgnoreCase(pos, s);
+        }
+
+        private boolean regionMatchesIgnoreCase(int from, String s) {
+            if (from + s.length() > end) {
+                return false;
+            }
+            for (int i = 0; i < s.length(); i++) {
+                if (toLowerCase(at(from + i)) != s.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void skipWhitespace() {
+            while ((pos < end) && isWhitespace(at(pos))) {
+                pos++;
+            }
+        }
+
+        private String lowerCaseAscii(int from, int to) {
+            char[] chars = new char[to - from];
+            for (int i = from; i < to; i++) {
+                chars[i - from] = (char) toLowerCase(at(i));
+            }
+            return new String(chars);
+        }
+
+        private String decode(int from, int to) {
+            return new String(content, from, to - from, charset);
+        }
+
+        private static int toLowerCase(byte b) {
+            return ((b >= 'A') && (b <= 'Z')) ? (b + ('a' - 'A')) : b;
+        }
+
+        private static boolean isWhitespace(byte b) {
+            return (b == ' ') || (b == '\n') || (b == '\r') || (b == '\t') || (b == '\f');
+        }
+
+        private static boolean isLetter(byte b) {
+            return ((b >= 'a') && (b <= 'z')) || ((b >= 'A') && (b <= 'Z'));
+        }
+
+        private static boolean isNameChar(byte b) {
+            return ((b >= 'a') && (b <= 'z')) || ((b >= 'A') && (b <= 'Z')) || ((b >= '0') && (b <= '9')) ||
+                   (b == '-') || (b == ':') || (b == '_');
+        }
+    }
+}
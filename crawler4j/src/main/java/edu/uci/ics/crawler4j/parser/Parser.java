@@ -17,6 +17,8 @@
 
 package edu.uci.ics.crawler4j.parser;
 
+import java.io.InputStream;
+
 import org.apache.tika.language.LanguageIdentifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -89,12 +91,7 @@ public class Parser {
         } else if (Util.hasCssTextContent(page.getContentType())) { // text/css
             try {
                 CssParseData parseData = new CssParseData();
-                if (page.getContentCharset() == null) {
-                    parseData.setTextContent(new String(page.getContentData()));
-                } else {
-                    parseData.setTextContent(
-                        new String(page.getContentData(), page.getContentCharset()));
-                }
+                parseData.setTextContent(page.getContentAsString());
                 parseData.setOutgoingUrls(page.getWebURL());
                 page.setParseData(parseData);
             } catch (Exception e) {
@@ -104,12 +101,7 @@ public class Parser {
         } else if (Util.hasPlainTextContent(page.getContentType())) { // plain Text
             try {
                 TextParseData parseData = new TextParseData();
-                if (page.getContentCharset() == null) {
-                    parseData.setTextContent(new String(page.getContentData()));
-                } else {
-                    parseData.setTextContent(
-                        new String(page.getContentData(), page.getContentCharset()));
-                }
+                parseData.setTextContent(page.getContentAsString());
                 parseData.setOutgoingUrls(net.extractUrls(parseData.getTextContent()));
                 page.setParseData(parseData);
             } catch (Exception e) {
@@ -117,19 +109,48 @@ public class Parser {
                 throw new ParseException(e);
             }
         } else { // isHTML
+            setHtmlParseData(page, this.htmlContentParser.parse(page, contextURL));
+        }
+    }
 
-            HtmlParseData parsedData = this.htmlContentParser.parse(page, contextURL);
-
-            if (page.getContentCharset() == null) {
-                page.setContentCharset(parsedData.getContentCharset());
-            }
+    /**
+     * @param contentType the content type of a page
+     * @return true if pages of this type can be parsed while they are downloaded, with
+     *         {@link #parse(Page, String, InputStream)}
+     */
+    public boolean isStreamable(String contentType) {
+        return !Util.hasBinaryContent(contentType) && !Util.hasCssTextContent(contentType) &&
+               !Util.hasPlainTextContent(contentType);
+    }
 
-            // Please note that identifying language takes less than 10 milliseconds
-            LanguageIdentifier languageIdentifier = new LanguageIdentifier(parsedData.getText());
-            page.setLanguage(languageIdentifier.getLanguage());
+    /**
+     * Parses an html page while its content is read from the given stream.
+     *
+     * @param page the page, holding the content type and charset of the response
+     * @param contextURL the url against which relative links are resolved
+     * @param content the content of the page
+     * @throws ParseException if the content cannot be read or parsed
+     */
+    public void parse(Page page, String contextURL, InputStream content) throws ParseException {
+        setHtmlParseData(page, this.htmlContentParser.parse(page, contextURL, content));
+    }
 
-            page.setParseData(parsedData);
+    private void setHtmlParseData(Page page, HtmlParseData parsedData) {
+        if (page.getContentCharset() == null) {
+            page.setContentCharset(parsedData.getContentCharset());
+        }
 
+        // Please note that identifying language takes less than 10 milliseconds, and is only
+        // done if the language is asked for
+        if (config.getParserConfig().getExtractionProfile().isLanguageIdentified()) {
+            page.setLanguageSupplier(() -> identifyLanguage(parsedData));
         }
+
+        page.setParseData(parsedData);
+    }
+
+    private static String identifyLanguage(HtmlParseData parsedData) {
+        String text = parsedData.getText();
+        return (text == null) ? null : new LanguageIdentifier(text).getLanguage();
     }
 }
@@ -0,0 +1,153 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.parser;
+
+import edu.uci.ics.crawler4j.crawler.CrawlConfig;
+
+/**
+ * Settings of the {@link Parser}, available through {@link CrawlConfig#getParserConfig()}.
+ */
+public class ParserConfig {
+
+    /**
+     * What is extracted from html pages, beyond their outgoing links, title and meta tags.
+     */
+    public enum ExtractionProfile {
+        /**
+         * The text and the html of the page, and its language.
+         */
+        FULL(true, true, true),
+        /**
+         * The text of the page, without its html nor its language.
+         */
+        TEXT(true, false, false),
+        /**
+         * Nothing beyond the outgoing links, title and meta tags.
+         */
+        LINKS(false, false, false);
+
+        private final boolean textExtracted;
+        private final boolean htmlExtracted;
+        private final boolean languageIdentified;
+
+        ExtractionProfile(boolean textExtracted, boolean htmlExtracted, boolean languageIdentified) {
+            this.textExtracted = textExtracted;
+            this.htmlExtracted = htmlExtracted;
+            this.languageIdentified = languageIdentified;
+        }
+
+        public boolean isTextExtracted() {
+            return textExtracted;
+        }
+
+        public boolean isHtmlExtracted() {
+            return htmlExtracted;
+        }
+
+        public boolean isLanguageIdentified() {
+            return languageIdentified;
+        }
+    }
+
+    /**
+     * What is extracted from html pages.
+     */
+    private ExtractionProfile extractionProfile = ExtractionProfile.FULL;
+
+    /**
+     * Should html pages be parsed while they are downloaded, instead of being loaded
+     * into memory first?
+     */
+    private boolean streamingParse = false;
+
+    /**
+     * Should the raw content of pages parsed while downloaded still be kept?
+     */
+    private boolean retainStreamedContent = false;
+
+    /**
+     * Validates the configs specified by this instance.
+     *
+     * @throws Exception on Validation fail
+     */
+    public void validate() throws Exception {
+        if (extractionProfile == null) {
+            throw new Exception("An extraction profile is required");
+        }
+        if (retainStreamedContent && !streamingParse) {
+            throw new Exception("Retaining streamed content requires the streaming parse to be enabled");
+        }
+    }
+
+    public ExtractionProfile getExtractionProfile() {
+        return extractionProfile;
+    }
+
+    /**
+     * Selects what is extracted from html pages. Whatever the profile, the text, the html
+     * and the language are only computed when they are first asked for; the profile also
+     * skips collecting the text while parsing. The outgoing links, the title and the meta
+     * tags are always extracted.
+     *
+     * @param extractionProfile what is extracted, {@link ExtractionProfile#FULL} by default
+     */
+    public void setExtractionProfile(ExtractionProfile extractionProfile) {
+        this.extractionProfile = extractionProfile;
+    }
+
+    public boolean isStreamingParse() {
+        return streamingParse;
+    }
+
+    /**
+     * Parse html pages straight from the response while it is downloaded. Links and
+     * text are extracted as the bytes arrive, and the page content is neither loaded
+     * into a byte array nor converted to a String, which lowers the memory needed by
+     * each page in flight.
+     *
+     * Unless {@link #setRetainStreamedContent(boolean)} is enabled, {@link
+     * edu.uci.ics.crawler4j.crawler.Page#getContentData()} and {@link HtmlParseData#getHtml()}
+     * are null for these pages. Other content types are loaded and parsed as usual.
+     *
+     * @param streamingParse {@code true} to parse html pages while they are downloaded
+     */
+    public void setStreamingParse(boolean streamingParse) {
+        this.streamingParse = streamingParse;
+    }
+
+    public boolean isRetainStreamedContent() {
+        return retainStreamedContent;
+    }
+
+    /**
+     * @param retainStreamedContent {@code true} to keep the content data and the html of
+     *                              pages parsed while downloaded
+     */
+    public void setRetainStreamedContent(boolean retainStreamedContent) {
+        this.retainStreamedContent = retainStreamedContent;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Extraction profile: " + getExtractionProfile() + "\n");
+        sb.append("Streaming parse: " + isStreamingParse() + "\n");
+        sb.append("Retain streamed content: " + isRetainStreamedContent() + "\n");
+        return sb.toString();
+    }
+}
@@ -1,11 +1,12 @@
 package edu.uci.ics.crawler4j.parser;
 
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.tika.metadata.DublinCore;
@@ -19,6 +20,7 @@ import org.slf4j.LoggerFactory;
 import edu.uci.ics.crawler4j.crawler.CrawlConfig;
 import edu.uci.ics.crawler4j.crawler.Page;
 import edu.uci.ics.crawler4j.crawler.exceptions.ParseException;
+import edu.uci.ics.crawler4j.parser.ParserConfig.ExtractionProfile;
 import edu.uci.ics.crawler4j.url.TLDList;
 import edu.uci.ics.crawler4j.url.URLCanonicalizer;
 import edu.uci.ics.crawler4j.url.WebURL;
@@ -42,17 +44,32 @@ public class TikaHtmlParser implements edu.uci.ics.crawler4j.parser.HtmlParser {
     }
 
     public HtmlParseData parse(Page page, String contextURL) throws ParseException {
+        try (InputStream inputStream = page.getContentStream()) {
+            return parse(page, contextURL, inputStream);
+        } catch (IOException e) {
+            throw new ParseException("could not parse [" + page.getWebURL().getURL() + "]", e);
+        }
+    }
+
+    /**
+     * Parses the content while it is read, so that links and text are extracted as
+     * the bytes arrive. The html of the parsed data is only available if the page holds
+     * its content data once the stream is consumed.
+     */
+    @Override
+    public HtmlParseData parse(Page page, String contextURL, InputStream content) throws ParseException {
         HtmlParseData parsedData = new HtmlParseData();
 
-        HtmlContentHandler contentHandler = new HtmlContentHandler();
+        ExtractionProfile profile = config.getParserConfig().getExtractionProfile();
+        HtmlContentHandler contentHandler = new HtmlContentHandler(profile.isTextExtracted());
         Metadata metadata = new Metadata();
 
         if (page.getContentType() != null) {
             metadata.add(Metadata.CONTENT_TYPE, page.getContentType());
         }
 
-        try (InputStream inputStream = new ByteArrayInputStream(page.getContentData())) {
-            htmlParser.parse(inputStream, contentHandler, metadata, parseContext);
+        try {
+            htmlParser.parse(content, contentHandler, metadata, parseContext);
         } catch (Exception e) {
             logger.error("{}, while parsing: {}", e.getMessage(), page.getWebURL().getURL());
             throw new ParseException("could not parse [" + page.getWebURL().getURL() + "]", e);
@@ -61,7 +78,9 @@ public class TikaHtmlParser implements edu.uci.ics.crawler4j.parser.HtmlParser {
         String contentCharset = chooseEncoding(page, metadata);
         parsedData.setContentCharset(contentCharset);
 
-        parsedData.setText(contentHandler.getBodyText().trim());
+        if (profile.isTextExtracted()) {
+            parsedData.setTextSupplier(() -> contentHandler.getBodyText().trim());
+        }
         parsedData.setTitle(metadata.get(DublinCore.TITLE));
         parsedData.setMetaTags(contentHandler.getMetaTags());
 
@@ -69,10 +88,8 @@ public class TikaHtmlParser implements edu.uci.ics.crawler4j.parser.HtmlParser {
             Set<WebURL> outgoingUrls = getOutgoingUrls(contextURL, contentHandler, contentCharset);
             parsedData.setOutgoingUrls(outgoingUrls);
 
-            if (page.getContentCharset() == null) {
-                parsedData.setHtml(new String(page.getContentData()));
-            } else {
-                parsedData.setHtml(new String(page.getContentData(), page.getContentCharset()));
+            if (profile.isHtmlExtracted()) {
+                parsedData.setHtmlSupplier(() -> decodeHtml(page));
             }
 
             return parsedData;
@@ -83,17 +100,36 @@ public class TikaHtmlParser implements edu.uci.ics.crawler4j.parser.HtmlParser {
 
     }
 
+    static String decodeHtml(Page page) {
+        try {
+            return page.getContentAsString();
+        } catch (UnsupportedEncodingException e) {
+            logger.error("error decoding the html: " + page.getWebURL().getURL(), e);
+            return null;
+        }
+    }
+
     private Set<WebURL> getOutgoingUrls(String contextURL, HtmlContentHandler contentHandler, String contentCharset)
             throws UnsupportedEncodingException {
+        return getOutgoingUrls(contentHandler.getOutgoingUrls(), contentHandler.getBaseUrl(), contextURL,
+                               contentCharset, tldList, config.getMaxOutgoingLinksToFollow());
+    }
+
+    /**
+     * Resolves the extracted links of a page against its base url, or its own url if it
+     * has none, skipping javascript and mailto links.
+     */
+    static Set<WebURL> getOutgoingUrls(List<ExtractedUrlAnchorPair> urlAnchorPairs, String baseURL,
+                                       String contextURL, String contentCharset, TLDList tldList,
+                                       int maxOutgoingLinksToFollow) throws UnsupportedEncodingException {
         Set<WebURL> outgoingUrls = new HashSet<>();
 
-        String baseURL = contentHandler.getBaseUrl();
         if (baseURL != null) {
             contextURL = baseURL;
         }
 
         int urlCount = 0;
-        for (ExtractedUrlAnchorPair urlAnchorPair : contentHandler.getOutgoingUrls()) {
+        for (ExtractedUrlAnchorPair urlAnchorPair : urlAnchorPairs) {
 
             String href = urlAnchorPair.getHref();
             if ((href == null) || href.trim().isEmpty()) {
@@ -116,7 +152,7 @@ public class TikaHtmlParser implements edu.uci.ics.crawler4j.parser.HtmlParser {
                     webURL.setAttributes(urlAnchorPair.getAttributes());
                     outgoingUrls.add(webURL);
                     urlCount++;
-                    if (urlCount > config.getMaxOutgoingLinksToFollow()) {
+                    if (urlCount > maxOutgoingLinksToFollow) {
                         break;
                     }
                 }
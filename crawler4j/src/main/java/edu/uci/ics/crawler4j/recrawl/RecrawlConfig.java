@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.recrawl;
+
+import java.util.concurrent.TimeUnit;
+
+import edu.uci.ics.crawler4j.crawler.CrawlConfig;
+
+/**
+ * Settings of the continuous crawl mode and of its {@link RevisitScheduler}, available
+ * through {@link CrawlConfig#getRecrawlConfig()}.
+ */
+public class RecrawlConfig {
+
+    /**
+     * Should the crawl keep running once the queue is empty, and fetch the pages again
+     * as their revisit intervals expire?
+     */
+    private boolean continuousCrawl = false;
+
+    /**
+     * Time in milliseconds between the first two fetches of a page.
+     */
+    private long initialRevisitInterval = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * Shortest time in milliseconds between two fetches of a page.
+     */
+    private long minRevisitInterval = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Longest time in milliseconds between two fetches of a page.
+     */
+    private long maxRevisitInterval = TimeUnit.DAYS.toMillis(30);
+
+    /**
+     * Number of due pages scheduled together.
+     */
+    private int revisitBatchSize = 1000;
+
+    /**
+     * Validates the configs specified by this instance.
+     *
+     * @throws Exception on Validation fail
+     */
+    public void validate() throws Exception {
+        if ((minRevisitInterval < 1) || (minRevisitInterval > initialRevisitInterval) ||
+            (initialRevisitInterval > maxRevisitInterval)) {
+            throw new Exception("Invalid revisit intervals: min " + minRevisitInterval + ", initial " +
+                                initialRevisitInterval + ", max " + maxRevisitInterval);
+        }
+        if (revisitBatchSize < 1) {
+            throw new Exception("Invalid value for revisit batch size: " + revisitBatchSize);
+        }
+    }
+
+    public boolean isContinuousCrawl() {
+        return continuousCrawl;
+    }
+
+    /**
+     * In a continuous crawl, the time of the last fetch and a hash of the content of every
+     * fetched page are kept, and the page is scheduled again once its revisit interval
+     * has passed. The interval of a page which changed between two fetches is halved,
+     * and the interval of a page which did not change grows by half, so that pages which
+     * change often are fetched often. The crawl does not stop when the queue is empty,
+     * but only on {@link edu.uci.ics.crawler4j.crawler.CrawlController#shutdown()}.
+     *
+     * Revisits count as scheduled pages for {@link CrawlConfig#getMaxPagesToFetch()}. The
+     * revisit schedule is kept across crawls when crawling is resumable. Combined with
+     * {@link CrawlConfig#setConditionalGet(boolean)}, pages which did not change are
+     * revalidated instead of downloaded.
+     *
+     * @param continuousCrawl true to revisit the fetched pages until the crawl is shut down
+     */
+    public void setContinuousCrawl(boolean continuousCrawl) {
+        this.continuousCrawl = continuousCrawl;
+    }
+
+    public long getInitialRevisitInterval() {
+        return initialRevisitInterval;
+    }
+
+    /**
+     * @param initialRevisitInterval time in milliseconds between the first two fetches of a
+     *                               page, one day by default
+     */
+    public void setInitialRevisitInterval(long initialRevisitInterval) {
+        this.initialRevisitInterval = initialRevisitInterval;
+    }
+
+    public long getMinRevisitInterval() {
+        return minRevisitInterval;
+    }
+
+    /**
+     * @param minRevisitInterval shortest time in milliseconds between two fetches of a page,
+     *                           however often it changes, one hour by default
+     */
+    public void setMinRevisitInterval(long minRevisitInterval) {
+        this.minRevisitInterval = minRevisitInterval;
+    }
+
+    public long getMaxRevisitInterval() {
+        return maxRevisitInterval;
+    }
+
+    /**
+     * @param maxRevisitInterval longest time in milliseconds between two fetches of a page
+     *                           which never changes, 30 days by default. Pages whose fetch
+     *                           failed are tried again after this time.
+     */
+    public void setMaxRevisitInterval(long maxRevisitInterval) {
+        this.maxRevisitInterval = maxRevisitInterval;
+    }
+
+    public int getRevisitBatchSize() {
+        return revisitBatchSize;
+    }
+
+    /**
+     * @param revisitBatchSize number of due pages handed to the frontier together
+     */
+    public void setRevisitBatchSize(int revisitBatchSize) {
+        this.revisitBatchSize = revisitBatchSize;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Continuous crawl: " + isContinuousCrawl() + "\n");
+        sb.append("Revisit interval: " + getInitialRevisitInterval() + " (" + getMinRevisitInterval() + " - " +
+                  getMaxRevisitInterval() + " ms)\n");
+        sb.append("Revisit batch size: " + getRevisitBatchSize() + "\n");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.recrawl;
+
+import com.sleepycat.bind.tuple.TupleBinding;
+import com.sleepycat.bind.tuple.TupleInput;
+import com.sleepycat.bind.tuple.TupleOutput;
+
+/**
+ * The fetch and change history of a page, as kept by the {@link RevisitScheduler}.
+ */
+public class Revisit {
+
+    /**
+     * The hash of a page whose content was not available.
+     */
+    static final long UNKNOWN_HASH = 0;
+
+    String url;
+    short depth;
+    byte priority;
+    long lastFetchTime;
+    long lastChangeTime;
+    long revisitInterval;
+    long dueTime;
+    long contentHash = UNKNOWN_HASH;
+    int fetchCount;
+    int changeCount;
+
+    /**
+     * @return the url of the page
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return the time of the last fetch of the page, in milliseconds since the epoch
+     */
+    public long getLastFetchTime() {
+        return lastFetchTime;
+    }
+
+    /**
+     * @return the time of the last fetch which found the page changed, or of its first
+     * fetch, in milliseconds since the epoch
+     */
+    public long getLastChangeTime() {
+        return lastChangeTime;
+    }
+
+    /**
+     * @return the current time in milliseconds between two fetches of the page
+     */
+    public long getRevisitInterval() {
+        return revisitInterval;
+    }
+
+    /**
+     * @return the time at which the page is scheduled again, in milliseconds since the epoch
+     */
+    public long getDueTime() {
+        return dueTime;
+    }
+
+    /**
+     * @return the hash of the content of the page at its last fetch
+     */
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * @return the number of fetches of the page, including those answered with 304 Not Modified
+     */
+    public int getFetchCount() {
+        return fetchCount;
+    }
+
+    /**
+     * @return the number of fetches which found the page changed
+     */
+    public int getChangeCount() {
+        return changeCount;
+    }
+
+    static class Binding extends TupleBinding<Revisit> {
+
+        @Override
+        public Revisit entryToObject(TupleInput input) {
+            Revisit revisit = new Revisit();
+            revisit.url = input.readString();
+            revisit.depth = input.readShort();
+            revisit.priority = input.readByte();
+            revisit.lastFetchTime = input.readLong();
+            revisit.lastChangeTime = input.readLong();
+            revisit.revisitInterval = input.readLong();
+            revisit.dueTime = input.readLong();
+            revisit.contentHash = input.readLong();
+            revisit.fetchCount = input.readInt();
+            revisit.changeCount = input.readInt();
+            return revisit;
+        }
+
+        @Override
+        public void objectToEntry(Revisit revisit, TupleOutput output) {
+            output.writeString(revisit.url);
+            output.writeShort(revisit.depth);
+            output.writeByte(revisit.priority);
+            output.writeLong(revisit.lastFetchTime);
+            output.writeLong(revisit.lastChangeTime);
+            output.writeLong(revisit.revisitInterval);
+            output.writeLong(revisit.dueTime);
+            output.writeLong(revisit.contentHash);
+            output.writeInt(revisit.fetchCount);
+            output.writeInt(revisit.changeCount);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.recrawl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.sleepycat.bind.tuple.TupleInput;
+import com.sleepycat.bind.tuple.TupleOutput;
+import com.sleepycat.je.Cursor;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseConfig;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.OperationStatus;
+import com.sleepycat.je.Transaction;
+
+import edu.uci.ics.crawler4j.crawler.CrawlConfig;
+import edu.uci.ics.crawler4j.crawler.Page;
+import edu.uci.ics.crawler4j.frontier.Frontier;
+import edu.uci.ics.crawler4j.url.TLDList;
+import edu.uci.ics.crawler4j.url.WebURL;
+import edu.uci.ics.crawler4j.util.Util;
+
+/**
+ * Keeps the fetch and change history of the fetched pages, and hands the pages whose
+ * revisit interval has passed back to the {@link Frontier}. The history of a page is
+ * kept by docid, and an index ordered by due time finds the due pages without scanning
+ * the history of all pages.
+ *
+ * A page is due again one revisit interval after it was fetched. Its interval starts at
+ * {@link RecrawlConfig#getInitialRevisitInterval()}, is halved whenever the content hash
+ * of the page differs from the previous fetch, and grows by half whenever it does not,
+ * within the bounds of the {@link RecrawlConfig}.
+ */
+public class RevisitScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(RevisitScheduler.class);
+
+    private static final String DATABASE_NAME = "Revisits";
+    private static final String DUE_DATABASE_NAME = "RevisitsByDueTime";
+
+    private static final double CHANGED_INTERVAL_FACTOR = 0.5;
+    private static final double UNCHANGED_INTERVAL_FACTOR = 1.5;
+
+    private final Environment env;
+    private final CrawlConfig config;
+    private final TLDList tldList;
+
+    private final Database revisitsDB;
+
+    /**
+     * Keyed by due time and docid, so that a cursor reads the due pages first.
+     */
+    private final Database dueDB;
+
+    private final Revisit.Binding revisitBinding = new Revisit.Binding();
+
+    private final Object mutex = new Object();
+
+    public RevisitScheduler(Environment env, CrawlConfig config, TLDList tldList) {
+        this.env = env;
+        this.config = config;
+        this.tldList = tldList;
+        revisitsDB = openDatabase(DATABASE_NAME);
+        dueDB = openDatabase(DUE_DATABASE_NAME);
+        if (config.isResumableCrawling() && (revisitsDB.count() > 0)) {
+            logger.info("Loaded the revisit schedule of {} pages from previous crawl.", revisitsDB.count());
+        }
+    }
+
+    private Database openDatabase(String dbName) {
+        DatabaseConfig dbConfig = new DatabaseConfig();
+        dbConfig.setAllowCreate(true);
+        dbConfig.setTransactional(config.isResumableCrawling());
+        dbConfig.setDeferredWrite(!config.isResumableCrawling());
+        return env.openDatabase(null, dbName, dbConfig);
+    }
+
+    private Transaction beginTransaction() {
+        return config.isResumableCrawling() ? env.beginTransaction(null, null) : null;
+    }
+
+    private static void commit(Transaction txn) {
+        if (txn != null) {
+            txn.commit();
+        }
+    }
+
+    private static DatabaseEntry docIdKey(int docId) {
+        return new DatabaseEntry(Util.int2ByteArray(docId));
+    }
+
+    private static DatabaseEntry dueKey(long dueTime, int docId) {
+        TupleOutput output = new TupleOutput();
+        output.writeLong(dueTime);
+        output.writeInt(docId);
+        return new DatabaseEntry(output.toByteArray());
+    }
+
+    /**
+     * Records a fetch of a page whose content was loaded, and schedules its next visit.
+     *
+     * @param page the fetched page
+     */
+    public void onFetched(Page page) {
+        ByteBuffer content = page.getContentBuffer();
+        // Pages parsed while downloaded may not retain their content, only its hash
+        HashCode hash = (content != null) ? Hashing.murmur3_128().hashBytes(content) : page.getStreamedContentHash();
+        long contentHash = Revisit.UNKNOWN_HASH;
+        if (hash != null) {
+            contentHash = hash.asLong();
+            if (contentHash == Revisit.UNKNOWN_HASH) {
+                contentHash = 1;
+            }
+        }
+        record(page.getWebURL(), false, contentHash);
+    }
+
+    /**
+     * Records a fetch of a page which was answered with 304 Not Modified, and schedules
+     * its next visit.
+     *
+     * @param webUrl the url of the page
+     */
+    public void onNotModified(WebURL webUrl) {
+        record(webUrl, true, Revisit.UNKNOWN_HASH);
+    }
+
+    private void record(WebURL webUrl, boolean notModified, long contentHash) {
+        int docId = webUrl.getDocid();
+        if (docId <= 0) {
+            return;
+        }
+        RecrawlConfig recrawlConfig = config.getRecrawlConfig();
+        long now = System.currentTimeMillis();
+        synchronized (mutex) {
+            Transaction txn = beginTransaction();
+            DatabaseEntry value = new DatabaseEntry();
+            Revisit revisit;
+            if (revisitsDB.get(txn, docIdKey(docId), value, null) == OperationStatus.SUCCESS) {
+                revisit = revisitBinding.entryToObject(value);
+                dueDB.delete(txn, dueKey(revisit.dueTime, docId));
+                double factor = 1.0;
+                if (notModified || ((contentHash != Revisit.UNKNOWN_HASH) && (contentHash == revisit.contentHash))) {
+                    factor = UNCHANGED_INTERVAL_FACTOR;
+                } else if ((contentHash != Revisit.UNKNOWN_HASH) && (revisit.contentHash != Revisit.UNKNOWN_HASH)) {
+                    factor = CHANGED_INTERVAL_FACTOR;
+                    revisit.changeCount++;
+                    revisit.lastChangeTime = now;
+                }
+                revisit.revisitInterval = Math.max(recrawlConfig.getMinRevisitInterval(),
+                                                   Math.min(recrawlConfig.getMaxRevisitInterval(),
+                                                            (long) (revisit.revisitInterval * factor)));
+            } else {
+                revisit = new Revisit();
+                revisit.lastChangeTime = now;
+                revisit.revisitInterval = recrawlConfig.getInitialRevisitInterval();
+            }
+            if (!notModified) {
+                revisit.contentHash = contentHash;
+            }
+            revisit.url = webUrl.getURL();
+            revisit.depth = webUrl.getDepth();
+            revisit.priority = webUrl.getPriority();
+            revisit.lastFetchTime = now;
+            revisit.fetchCount++;
+            revisit.dueTime = now + revisit.revisitInterval;
+            put(txn, docId, revisit);
+            commit(txn);
+        }
+    }
+
+    private void put(Transaction txn, int docId, Revisit revisit) {
+        DatabaseEntry value = new DatabaseEntry();
+        revisitBinding.objectToEntry(revisit, value);
+        revisitsDB.put(txn, docIdKey(docId), value);
+        dueDB.put(txn, dueKey(revisit.dueTime, docId), new DatabaseEntry(new byte[0]));
+    }
+
+    /**
+     * Hands the pages which are due to the frontier. Until the next fetch of a scheduled
+     * page is recorded, the page is due again after the maximum revisit interval, so that
+     * a page whose fetch failed is tried again.
+     *
+     * @param frontier where the due pages are scheduled
+     * @return the number of pages scheduled
+     */
+    public int scheduleDueUrls(Frontier frontier) {
+        int batchSize = config.getRecrawlConfig().getRevisitBatchSize();
+        int scheduled = 0;
+        List<WebURL> batch;
+        do {
+            batch = claimDueUrls(batchSize, System.currentTimeMillis());
+            if (!batch.isEmpty()) {
+                frontier.scheduleAll(batch);
+                scheduled += batch.size();
+            }
+        } while (batch.size() == batchSize);
+        if (scheduled > 0) {
+            logger.debug("Scheduled {} pages to be revisited", scheduled);
+        }
+        return scheduled;
+    }
+
+    private List<WebURL> claimDueUrls(int max, long now) {
+        long retryTime = now + config.getRecrawlConfig().getMaxRevisitInterval();
+        List<WebURL> results = new ArrayList<>();
+        synchronized (mutex) {
+            DatabaseEntry key = new DatabaseEntry();
+            DatabaseEntry value = new DatabaseEntry();
+            Transaction txn = beginTransaction();
+            try (Cursor cursor = dueDB.openCursor(txn, null)) {
+                while ((results.size() < max) && (cursor.getFirst(key, value, null) == OperationStatus.SUCCESS)) {
+                    TupleInput input = new TupleInput(key.getData());
+                    if (input.readLong() > now) {
+                        break;
+                    }
+                    int docId = input.readInt();
+                    cursor.delete();
+                    if (revisitsDB.get(txn, docIdKey(docId), value, null) != OperationStatus.SUCCESS) {
+                        continue;
+                    }
+                    Revisit revisit = revisitBinding.entryToObject(value);
+                    revisit.dueTime = retryTime;
+                    put(txn, docId, revisit);
+                    results.add(toWebURL(docId, revisit));
+                }
+            }
+            commit(txn);
+        }
+        return results;
+    }
+
+    private WebURL toWebURL(int docId, Revisit revisit) {
+        WebURL webUrl = new WebURL();
+        webUrl.setTldList(tldList);
+        webUrl.setURL(revisit.url);
+        webUrl.setDocid(docId);
+        webUrl.setDepth(revisit.depth);
+        webUrl.setPriority(revisit.priority);
+        return webUrl;
+    }
+
+    /**
+     * @param docId the docid of a page
+     * @return the fetch and change history of the page, or null if it was never fetched
+     */
+    public Revisit getRevisit(int docId) {
+        DatabaseEntry value = new DatabaseEntry();
+        if (revisitsDB.get(null, docIdKey(docId), value, null) != OperationStatus.SUCCESS) {
+            return null;
+        }
+        return revisitBinding.entryToObject(value);
+    }
+
+    public void close() {
+        try {
+            revisitsDB.close();
+            dueDB.close();
+        } catch (DatabaseException e) {
+            logger.error("Exception thrown while closing RevisitScheduler", e);
+        }
+    }
+}
@@ -17,6 +17,7 @@
 
 package edu.uci.ics.crawler4j.robotstxt;
 
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
@@ -38,6 +39,7 @@ public class HostDirectives {
 
     private final long timeFetched;
     private long timeLastAccessed;
+    private boolean fetchFailed;
     private RobotstxtConfig config;
     private String userAgent;
 
@@ -136,6 +138,37 @@ public class HostDirectives {
         return result;
     }
 
+    /**
+     * Return the Crawl-delay of the user agent clause which best matches our user agent.
+     * As for the path rules, a more specific clause without a Crawl-delay hides the
+     * Crawl-delay of the wildcard clause.
+     *
+     * @return The Crawl-delay in seconds, or null if none applies
+     */
+    public Double getCrawlDelay() {
+        if (rules.isEmpty()) {
+            return null;
+        }
+        UserAgentDirectives ua = rules.iterator().next();
+        return ua.match(config.getUserAgentName()) > 0 ? ua.getCrawlDelay() : null;
+    }
+
+    /**
+     * Return the sitemaps listed in the robots.txt. Sitemap lines do not depend on the
+     * user agent, so the sitemaps of every clause are returned.
+     *
+     * @return The urls of the sitemaps, in no particular order
+     */
+    public Set<String> getSitemaps() {
+        Set<String> sitemaps = new LinkedHashSet<>();
+        for (UserAgentDirectives ua : rules) {
+            if (ua.getSitemap() != null) {
+                sitemaps.addAll(ua.getSitemap());
+            }
+        }
+        return sitemaps;
+    }
+
     /**
      * Store set of directives
      *
@@ -148,4 +181,20 @@ public class HostDirectives {
     public long getLastAccessTime() {
         return timeLastAccessed;
     }
+
+    public long getTimeFetched() {
+        return timeFetched;
+    }
+
+    /**
+     * @return true if these directives stand for a robots.txt which could not be fetched,
+     * because of a network error or a server error. Such directives allow everything.
+     */
+    public boolean isFetchFailed() {
+        return fetchFailed;
+    }
+
+    void setFetchFailed(boolean fetchFailed) {
+        this.fetchFailed = fetchFailed;
+    }
 }
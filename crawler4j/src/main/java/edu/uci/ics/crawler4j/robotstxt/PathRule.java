@@ -1,5 +1,6 @@
 package edu.uci.ics.crawler4j.robotstxt;
 
+import java.util.Arrays;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
@@ -8,9 +9,20 @@ import org.slf4j.LoggerFactory;
 public class PathRule {
     protected static final Logger logger = LoggerFactory.getLogger(PathRule.class);
 
+    /** A glob token matching any sequence of characters, including an empty one */
+    static final int ANY_SEQUENCE = -1;
+    /** A glob token matching any single character */
+    static final int ANY_CHAR = -2;
+
     public int type;
     public Pattern pattern;
 
+    /**
+     * The pattern as a sequence of characters and wildcard tokens, which matches the
+     * same paths as {@link #pattern} without allocating a matcher.
+     */
+    final int[] glob;
+
     /**
      * Match a pattern defined in a robots.txt file to a path
      * Following the pattern definition as stated on:
@@ -97,6 +109,83 @@ public class PathRule {
         return Pattern.compile(regexp.toString());
     }
 
+    /**
+     * Convert a pattern defined in a robots.txt file to glob tokens, following the same
+     * rules as {@link #robotsPatternToRegexp(String)}. Characters are kept as they are,
+     * * becomes {@link #ANY_SEQUENCE}, or {@link #ANY_CHAR} followed by
+     * {@link #ANY_SEQUENCE} when it is not at the end of the pattern, and an
+     * {@link #ANY_SEQUENCE} is appended unless the pattern ends with * or $.
+     *
+     * @param pattern The pattern to convert
+     * @return The glob tokens matching the whole path
+     */
+    static int[] robotsPatternToGlob(String pattern) {
+        int[] glob = new int[pattern.length() * 2 + 1];
+        int length = 0;
+        boolean terminated = false;
+        for (int pos = 0; pos < pattern.length(); ++pos) {
+            char ch = pattern.charAt(pos);
+            if (ch == '\\') {
+                char nch = pos < pattern.length() - 1 ? pattern.charAt(pos + 1) : 0;
+                if (nch == '*') {
+                    glob[length++] = nch;
+                    ++pos;
+                } else {
+                    glob[length++] = ch;
+                }
+            } else if (ch == '*') {
+                if (pos == pattern.length() - 1) {
+                    terminated = true;
+                } else {
+                    glob[length++] = ANY_CHAR;
+                }
+                glob[length++] = ANY_SEQUENCE;
+            } else if (ch == '$' && pos == pattern.length() - 1) {
+                terminated = true;
+            } else {
+                glob[length++] = ch;
+            }
+        }
+        if (!terminated && !pattern.isEmpty()) {
+            glob[length++] = ANY_SEQUENCE;
+        }
+        return Arrays.copyOf(glob, length);
+    }
+
+    /**
+     * Check if the whole path matches the glob tokens. When a character does not match,
+     * the matching resumes one character further after the last {@link #ANY_SEQUENCE},
+     * so the path is scanned at most once per {@link #ANY_SEQUENCE}.
+     *
+     * @param glob The tokens created by {@link #robotsPatternToGlob(String)}
+     * @param path The path to match
+     * @return True when the path matches, false if it does not
+     */
+    static boolean matchesGlob(int[] glob, String path) {
+        int pos = 0;
+        int token = 0;
+        int sequenceToken = -1;
+        int sequenceStart = 0;
+        while (pos < path.length()) {
+            if (token < glob.length && (glob[token] == ANY_CHAR || glob[token] == path.charAt(pos))) {
+                ++pos;
+                ++token;
+            } else if (token < glob.length && glob[token] == ANY_SEQUENCE) {
+                sequenceToken = token++;
+                sequenceStart = pos;
+            } else if (sequenceToken >= 0) {
+                token = sequenceToken + 1;
+                pos = ++sequenceStart;
+            } else {
+                return false;
+            }
+        }
+        while (token < glob.length && glob[token] == ANY_SEQUENCE) {
+            ++token;
+        }
+        return token == glob.length;
+    }
+
     /**
      * Check if the specified path matches a robots.txt pattern
      *
@@ -117,6 +206,7 @@ public class PathRule {
     public PathRule(int type, String pattern) {
         this.type = type;
         this.pattern = robotsPatternToRegexp(pattern);
+        this.glob = robotsPatternToGlob(pattern);
     }
 
     /**
@@ -126,6 +216,6 @@ public class PathRule {
      * @return True when the path matches, false when it does not
      */
     public boolean matches(String path) {
-        return this.pattern.matcher(path).matches();
+        return matchesGlob(glob, path);
     }
 }
@@ -0,0 +1,145 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.robotstxt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The path rules of a user agent compiled into a trie over the literal prefixes
+ * of their patterns. Checking a path walks the trie along the characters of the
+ * path once: the rules whose pattern is a plain prefix match as soon as their node
+ * is reached, and only the rules with wildcards or a $ anchor are matched against
+ * the whole path. Nothing is allocated while checking a path.
+ *
+ * The verdict is the one of the most specific matching rule, which is the rule
+ * with the longest pattern. Rules with the same pattern are ordered alphabetically
+ * and, for the exact same pattern, the allow rule wins.
+ */
+final class PathRuleMatcher {
+
+    private static final Comparator<PathRule> PRIORITY = Comparator
+        .comparingInt((PathRule rule) -> -rule.pattern.pattern().length())
+        .thenComparing(rule -> rule.pattern.pattern())
+        .thenComparingInt(rule -> rule.type == HostDirectives.ALLOWED ? 0 : 1);
+
+    /** The rules, most specific first: a rule is identified by its index here */
+    private final PathRule[] rules;
+    private final Node root = new Node();
+
+    PathRuleMatcher(Collection<PathRule> pathRules) {
+        rules = pathRules.toArray(new PathRule[0]);
+        Arrays.sort(rules, PRIORITY);
+        for (int rank = 0; rank < rules.length; ++rank) {
+            add(rank);
+        }
+    }
+
+    private void add(int rank) {
+        int[] glob = rules[rank].glob;
+        Node node = root;
+        int token = 0;
+        while (token < glob.length && glob[token] >= 0) {
+            node = node.childOrCreate((char) glob[token++]);
+        }
+        boolean prefixOnly = (token == glob.length - 1) && (glob[token] == PathRule.ANY_SEQUENCE);
+        if (prefixOnly) {
+            node.prefixRank = Math.min(node.prefixRank, rank);
+        } else {
+            node.addCheckedRank(rank);
+        }
+    }
+
+    /**
+     * @param path The path to check
+     * @return The type of the most specific rule matching the path, or
+     *         HostDirectives.UNDEFINED when no rule matches it
+     */
+    int checkAccess(String path) {
+        int best = check(root, path, Integer.MAX_VALUE);
+        Node node = root;
+        for (int pos = 0; pos < path.length(); ++pos) {
+            node = node.child(path.charAt(pos));
+            if (node == null) {
+                break;
+            }
+            best = check(node, path, best);
+        }
+        return best == Integer.MAX_VALUE ? HostDirectives.UNDEFINED : rules[best].type;
+    }
+
+    private int check(Node node, String path, int best) {
+        best = Math.min(best, node.prefixRank);
+        for (int rank : node.checkedRanks) {
+            if (rank >= best) {
+                break;
+            }
+            if (rules[rank].matches(path)) {
+                return rank;
+            }
+        }
+        return best;
+    }
+
+    private static final class Node {
+        private static final int[] NO_RANKS = new int[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private char[] keys = new char[0];
+        private Node[] children = NO_CHILDREN;
+
+        /** The rank of the best rule whose pattern is the prefix ending at this node */
+        private int prefixRank = Integer.MAX_VALUE;
+
+        /** The ranks, in increasing order, of the rules matched against the whole path */
+        private int[] checkedRanks = NO_RANKS;
+
+        Node child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node childOrCreate(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertion = -index - 1;
+            List<Node> nodes = new ArrayList<>(Arrays.asList(children));
+            Node node = new Node();
+            nodes.add(insertion, node);
+            children = nodes.toArray(NO_CHILDREN);
+
+            char[] newKeys = new char[keys.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertion);
+            newKeys[insertion] = key;
+            System.arraycopy(keys, insertion, newKeys, insertion + 1, keys.length - insertion);
+            keys = newKeys;
+            return node;
+        }
+
+        void addCheckedRank(int rank) {
+            // Ranks are added in increasing order
+            checkedRanks = Arrays.copyOf(checkedRanks, checkedRanks.length + 1);
+            checkedRanks[checkedRanks.length - 1] = rank;
+        }
+    }
+}
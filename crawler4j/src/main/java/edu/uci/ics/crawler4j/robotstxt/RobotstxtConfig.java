@@ -17,6 +17,8 @@
 
 package edu.uci.ics.crawler4j.robotstxt;
 
+import java.util.concurrent.TimeUnit;
+
 public class RobotstxtConfig {
 
     /**
@@ -46,6 +48,17 @@ public class RobotstxtConfig {
      */
     private int cacheSize = 500;
 
+    /**
+     * The number of milliseconds after which a cached robots.txt is fetched again.
+     */
+    private long cacheExpiration = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * The number of milliseconds after which a robots.txt which could not be fetched is
+     * fetched again.
+     */
+    private long failedFetchCacheExpiration = TimeUnit.HOURS.toMillis(1);
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -66,10 +79,44 @@ public class RobotstxtConfig {
         return cacheSize;
     }
 
+    /**
+     * @param cacheSize The maximum number of hosts for which their robots.txt is cached.
+     *                  The least recently used hosts are evicted first.
+     */
     public void setCacheSize(int cacheSize) {
         this.cacheSize = cacheSize;
     }
 
+    public long getCacheExpiration() {
+        return cacheExpiration;
+    }
+
+    /**
+     * @param cacheExpiration The number of milliseconds after which a cached robots.txt is
+     *                        fetched again, one day by default.
+     */
+    public void setCacheExpiration(long cacheExpiration) {
+        this.cacheExpiration = cacheExpiration;
+    }
+
+    public long getFailedFetchCacheExpiration() {
+        return failedFetchCacheExpiration;
+    }
+
+    /**
+     * A robots.txt which could not be fetched, because of a network error or a server
+     * error, is remembered as allowing everything, so that the other urls of the host do
+     * not fetch it again. It is fetched again after this delay, which is only effective
+     * when shorter than {@link #setCacheExpiration(long)}.
+     *
+     * @param failedFetchCacheExpiration The number of milliseconds after which a robots.txt
+     *                                   which could not be fetched is fetched again, one
+     *                                   hour by default.
+     */
+    public void setFailedFetchCacheExpiration(long failedFetchCacheExpiration) {
+        this.failedFetchCacheExpiration = failedFetchCacheExpiration;
+    }
+
     public void setIgnoreUADiscrimination(boolean ignore) {
         this.ignoreUADiscrimination = ignore;
     }
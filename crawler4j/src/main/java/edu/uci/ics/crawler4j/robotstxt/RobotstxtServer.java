@@ -21,14 +21,24 @@ import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.net.UnknownHostException;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.http.HttpStatus;
 import org.apache.http.NoHttpResponseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
 import edu.uci.ics.crawler4j.crawler.CrawlConfig;
 import edu.uci.ics.crawler4j.crawler.Page;
 import edu.uci.ics.crawler4j.crawler.exceptions.PageBiggerThanMaxSizeException;
@@ -48,7 +58,12 @@ public class RobotstxtServer {
 
     protected CrawlConfig crawlConfig;
 
-    protected final Map<String, HostDirectives> host2directivesCache = new HashMap<>();
+    /**
+     * A concurrent view of {@link #directivesCache}.
+     */
+    protected final Map<String, HostDirectives> host2directivesCache;
+
+    private final Cache<String, HostDirectives> directivesCache;
 
     protected PageFetcher pageFetcher;
 
@@ -62,6 +77,12 @@ public class RobotstxtServer {
         this.config = config;
         this.pageFetcher = pageFetcher;
         this.maxBytes = maxBytes;
+        this.directivesCache = CacheBuilder.newBuilder()
+                                           .maximumSize(config.getCacheSize())
+                                           .expireAfterWrite(config.getCacheExpiration(), TimeUnit.MILLISECONDS)
+                                           .recordStats()
+                                           .build();
+        this.host2directivesCache = directivesCache.asMap();
     }
 
     private static String getHost(URL url) {
@@ -83,16 +104,10 @@ public class RobotstxtServer {
             String host = getHost(url);
             String path = url.getPath();
 
-            HostDirectives directives = host2directivesCache.get(host);
-
-            if (directives != null && directives.needsRefetch()) {
-                synchronized (host2directivesCache) {
-                    host2directivesCache.remove(host);
-                    directives = null;
-                }
-            }
-            if (directives == null) {
-                directives = fetchDirectives(url);
+            HostDirectives directives = loadDirectives(host, url);
+            if (isFailedFetchExpired(directives)) {
+                host2directivesCache.remove(host, directives);
+                directives = loadDirectives(host, url);
             }
             return directives.allows(path);
         } catch (MalformedURLException e) {
@@ -103,6 +118,26 @@ public class RobotstxtServer {
         return true;
     }
 
+    private boolean isFailedFetchExpired(HostDirectives directives) {
+        return directives.isFetchFailed() &&
+               (System.currentTimeMillis() - directives.getTimeFetched() > config.getFailedFetchCacheExpiration());
+    }
+
+    /*
+     * Only one thread fetches the robots.txt of a host; the other threads asking for the
+     * same host meanwhile wait for its result.
+     */
+    private HostDirectives loadDirectives(String host, URL url) throws IOException, InterruptedException {
+        try {
+            return directivesCache.get(host, () -> fetchDirectives(url));
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+            Throwables.throwIfInstanceOf(e.getCause(), InterruptedException.class);
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
     private HostDirectives fetchDirectives(URL url) throws IOException, InterruptedException {
         WebURL robotsTxtUrl = new WebURL();
         String host = getHost(url);
@@ -111,6 +146,7 @@ public class RobotstxtServer {
         String proto = url.getProtocol();
         robotsTxtUrl.setURL(proto + "://" + host + port + "/robots.txt");
         HostDirectives directives = null;
+        boolean fetchFailed = false;
         PageFetchResult fetchResult = null;
         try {
             for (int redir = 0; redir < 3; ++redir) {
@@ -159,17 +195,20 @@ public class RobotstxtServer {
             } else {
                 logger.debug("Can't read this robots.txt: {}  as it's status code is {}",
                              robotsTxtUrl.getURL(), fetchResult.getStatusCode());
+                fetchFailed = fetchResult.getStatusCode() >= HttpStatus.SC_INTERNAL_SERVER_ERROR;
             }
         } catch (SocketException | UnknownHostException | SocketTimeoutException |
             NoHttpResponseException se) {
             // No logging here, as it just means that robots.txt doesn't exist on this server
             // which is perfectly ok
             logger.trace("robots.txt probably does not exist.", se);
+            fetchFailed = true;
         } catch (PageBiggerThanMaxSizeException pbtms) {
             logger.error("Error occurred while fetching (robots) url: {}, {}",
                          robotsTxtUrl.getURL(), pbtms.getMessage());
         } catch (IOException e) {
             logger.error("Error occurred while fetching (robots) url: " + robotsTxtUrl.getURL(), e);
+            fetchFailed = true;
         } catch (InterruptedException | RuntimeException e) {
             if (crawlConfig.isHaltOnError()) {
                 throw e;
@@ -186,24 +225,48 @@ public class RobotstxtServer {
             // We still need to have this object to keep track of the time we fetched it
             directives = new HostDirectives(config);
         }
-        synchronized (host2directivesCache) {
-            if (host2directivesCache.size() == config.getCacheSize()) {
-                String minHost = null;
-                long minAccessTime = Long.MAX_VALUE;
-                for (Map.Entry<String, HostDirectives> entry : host2directivesCache.entrySet()) {
-                    long entryAccessTime = entry.getValue().getLastAccessTime();
-                    if (entryAccessTime < minAccessTime) {
-                        minAccessTime = entryAccessTime;
-                        minHost = entry.getKey();
-                    }
-                }
-                host2directivesCache.remove(minHost);
-            }
-            host2directivesCache.put(host, directives);
-        }
+        directives.setFetchFailed(fetchFailed);
         return directives;
     }
 
+    /**
+     * Returns the sitemaps listed in the robots.txt of the host of the given url,
+     * fetching the robots.txt if it is not cached.
+     *
+     * @param webURL an url of the host
+     * @return the urls of the sitemaps, empty when robots.txt is disabled
+     */
+    public Set<String> getSitemaps(WebURL webURL) throws IOException, InterruptedException {
+        if (!config.isEnabled()) {
+            return Collections.emptySet();
+        }
+        URL url = new URL(webURL.getURL());
+        return loadDirectives(getHost(url), url).getSitemaps();
+    }
+
+    /**
+     * Returns the Crawl-delay the robots.txt of a host declares for our user agent. This
+     * only looks at the cached robots.txt and never fetches it.
+     *
+     * @param host the host name
+     * @return the Crawl-delay in seconds, or null if the host declares none or its
+     *         robots.txt is not cached
+     */
+    public Double getCrawlDelay(String host) {
+        if (!config.isEnabled()) {
+            return null;
+        }
+        HostDirectives directives = host2directivesCache.get(host.toLowerCase());
+        return (directives == null) ? null : directives.getCrawlDelay();
+    }
+
+    /**
+     * @return the hit, miss and eviction counts of the robots.txt cache
+     */
+    public CacheStats getCacheStats() {
+        return directivesCache.stats();
+    }
+
     public void setCrawlConfig(CrawlConfig crawlConfig) {
         this.crawlConfig = crawlConfig;
     }
@@ -0,0 +1,147 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.sitemap;
+
+import edu.uci.ics.crawler4j.crawler.CrawlConfig;
+
+/**
+ * Settings of the {@link SitemapServer}, available through {@link CrawlConfig#getSitemapConfig()}.
+ */
+public class SitemapConfig {
+
+    /**
+     * Should the sitemaps declared in the robots.txt of the host of a seed be read
+     * when the seed is added?
+     */
+    private boolean followRobotstxtSitemaps = false;
+
+    /**
+     * Maximum size in bytes of a sitemap, compressed or not.
+     */
+    private int maxSitemapSize = 50 * 1024 * 1024;
+
+    /**
+     * Maximum number of urls read from a single sitemap.
+     */
+    private int maxUrlsPerSitemap = 50000;
+
+    /**
+     * Maximum number of sitemaps read for a single sitemap url, counting the sitemaps
+     * listed by sitemap indexes.
+     */
+    private int maxSitemaps = 50000;
+
+    /**
+     * Number of urls scheduled together.
+     */
+    private int batchSize = 1000;
+
+    /**
+     * Validates the configs specified by this instance.
+     *
+     * @throws Exception on Validation fail
+     */
+    public void validate() throws Exception {
+        if (maxSitemapSize < 1) {
+            throw new Exception("Invalid value for maximum sitemap size: " + maxSitemapSize);
+        }
+        if (maxUrlsPerSitemap < 1) {
+            throw new Exception("Invalid value for maximum urls per sitemap: " + maxUrlsPerSitemap);
+        }
+        if (maxSitemaps < 1) {
+            throw new Exception("Invalid value for maximum number of sitemaps: " + maxSitemaps);
+        }
+        if (batchSize < 1) {
+            throw new Exception("Invalid value for sitemap batch size: " + batchSize);
+        }
+    }
+
+    public boolean isFollowRobotstxtSitemaps() {
+        return followRobotstxtSitemaps;
+    }
+
+    /**
+     * When enabled, adding a seed also reads the sitemaps which the robots.txt of its
+     * host declares, once per host, and schedules their urls.
+     *
+     * @param followRobotstxtSitemaps true to read the sitemaps of the hosts of the seeds
+     */
+    public void setFollowRobotstxtSitemaps(boolean followRobotstxtSitemaps) {
+        this.followRobotstxtSitemaps = followRobotstxtSitemaps;
+    }
+
+    public int getMaxSitemapSize() {
+        return maxSitemapSize;
+    }
+
+    /**
+     * @param maxSitemapSize maximum size in bytes of a sitemap, both as downloaded and
+     *                       once uncompressed. Sitemaps are streamed, so this does not
+     *                       bound the memory used. 50 MB by default, as in the protocol.
+     */
+    public void setMaxSitemapSize(int maxSitemapSize) {
+        this.maxSitemapSize = maxSitemapSize;
+    }
+
+    public int getMaxUrlsPerSitemap() {
+        return maxUrlsPerSitemap;
+    }
+
+    /**
+     * @param maxUrlsPerSitemap maximum number of urls read from a single sitemap, 50000
+     *                          by default, as in the protocol
+     */
+    public void setMaxUrlsPerSitemap(int maxUrlsPerSitemap) {
+        this.maxUrlsPerSitemap = maxUrlsPerSitemap;
+    }
+
+    public int getMaxSitemaps() {
+        return maxSitemaps;
+    }
+
+    /**
+     * @param maxSitemaps maximum number of sitemaps read from a sitemap url, including
+     *                    the sitemaps listed by sitemap indexes
+     */
+    public void setMaxSitemaps(int maxSitemaps) {
+        this.maxSitemaps = maxSitemaps;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize number of urls of a sitemap scheduled together. At most this many
+     *                  urls are held in memory while a sitemap is read.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Follow robots.txt sitemaps: " + isFollowRobotstxtSitemaps() + "\n");
+        sb.append("Max sitemap size: " + getMaxSitemapSize() + "\n");
+        sb.append("Max urls per sitemap: " + getMaxUrlsPerSitemap() + "\n");
+        sb.append("Max sitemaps: " + getMaxSitemaps() + "\n");
+        sb.append("Sitemap batch size: " + getBatchSize() + "\n");
+        return sb.toString();
+    }
+}
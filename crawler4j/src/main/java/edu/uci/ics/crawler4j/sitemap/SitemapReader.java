@@ -0,0 +1,226 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.sitemap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Reads the entries of a sitemap one at a time, so that a sitemap is never held in
+ * memory as a whole. Both xml sitemaps, which list urls, and sitemap indexes, which
+ * list other sitemaps, are read, as well as text sitemaps listing one url per line.
+ * Gzipped sitemaps are recognized from their content and uncompressed on the fly.
+ *
+ * @see <a href="https://www.sitemaps.org/protocol.html">The sitemap protocol</a>
+ */
+public class SitemapReader implements Closeable {
+
+    private static final int PEEK_SIZE = 256;
+
+    /**
+     * An url, or a sitemap when read from a sitemap index.
+     */
+    public static class Entry {
+        private final boolean sitemap;
+        private String location;
+        private String lastModified;
+        private String priority;
+
+        Entry(boolean sitemap) {
+            this.sitemap = sitemap;
+        }
+
+        /**
+         * @return true if this entry is a sitemap listed by a sitemap index
+         */
+        public boolean isSitemap() {
+            return sitemap;
+        }
+
+        /**
+         * @return the url of this entry, as written in the sitemap
+         */
+        public String getLocation() {
+            return location;
+        }
+
+        /**
+         * @return the date of last modification in W3C Datetime format, or null
+         */
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * @return the priority, between 0.0 and 1.0, as written in the sitemap, or null
+         */
+        public String getPriority() {
+            return priority;
+        }
+    }
+
+    private final InputStream content;
+    private final XMLStreamReader xml;
+    private final BufferedReader text;
+
+    /**
+     * @param in the content of the sitemap, which is closed with this reader
+     * @param maxSize the maximum number of bytes read once the content is uncompressed
+     * @throws IOException if the content can not be read
+     */
+    public SitemapReader(InputStream in, long maxSize) throws IOException {
+        InputStream stream = new BufferedInputStream(in);
+        if (isGzipped(stream)) {
+            stream = new BufferedInputStream(new GZIPInputStream(stream));
+        }
+        content = ByteStreams.limit(stream, maxSize);
+        if (isXml(stream)) {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            // Sitemaps need neither a DTD nor external entities, which could be abused
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            try {
+                xml = factory.createXMLStreamReader(content);
+            } catch (XMLStreamException e) {
+                throw new IOException("Invalid sitemap: " + e.getMessage(), e);
+            }
+            text = null;
+        } else {
+            xml = null;
+            text = new BufferedReader(new InputStreamReader(content, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static boolean isGzipped(InputStream stream) throws IOException {
+        stream.mark(2);
+        int first = stream.read();
+        int second = stream.read();
+        stream.reset();
+        return (first == 0x1f) && (second == 0x8b);
+    }
+
+    /*
+     * An xml sitemap starts with a '<', maybe after a byte order mark and whitespace.
+     */
+    private static boolean isXml(InputStream stream) throws IOException {
+        stream.mark(PEEK_SIZE);
+        try {
+            for (int i = 0; i < PEEK_SIZE; ++i) {
+                int b = stream.read();
+                if ((b == -1) || (b == '<')) {
+                    return b == '<';
+                }
+                if (!Character.isWhitespace(b) && (b != 0xef) && (b != 0xbb) && (b != 0xbf)) {
+                    return false;
+                }
+            }
+            return false;
+        } finally {
+            stream.reset();
+        }
+    }
+
+    /**
+     * @return the next entry of the sitemap, or null at the end of the sitemap
+     * @throws IOException if the sitemap can not be read or is not a valid sitemap
+     */
+    public Entry next() throws IOException {
+        if (text != null) {
+            for (String line = text.readLine(); line != null; line = text.readLine()) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    Entry entry = new Entry(false);
+                    entry.location = line;
+                    return entry;
+                }
+            }
+            return null;
+        }
+        try {
+            return nextXmlEntry();
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid sitemap: " + e.getMessage(), e);
+        }
+    }
+
+    /*
+     * The fields of an entry are its direct children, so that the tags of extensions
+     * such as <image:loc> are not mistaken for them.
+     */
+    private Entry nextXmlEntry() throws XMLStreamException {
+        Entry entry = null;
+        int depth = 0;
+        while (xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = xml.getLocalName();
+                if (entry == null) {
+                    if (name.equals("url") || name.equals("sitemap")) {
+                        entry = new Entry(name.equals("sitemap"));
+                        depth = 0;
+                    }
+                } else if (depth > 0) {
+                    depth++;
+                } else if (name.equals("loc")) {
+                    entry.location = xml.getElementText().trim();
+                } else if (name.equals("lastmod")) {
+                    entry.lastModified = xml.getElementText().trim();
+                } else if (name.equals("priority")) {
+                    entry.priority = xml.getElementText().trim();
+                } else {
+                    depth++;
+                }
+            } else if ((event == XMLStreamConstants.END_ELEMENT) && (entry != null)) {
+                if (depth > 0) {
+                    depth--;
+                } else if ((entry.location != null) && !entry.location.isEmpty()) {
+                    return entry;
+                } else {
+                    entry = null;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (xml != null) {
+                xml.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            content.close();
+        }
+    }
+}
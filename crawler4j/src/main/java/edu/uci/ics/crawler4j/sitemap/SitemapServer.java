@@ -0,0 +1,253 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.crawler4j.sitemap;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.uci.ics.crawler4j.crawler.CrawlConfig;
+import edu.uci.ics.crawler4j.crawler.Page;
+import edu.uci.ics.crawler4j.crawler.exceptions.PageBiggerThanMaxSizeException;
+import edu.uci.ics.crawler4j.fetcher.PageFetchResult;
+import edu.uci.ics.crawler4j.fetcher.PageFetcher;
+import edu.uci.ics.crawler4j.url.TLDList;
+import edu.uci.ics.crawler4j.url.URLCanonicalizer;
+import edu.uci.ics.crawler4j.url.WebURL;
+
+/**
+ * Reads sitemaps, and the sitemaps listed by sitemap indexes, and hands their urls
+ * over in batches of {@link SitemapConfig#getBatchSize()}. Sitemaps are fetched
+ * through the {@link PageFetcher}, so they follow the politeness delay, and are
+ * streamed, so that reading the sitemaps of a site with millions of urls only holds
+ * one batch of urls in memory.
+ *
+ * As required by the sitemap protocol, only the urls on the host of the sitemap
+ * listing them are kept.
+ */
+public class SitemapServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SitemapServer.class);
+
+    private static final int MAX_REDIRECTS = 3;
+
+    /**
+     * Receives the urls read from sitemaps.
+     */
+    public interface UrlBatchHandler {
+        /**
+         * @param urls a batch of canonical urls, at depth 0, whose priority is set from
+         *             the sitemap. The list is not reused.
+         */
+        void handle(List<WebURL> urls) throws IOException, InterruptedException;
+    }
+
+    private final CrawlConfig config;
+    private final PageFetcher pageFetcher;
+    private final TLDList tldList;
+
+    public SitemapServer(CrawlConfig config, PageFetcher pageFetcher, TLDList tldList) {
+        this.config = config;
+        this.pageFetcher = pageFetcher;
+        this.tldList = tldList;
+    }
+
+    /**
+     * Reads the given sitemap, or sitemap index, and hands its urls to the handler.
+     *
+     * @param sitemapUrl the url of a sitemap or of a sitemap index
+     * @param handler receives the urls in batches
+     * @return the number of urls handed to the handler
+     */
+    public long read(String sitemapUrl, UrlBatchHandler handler) throws IOException, InterruptedException {
+        SitemapConfig sitemapConfig = config.getSitemapConfig();
+        Deque<String> pending = new ArrayDeque<>();
+        Set<String> seen = new HashSet<>();
+        pending.add(sitemapUrl);
+        seen.add(sitemapUrl);
+
+        List<WebURL> batch = new ArrayList<>();
+        long count = 0;
+        int sitemaps = 0;
+        while (!pending.isEmpty() && (sitemaps < sitemapConfig.getMaxSitemaps())) {
+            String url = pending.poll();
+            sitemaps++;
+            try (SitemapReader reader = open(url)) {
+                if (reader == null) {
+                    continue;
+                }
+                String host = hostOf(url);
+                int urls = 0;
+                for (SitemapReader.Entry entry = reader.next();
+                     (entry != null) && (urls < sitemapConfig.getMaxUrlsPerSitemap()); entry = reader.next()) {
+                    String location = URLCanonicalizer.getCanonicalURL(entry.getLocation(), url);
+                    if (location == null) {
+                        logger.debug("Invalid url in sitemap {}: {}", url, entry.getLocation());
+                        continue;
+                    }
+                    if (entry.isSitemap()) {
+                        if (seen.add(location)) {
+                            pending.add(location);
+                        }
+                        continue;
+                    }
+                    WebURL webUrl = toWebURL(location, entry);
+                    if (!webUrl.getHost().equals(host)) {
+                        logger.debug("Ignoring url of another host in sitemap {}: {}", url, location);
+                        continue;
+                    }
+                    urls++;
+                    batch.add(webUrl);
+                    if (batch.size() >= sitemapConfig.getBatchSize()) {
+                        count += batch.size();
+                        handler.handle(batch);
+                        batch = new ArrayList<>();
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("Error while reading sitemap {}: {}", url, e.getMessage());
+            }
+        }
+        if (!batch.isEmpty()) {
+            count += batch.size();
+            handler.handle(batch);
+        }
+        if (!pending.isEmpty()) {
+            logger.warn("Stopped reading the sitemaps of {} after {} sitemaps", sitemapUrl, sitemaps);
+        }
+        return count;
+    }
+
+    /*
+     * Returns null when the sitemap could not be fetched. Redirects are followed as
+     * for robots.txt.
+     */
+    private SitemapReader open(String sitemapUrl) throws IOException, InterruptedException {
+        int maxSize = config.getSitemapConfig().getMaxSitemapSize();
+        WebURL webUrl = new WebURL();
+        webUrl.setURL(sitemapUrl);
+        PageFetchResult fetchResult = null;
+        try {
+            for (int redirects = 0; ; ++redirects) {
+                fetchResult = pageFetcher.fetchPage(webUrl, maxSize);
+                if ((fetchResult.getMovedToUrl() == null) || (redirects == MAX_REDIRECTS)) {
+                    break;
+                }
+                webUrl.setURL(fetchResult.getMovedToUrl());
+                fetchResult.discardContentIfNotConsumed();
+            }
+            if ((fetchResult.getStatusCode() != HttpStatus.SC_OK) || (fetchResult.getEntity() == null)) {
+                logger.info("Can't read sitemap {}: status code {}", sitemapUrl, fetchResult.getStatusCode());
+                fetchResult.discardContentIfNotConsumed();
+                return null;
+            }
+            Page page = new Page(webUrl);
+            SitemapReader reader = new SitemapReader(page.openContent(fetchResult.getEntity(), maxSize, false),
+                                                     maxSize);
+            fetchResult = null;
+            return reader;
+        } catch (PageBiggerThanMaxSizeException e) {
+            logger.warn("Sitemap {} is bigger than the maximum sitemap size: {} bytes", sitemapUrl,
+                        e.getPageSize());
+            return null;
+        } catch (RuntimeException e) {
+            if (config.isHaltOnError()) {
+                throw e;
+            }
+            logger.error("Error while fetching sitemap " + sitemapUrl, e);
+            return null;
+        } finally {
+            if (fetchResult != null) {
+                fetchResult.discardContentIfNotConsumed();
+            }
+        }
+    }
+
+    private WebURL toWebURL(String url, SitemapReader.Entry entry) {
+        WebURL webUrl = new WebURL();
+        webUrl.setTldList(tldList);
+        webUrl.setURL(url);
+        webUrl.setDepth((short) 0);
+        webUrl.setPriority(getPriority(entry.getPriority(), entry.getLastModified()));
+        return webUrl;
+    }
+
+    /**
+     * Computes the crawl priority of an url from its sitemap entry, where a lower number
+     * is crawled earlier. The default adds the sitemap priority, from 0 for 1.0 to 10
+     * for 0.0, and the age of the last modification, from 0 for a page modified in the
+     * last day to 4 for a page modified more than a year ago. Urls found by following
+     * links have priority 0, so only the most important urls of a sitemap are not
+     * crawled after them. Subclasses may override this method.
+     *
+     * @param priority the priority written in the sitemap, or null
+     * @param lastModified the date of last modification written in the sitemap, or null
+     * @return the priority of the url, between 0 and {@link Byte#MAX_VALUE}
+     */
+    protected byte getPriority(String priority, String lastModified) {
+        double value = 0.5;
+        if (priority != null) {
+            try {
+                value = Math.min(1.0, Math.max(0.0, Double.parseDouble(priority)));
+            } catch (NumberFormatException e) {
+                logger.debug("Invalid sitemap priority: {}", priority);
+            }
+        }
+        return (byte) (Math.round((1.0 - value) * 10) + getAgeRank(lastModified));
+    }
+
+    private static int getAgeRank(String lastModified) {
+        if ((lastModified == null) || (lastModified.length() < 10)) {
+            return 2;
+        }
+        long days;
+        try {
+            // Only the day of the W3C Datetime matters here
+            days = ChronoUnit.DAYS.between(LocalDate.parse(lastModified.substring(0, 10)), LocalDate.now());
+        } catch (DateTimeParseException e) {
+            return 2;
+        }
+        if (days <= 1) {
+            return 0;
+        } else if (days <= 7) {
+            return 1;
+        } else if (days <= 30) {
+            return 2;
+        } else if (days <= 365) {
+            return 3;
+        }
+        return 4;
+    }
+
+    private static String hostOf(String url) {
+        WebURL webUrl = new WebURL();
+        webUrl.setURL(url);
+        return webUrl.getHost();
+    }
+}
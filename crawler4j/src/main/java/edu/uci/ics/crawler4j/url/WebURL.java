@@ -187,6 +187,33 @@ public class WebURL implements Serializable {
         return subDomain;
     }
 
+    /**
+     * @return
+     *      lower cased host name of this Url, without user info and port. For
+     *      'http://user@www.Example.com:8080/sample.htm' the host is 'www.example.com'
+     */
+    public String getHost() {
+        int hostStartIdx = url.indexOf("//") + 2;
+        int hostEndIdx = hostStartIdx;
+        while (hostEndIdx < url.length()) {
+            char c = url.charAt(hostEndIdx);
+            if (c == '/' || c == '?' || c == '#') {
+                break;
+            }
+            hostEndIdx++;
+        }
+        String host = url.substring(hostStartIdx, hostEndIdx);
+        int userInfoEndIdx = host.lastIndexOf('@');
+        if (userInfoEndIdx >= 0) {
+            host = host.substring(userInfoEndIdx + 1);
+        }
+        int portIdx = host.lastIndexOf(':');
+        if (portIdx >= 0 && host.indexOf(']', portIdx) < 0) {
+            host = host.substring(0, portIdx);
+        }
+        return host.toLowerCase();
+    }
+
     /**
      * @return
      *      path of this Url. For 'http://www.example.com/sample.htm', registeredDomain will be 'sample.htm'
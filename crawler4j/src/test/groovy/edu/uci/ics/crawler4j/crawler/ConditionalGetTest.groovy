@@ -0,0 +1,162 @@
+package edu.uci.ics.crawler4j.crawler
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration
+import com.github.tomakehurst.wiremock.junit.WireMockRule
+import com.sleepycat.je.Environment
+import com.sleepycat.je.EnvironmentConfig
+import edu.uci.ics.crawler4j.fetcher.PageFetcher
+import edu.uci.ics.crawler4j.frontier.ValidatorsDB
+import edu.uci.ics.crawler4j.robotstxt.RobotstxtConfig
+import edu.uci.ics.crawler4j.robotstxt.RobotstxtServer
+import edu.uci.ics.crawler4j.url.WebURL
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED
+
+class ConditionalGetTest extends Specification {
+
+    static final String LAST_MODIFIED = "Wed, 21 Oct 2015 07:28:00 GMT"
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder()
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(new WireMockConfiguration().dynamicPort())
+
+    def "pages fetched again are revalidated and not modified pages are not loaded"() {
+        given:
+        stubFor(get(urlEqualTo("/page.html")).willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/html; charset=UTF-8")
+                .withHeader("ETag", "\"v1\"")
+                .withHeader("Last-Modified", LAST_MODIFIED)
+                .withBody("<html><body>unchanged</body></html>")))
+        // Jetty appends --gzip to the ETag of compressed responses
+        stubFor(get(urlEqualTo("/page.html")).atPriority(1)
+                .withHeader("If-None-Match", matching("\"v1(--gzip)?\""))
+                .willReturn(aResponse().withStatus(304).withHeader("ETag", "\"v1\"")))
+
+        CrawlConfig config = new CrawlConfig(
+                crawlStorageFolder: temp.getRoot().getAbsolutePath()
+                , politenessDelay: 0
+                , conditionalGet: true
+        )
+        PageFetcher pageFetcher = new PageFetcher(config)
+        CrawlController controller = new CrawlController(config, pageFetcher,
+                new RobotstxtServer(new RobotstxtConfig(enabled: false), pageFetcher))
+        NotModifiedRecordingCrawler crawler = new NotModifiedRecordingCrawler()
+        crawler.init(1, controller)
+        WebURL webUrl = new WebURL(URL: "http://localhost:" + wireMockRule.port() + "/page.html", docid: 1)
+
+        when:
+        Page first = crawler.fetchPage(webUrl, null)
+        Page second = crawler.fetchPage(webUrl, null)
+
+        then:
+        first.getContentData() != null
+        second == null
+        crawler.notModified*.getStatusCode() == [304]
+        controller.getValidatorsDB().get(1).getETag().startsWith("\"v1")
+        controller.getValidatorsDB().get(1).getLastModified() == LAST_MODIFIED
+        verify(1, getRequestedFor(urlEqualTo("/page.html")).withoutHeader("If-None-Match"))
+        verify(1, getRequestedFor(urlEqualTo("/page.html"))
+                .withHeader("If-None-Match", matching("\"v1(--gzip)?\""))
+                .withHeader("If-Modified-Since", equalTo(LAST_MODIFIED)))
+
+        cleanup:
+        pageFetcher.shutDown()
+    }
+
+    def "validators of a page which drops them are not sent again"() {
+        given:
+        stubFor(get(urlEqualTo("/page.html")).inScenario("validators")
+                .whenScenarioStateIs(STARTED).willSetStateTo("dropped")
+                .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/html; charset=UTF-8")
+                .withHeader("ETag", "\"v1\"")
+                .withBody("<html><body>first</body></html>")))
+        stubFor(get(urlEqualTo("/page.html")).inScenario("validators")
+                .whenScenarioStateIs("dropped")
+                .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/html; charset=UTF-8")
+                .withBody("<html><body>second</body></html>")))
+
+        CrawlConfig config = new CrawlConfig(
+                crawlStorageFolder: temp.getRoot().getAbsolutePath()
+                , politenessDelay: 0
+                , conditionalGet: true
+        )
+        PageFetcher pageFetcher = new PageFetcher(config)
+        CrawlController controller = new CrawlController(config, pageFetcher,
+                new RobotstxtServer(new RobotstxtConfig(enabled: false), pageFetcher))
+        NotModifiedRecordingCrawler crawler = new NotModifiedRecordingCrawler()
+        crawler.init(1, controller)
+        WebURL webUrl = new WebURL(URL: "http://localhost:" + wireMockRule.port() + "/page.html", docid: 1)
+
+        when:
+        crawler.fetchPage(webUrl, null)
+        crawler.fetchPage(webUrl, null)
+        Page third = crawler.fetchPage(webUrl, null)
+
+        then:
+        third.getContentData() != null
+        controller.getValidatorsDB().get(1) == null
+        verify(1, getRequestedFor(urlEqualTo("/page.html")).withHeader("If-None-Match", matching("\"v1.*")))
+        verify(2, getRequestedFor(urlEqualTo("/page.html")).withoutHeader("If-None-Match"))
+
+        cleanup:
+        pageFetcher.shutDown()
+    }
+
+    def "validators are kept across resumed crawls"() {
+        given:
+        CrawlConfig config = new CrawlConfig(resumableCrawling: true)
+
+        when:
+        withEnvironment { env ->
+            ValidatorsDB validatorsDB = new ValidatorsDB(env, config)
+            validatorsDB.put(1, "\"a\"", null)
+            validatorsDB.put(2, null, LAST_MODIFIED)
+            validatorsDB.put(3, null, null)
+            validatorsDB.close()
+        }
+        List<ValidatorsDB.Validators> validators = null
+        withEnvironment { env ->
+            ValidatorsDB validatorsDB = new ValidatorsDB(env, config)
+            validators = (1..3).collect { validatorsDB.get(it) }
+            validatorsDB.close()
+        }
+
+        then:
+        validators[0].getETag() == "\"a\""
+        validators[0].getLastModified() == null
+        validators[1].getETag() == null
+        validators[1].getLastModified() == LAST_MODIFIED
+        validators[2] == null
+    }
+
+    private void withEnvironment(Closure closure) {
+        EnvironmentConfig envConfig = new EnvironmentConfig(allowCreate: true, transactional: true, locking: true)
+        Environment env = new Environment(temp.getRoot(), envConfig)
+        try {
+            closure(env)
+        } finally {
+            env.close()
+        }
+    }
+}
+
+class NotModifiedRecordingCrawler extends WebCrawler {
+
+    List<Page> notModified = []
+
+    @Override
+    protected void onPageNotModified(Page page) {
+        notModified.add(page)
+    }
+}
@@ -0,0 +1,167 @@
+package edu.uci.ics.crawler4j.crawler
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration
+import com.github.tomakehurst.wiremock.junit.WireMockRule
+import edu.uci.ics.crawler4j.fetcher.PageFetchResult
+import edu.uci.ics.crawler4j.fetcher.PageFetcher
+import edu.uci.ics.crawler4j.robotstxt.RobotstxtConfig
+import edu.uci.ics.crawler4j.robotstxt.RobotstxtServer
+import edu.uci.ics.crawler4j.url.WebURL
+import org.apache.http.entity.ByteArrayEntity
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicInteger
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*
+
+class CrawlPipelineTest extends Specification {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder()
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(new WireMockConfiguration().dynamicPort())
+
+    def "pages go through the fetch, parse and link stages"() {
+        given:
+        stubFor(get(urlEqualTo("/index.html"))
+                .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/html; charset=UTF-8")
+                .withBody("<html><body><a href=\"/page1.html\">1</a><a href=\"/page2.html\">2</a>" +
+                          "<a href=\"/missing.html\">3</a></body></html>")))
+        stubFor(get(urlEqualTo("/page1.html"))
+                .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/html; charset=UTF-8")
+                .withBody("<html><body><a href=\"/page3.html\">3</a></body></html>")))
+        stubFor(get(urlPathMatching("/page[23].html"))
+                .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/html; charset=UTF-8")
+                .withBody("<html><body><h1>title</h1></body></html>")))
+        stubFor(get(urlEqualTo("/missing.html")).willReturn(aResponse().withStatus(404)))
+        stubFor(get(urlEqualTo("/robots.txt")).willReturn(aResponse().withStatus(404)))
+
+        CrawlConfig config = new CrawlConfig(
+                crawlStorageFolder: temp.getRoot().getAbsolutePath()
+                , politenessDelay: 0
+                , threadShutdownDelaySeconds: 1
+                , threadMonitoringDelaySeconds: 1
+                , cleanupDelaySeconds: 1
+        )
+        config.pipelineConfig.pipelined = true
+        config.pipelineConfig.fetchThreads = 2
+        config.pipelineConfig.parseThreads = 2
+        config.pipelineConfig.linkThreads = 1
+        config.pipelineConfig.stageQueueCapacity = 1
+        PageFetcher pageFetcher = new PageFetcher(config)
+        RobotstxtServer robotstxtServer = new RobotstxtServer(new RobotstxtConfig(), pageFetcher)
+        CrawlController controller = new CrawlController(config, pageFetcher, robotstxtServer)
+        controller.addSeed("http://localhost:" + wireMockRule.port() + "/index.html")
+
+        when:
+        controller.start(StageRecordingCrawler.class, 1)
+
+        then:
+        StageRecordingCrawler.visited.sort() == ["/index.html", "/page1.html", "/page2.html", "/page3.html"]
+        StageRecordingCrawler.unexpectedStatus == ["/missing.html"]
+        StageRecordingCrawler.visitThreads.every { it.startsWith("Link stage") }
+        StageRecordingCrawler.statusThreads.every { it.startsWith("Fetch stage") }
+        controller.frontier.numberOfProcessedPages == 5
+    }
+
+    def "pages dropped by a shutdown release their content and leave the pipeline"() {
+        given: "a crawler whose first page is parsed until it is released"
+        CrawlConfig config = new CrawlConfig(crawlStorageFolder: temp.getRoot().getAbsolutePath())
+        PageFetcher pageFetcher = new PageFetcher(config)
+        RobotstxtServer robotstxtServer = new RobotstxtServer(new RobotstxtConfig(enabled: false), pageFetcher)
+        CrawlController controller = new CrawlController(config, pageFetcher, robotstxtServer)
+        ContentBufferPool pool = new ContentBufferPool(10)
+        BlockingParseCrawler crawler = new BlockingParseCrawler(pool)
+        crawler.myController = controller
+        CrawlPipeline pipeline = new CrawlPipeline(new PipelineConfig(fetchThreads: 1, parseThreads: 1, linkThreads: 1,
+                                                                      stageQueueCapacity: 1))
+        PollingConditions conditions = new PollingConditions(timeout: 5)
+
+        when: "one page is parsed, one waits for the parse stage and one waits for room in it"
+        (1..3).each { pipeline.submit(crawler, new WebURL(URL: "http://localhost/page" + it + ".html")) }
+        conditions.eventually {
+            assert crawler.fetched.get() == 3
+            assert pipeline.parseStage.queue.size() == 1
+        }
+        pipeline.shutdown()
+        crawler.parsing.countDown()
+
+        then:
+        conditions.eventually {
+            assert pool.pooledBuffers == 3
+            assert crawler.left.get() == 3
+        }
+
+        cleanup:
+        controller.shutdown()
+    }
+}
+
+class BlockingParseCrawler extends WebCrawler {
+
+    final ContentBufferPool pool
+    final AtomicInteger fetched = new AtomicInteger()
+    final AtomicInteger left = new AtomicInteger()
+    final CountDownLatch parsing = new CountDownLatch(1)
+
+    BlockingParseCrawler(ContentBufferPool pool) {
+        this.pool = pool
+    }
+
+    @Override
+    Page fetchPage(WebURL curURL, CompletableFuture<PageFetchResult> pendingFetch) {
+        Page page = new Page(curURL)
+        page.setContentBufferPool(pool)
+        page.load(new ByteArrayEntity("content".bytes), 100)
+        fetched.incrementAndGet()
+        return page
+    }
+
+    @Override
+    boolean parsePage(Page page) {
+        parsing.await()
+        return true
+    }
+
+    @Override
+    void onPageLeftPipeline(WebURL curURL, boolean processed) {
+        left.incrementAndGet()
+        super.onPageLeftPipeline(curURL, processed)
+    }
+}
+
+class StageRecordingCrawler extends WebCrawler {
+
+    static List<String> visited = Collections.synchronizedList(new ArrayList<String>())
+    static List<String> unexpectedStatus = Collections.synchronizedList(new ArrayList<String>())
+    static Set<String> visitThreads = Collections.synchronizedSet(new HashSet<String>())
+    static Set<String> statusThreads = Collections.synchronizedSet(new HashSet<String>())
+
+    @Override
+    protected void handlePageStatusCode(WebURL webUrl, int statusCode, String statusDescription) {
+        statusThreads.add(Thread.currentThread().getName())
+    }
+
+    @Override
+    protected void onUnexpectedStatusCode(String urlStr, int statusCode, String contentType, String description) {
+        unexpectedStatus.add(new URL(urlStr).getPath())
+    }
+
+    @Override
+    void visit(Page page) {
+        visited.add(page.getWebURL().getPath().toString())
+        visitThreads.add(Thread.currentThread().getName())
+    }
+}
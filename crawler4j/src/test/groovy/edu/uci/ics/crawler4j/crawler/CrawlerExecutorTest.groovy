@@ -0,0 +1,75 @@
+package edu.uci.ics.crawler4j.crawler
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration
+import com.github.tomakehurst.wiremock.junit.WireMockRule
+import edu.uci.ics.crawler4j.fetcher.PageFetcher
+import edu.uci.ics.crawler4j.robotstxt.RobotstxtConfig
+import edu.uci.ics.crawler4j.robotstxt.RobotstxtServer
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*
+
+class CrawlerExecutorTest extends Specification {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder()
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(new WireMockConfiguration().dynamicPort())
+
+    def "crawlers run on the configured executor"() {
+        given:
+        stubFor(get(urlEqualTo("/index.html"))
+                .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/html; charset=UTF-8")
+                .withBody("<html><body><a href=\"/page1.html\">1</a><a href=\"/page2.html\">2</a></body></html>")))
+        stubFor(get(urlPathMatching("/page[12].html"))
+                .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/html; charset=UTF-8")
+                .withBody("<html><body><h1>title</h1></body></html>")))
+        stubFor(get(urlEqualTo("/robots.txt")).willReturn(aResponse().withStatus(404)))
+
+        CrawlConfig config = new CrawlConfig(
+                crawlStorageFolder: temp.getRoot().getAbsolutePath()
+                , politenessDelay: 50
+                , threadShutdownDelaySeconds: 1
+                , threadMonitoringDelaySeconds: 1
+                , cleanupDelaySeconds: 1
+        )
+        PageFetcher pageFetcher = new PageFetcher(config)
+        RobotstxtServer robotstxtServer = new RobotstxtServer(new RobotstxtConfig(), pageFetcher)
+        CrawlController controller = new CrawlController(config, pageFetcher, robotstxtServer)
+        controller.addSeed("http://localhost:" + wireMockRule.port() + "/index.html")
+        ExecutorService executor = Executors.newCachedThreadPool()
+        controller.setCrawlerExecutor(executor)
+
+        when:
+        controller.start(ExecutorRecordingCrawler.class, 3)
+
+        then:
+        ExecutorRecordingCrawler.visited.sort() == ["/index.html", "/page1.html", "/page2.html"]
+        ExecutorRecordingCrawler.threadNames.every { it.startsWith("pool-") }
+
+        cleanup:
+        executor.shutdownNow()
+    }
+}
+
+class ExecutorRecordingCrawler extends WebCrawler {
+
+    static List<String> visited = Collections.synchronizedList(new ArrayList<String>())
+    static Set<String> threadNames = Collections.synchronizedSet(new HashSet<String>())
+
+    @Override
+    void visit(Page page) {
+        visited.add(page.getWebURL().getPath().toString())
+        threadNames.add(getThread().getName())
+    }
+}
@@ -25,4 +25,72 @@ class PageTest extends Specification {
         then: "charset should fallback to UTF-8"
         "UTF-8".equals(page.getContentCharset())
     }
+
+    def "pooled content buffers are reused across pages"() {
+        given: "a pool and two responses of unknown length"
+        ContentBufferPool pool = new ContentBufferPool(1)
+        String content = "x" * 10000
+
+        when: "the first page is loaded and released, then the second is loaded"
+        Page first = new Page(new WebURL())
+        first.setContentBufferPool(pool)
+        first.load(entity(content), 1048576)
+        int firstLength = first.getContentBuffer().remaining()
+        String firstContent = first.getContentAsString()
+        first.releaseContent()
+
+        Page second = new Page(new WebURL())
+        second.setContentBufferPool(pool)
+        second.load(entity(content), 1048576)
+
+        then: "the grown buffer of the first page is reused by the second"
+        firstLength == 10000
+        firstContent == content
+        first.getContentBuffer() == null
+        IOUtils.toString(second.getContentStream(), "UTF-8") == content
+        second.getContentData().length == 10000
+        !second.isTruncated()
+        pool.getAllocatedBuffers() == 1
+    }
+
+    def "pooled buffers which are too small stay in the pool"() {
+        given: "a pool holding two small buffers"
+        ContentBufferPool pool = new ContentBufferPool(2)
+        byte[] small = pool.borrow(0)
+        byte[] other = pool.borrow(0)
+        pool.release(other)
+        pool.release(small)
+
+        when: "a large buffer is borrowed, then a small one"
+        byte[] large = pool.borrow(1048576)
+        int pooledAfterLarge = pool.getPooledBuffers()
+        byte[] reused = pool.borrow(1024)
+
+        then: "the small buffers are kept and reused"
+        large.length == 1048576
+        pooledAfterLarge == 2
+        reused.is(small)
+        pool.getPooledBuffers() == 1
+        pool.getAllocatedBuffers() == 3
+    }
+
+    def "pooled content is truncated to the maximum size"() {
+        given:
+        Page page = new Page(new WebURL())
+        page.setContentBufferPool(new ContentBufferPool(1))
+
+        when:
+        page.load(entity("x" * 2048), 1024)
+
+        then:
+        page.isTruncated()
+        page.getContentData().length == 1024
+    }
+
+    private static HttpEntity entity(String content) {
+        BasicHttpEntity entity = new BasicHttpEntity()
+        entity.setContent(IOUtils.toInputStream(content, "UTF-8"))
+        entity.setContentType(new BasicHeader("Content-type", "text/html; charset=UTF-8"))
+        return entity
+    }
 }
@@ -2,7 +2,9 @@ package edu.uci.ics.crawler4j.crawler
 
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration
 import com.github.tomakehurst.wiremock.junit.WireMockRule
+import com.sleepycat.je.Environment
 import edu.uci.ics.crawler4j.fetcher.PageFetcher
+import edu.uci.ics.crawler4j.frontier.DocIDServer
 import edu.uci.ics.crawler4j.robotstxt.RobotstxtConfig
 import edu.uci.ics.crawler4j.robotstxt.RobotstxtServer
 import edu.uci.ics.crawler4j.url.WebURL
@@ -102,6 +104,58 @@ class WebCrawlerTest extends Specification {
         verify(exactly(1), getRequestedFor(urlEqualTo("/some/page3.html")))
         verify(exactly(0), getRequestedFor(urlEqualTo("/some/${pageUnvisited}")))
     }
+
+    def "links are not scheduled when their docids could not be assigned"() {
+        given: "an index page with two links"
+        stubFor(get(urlEqualTo("/failed/index.html"))
+                .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/html; charset=UTF-8")
+                .withBody('<html><body><a href="/failed/page1.html">1</a><a href="/failed/page2.html">2</a></body></html>')))
+        stubFor(get(urlPathMatching("/failed/page[12].html"))
+                .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/html; charset=UTF-8")
+                .withBody("<html><body><h1>title</h1></body></html>")))
+
+        and: "a docid server whose batches fail"
+        CrawlConfig config = new CrawlConfig(
+                crawlStorageFolder: temp.getRoot().getAbsolutePath()
+                , politenessDelay: 0
+                , threadShutdownDelaySeconds: 1
+                , threadMonitoringDelaySeconds: 1
+                , cleanupDelaySeconds: 1
+        )
+        PageFetcher pageFetcher = new PageFetcher(config)
+        RobotstxtServer robotstxtServer = new RobotstxtServer(new RobotstxtConfig(enabled: false), pageFetcher)
+        CrawlController controller = new CrawlController(config, pageFetcher, robotstxtServer)
+        controller.getDocIdServer().close()
+        controller.setDocIdServer(new FailingBatchDocIDServer(controller.env, config))
+        controller.addSeed "http://localhost:" + wireMockRule.port() + "/failed/index.html"
+
+        when:
+        controller.start(WebCrawler.class, 1)
+
+        then: "only the seed was scheduled"
+        controller.getFrontier().getNumberOfScheduledPages() == 1
+        verify(exactly(1), getRequestedFor(urlEqualTo("/failed/index.html")))
+        verify(exactly(0), getRequestedFor(urlPathMatching("/failed/page[12].html")))
+    }
+}
+
+/**
+ * Answers as DocIDServer does when a batch fails while haltOnError is off.
+ */
+class FailingBatchDocIDServer extends DocIDServer {
+
+    FailingBatchDocIDServer(Environment env, CrawlConfig config) {
+        super(env, config)
+    }
+
+    @Override
+    Map<String, Integer> resolveOrAssign(Collection<String> urls) {
+        return urls.collectEntries { [(it): -1] }
+    }
 }
 
 class ShouldNotVisitPageWebCrawler extends WebCrawler {
@@ -0,0 +1,149 @@
+package edu.uci.ics.crawler4j.dedup
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration
+import com.github.tomakehurst.wiremock.junit.WireMockRule
+import com.sleepycat.je.Environment
+import com.sleepycat.je.EnvironmentConfig
+import edu.uci.ics.crawler4j.crawler.CrawlConfig
+import edu.uci.ics.crawler4j.crawler.CrawlController
+import edu.uci.ics.crawler4j.crawler.Page
+import edu.uci.ics.crawler4j.crawler.WebCrawler
+import edu.uci.ics.crawler4j.fetcher.PageFetcher
+import edu.uci.ics.crawler4j.parser.HtmlParseData
+import edu.uci.ics.crawler4j.robotstxt.RobotstxtConfig
+import edu.uci.ics.crawler4j.robotstxt.RobotstxtServer
+import edu.uci.ics.crawler4j.url.WebURL
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*
+
+class DuplicateDetectorTest extends Specification {
+
+    static final String TEXT = (1..200).collect { "w" + (it * 7919 % 1000) }.join(" ")
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder()
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(new WireMockConfiguration().dynamicPort())
+
+    CrawlConfig config = new CrawlConfig(resumableCrawling: true,
+                                         duplicateConfig: new DuplicateConfig(duplicateDetection: true))
+    Environment env
+    DuplicateDetector detector
+
+    def setup() {
+        EnvironmentConfig envConfig = new EnvironmentConfig(allowCreate: true, transactional: true, locking: true)
+        env = new Environment(temp.newFolder(), envConfig)
+        detector = new DuplicateDetector(env, config)
+    }
+
+    def cleanup() {
+        detector.close()
+        env.close()
+    }
+
+    def "pages with the same words are exact duplicates of the first one"() {
+        expect:
+        detector.check(page(1, TEXT)) == null
+        detector.check(page(2, "  " + TEXT.toUpperCase().replace(" ", ",\n"))).getOriginalDocid() == 1
+        detector.check(page(2, "  " + TEXT.toUpperCase().replace(" ", ",\n"))).isExact()
+        detector.check(page(1, TEXT)) == null
+        detector.check(page(3, "short text")) == null
+        detector.check(page(4, "Short  text!")).getOriginalDocid() == 3
+    }
+
+    def "pages with nearly the same words are near duplicates"() {
+        given:
+        String changed = TEXT.replaceFirst("w919", "something")
+
+        when:
+        DuplicateContent first = detector.check(page(1, TEXT))
+        DuplicateContent near = detector.check(page(2, changed))
+        DuplicateContent other = detector.check(page(3, (1..200).collect { "v" + (it * 31 % 500) }.join(" ")))
+
+        then:
+        first == null
+        near.getOriginalDocid() == 1
+        !near.isExact()
+        near.getDistance() <= 3
+        other == null
+        DuplicateDetector.simHash(DuplicateDetector.words(TEXT)) != DuplicateDetector.simHash(DuplicateDetector.words(changed))
+    }
+
+    def "distances beyond what 16 bit blocks allow are rejected"() {
+        when:
+        new DuplicateConfig(maxHammingDistance: 4).validate()
+
+        then:
+        thrown(Exception)
+    }
+
+    def "a page fetched again with another content replaces its fingerprints"() {
+        expect:
+        detector.check(page(1, TEXT)) == null
+        detector.check(page(1, "another text entirely")) == null
+        detector.check(page(2, TEXT)) == null
+        detector.check(page(3, "another text entirely")).getOriginalDocid() == 1
+    }
+
+    def "duplicate pages are not visited and their links are not followed"() {
+        given:
+        stubFor(get(urlEqualTo("/index.html")).willReturn(html(
+                '<a href="/a.html">a</a><a href="/b.html">b</a>')))
+        stubFor(get(urlEqualTo("/a.html")).willReturn(html("<p>${TEXT}</p>")))
+        stubFor(get(urlEqualTo("/b.html")).willReturn(html("<p>${TEXT}</p><a href=\"/trap.html\">trap</a>")))
+
+        CrawlConfig crawlConfig = new CrawlConfig(
+                crawlStorageFolder: temp.newFolder().getAbsolutePath()
+                , politenessDelay: 0
+                , threadShutdownDelaySeconds: 1
+                , threadMonitoringDelaySeconds: 1
+                , cleanupDelaySeconds: 1
+                , duplicateConfig: new DuplicateConfig(duplicateDetection: true, followLinksOfDuplicates: false)
+        )
+        PageFetcher pageFetcher = new PageFetcher(crawlConfig)
+        RobotstxtServer robotstxtServer = new RobotstxtServer(new RobotstxtConfig(enabled: false), pageFetcher)
+        CrawlController controller = new CrawlController(crawlConfig, pageFetcher, robotstxtServer)
+        controller.addSeed("http://localhost:" + wireMockRule.port() + "/index.html")
+
+        when:
+        controller.start(DuplicateRecordingCrawler.class, 1)
+
+        then:
+        DuplicateRecordingCrawler.visited == ["/index.html", "/a.html"]
+        DuplicateRecordingCrawler.duplicates == ["/b.html"]
+        verify(exactly(0), getRequestedFor(urlEqualTo("/trap.html")))
+    }
+
+    private static Page page(int docId, String text) {
+        Page page = new Page(new WebURL(URL: "http://www.example.com/" + docId, docid: docId))
+        page.setParseData(new HtmlParseData(text: text))
+        return page
+    }
+
+    private static def html(String body) {
+        return aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/html; charset=UTF-8")
+                .withBody("<html><body>" + body + "</body></html>")
+    }
+}
+
+class DuplicateRecordingCrawler extends WebCrawler {
+
+    static List<String> visited = Collections.synchronizedList(new ArrayList<String>())
+    static List<String> duplicates = Collections.synchronizedList(new ArrayList<String>())
+
+    @Override
+    void visit(Page page) {
+        visited.add(page.getWebURL().getPath())
+    }
+
+    @Override
+    protected void onDuplicateContent(Page page, DuplicateContent duplicate) {
+        duplicates.add(page.getWebURL().getPath())
+    }
+}
@@ -0,0 +1,177 @@
+package edu.uci.ics.crawler4j.fetcher
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration
+import com.github.tomakehurst.wiremock.junit.WireMockRule
+import edu.uci.ics.crawler4j.crawler.ContentBufferPool
+import edu.uci.ics.crawler4j.crawler.CrawlConfig
+import edu.uci.ics.crawler4j.crawler.CrawlController
+import edu.uci.ics.crawler4j.crawler.Page
+import edu.uci.ics.crawler4j.crawler.WebCrawler
+import edu.uci.ics.crawler4j.robotstxt.RobotstxtConfig
+import edu.uci.ics.crawler4j.robotstxt.RobotstxtServer
+import edu.uci.ics.crawler4j.url.WebURL
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*
+
+class AsyncPageFetcherTest extends Specification {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder()
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(new WireMockConfiguration().dynamicPort())
+
+    def "fetched content is buffered and the connection released"() {
+        given:
+        stubFor(get(urlEqualTo("/page.html"))
+                .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/html; charset=UTF-8")
+                .withBody("<html><body>hello</body></html>")))
+        AsyncPageFetcher fetcher = new AsyncPageFetcher(new CrawlConfig(maxTotalConnections: 1), 2)
+        WebURL url = webUrl("/page.html")
+
+        when:
+        PageFetchResult first = fetcher.fetchPageAsync(url).get()
+        PageFetchResult second = fetcher.fetchPageAsync(url).get()
+        Page page = new Page(url)
+
+        then: "the second request did not wait for the unconsumed first response"
+        first.statusCode == 200
+        second.fetchContent(page, 1000)
+        new String(page.contentData, "UTF-8") == "<html><body>hello</body></html>"
+        page.contentCharset == "UTF-8"
+        !page.truncated
+
+        cleanup:
+        fetcher.shutDown()
+    }
+
+    def "politeness delay does not block the caller"() {
+        given:
+        stubFor(get(urlPathMatching("/delayed/.*")).willReturn(aResponse().withStatus(200).withBody("ok")))
+        AsyncPageFetcher fetcher = new AsyncPageFetcher(new CrawlConfig(politenessDelay: 500), 2)
+
+        when:
+        long start = System.currentTimeMillis()
+        def first = fetcher.fetchPageAsync(webUrl("/delayed/1"))
+        def second = fetcher.fetchPageAsync(webUrl("/delayed/2"))
+        long submitted = System.currentTimeMillis() - start
+        first.get()
+        second.get()
+        long secondDone = System.currentTimeMillis() - start
+
+        then:
+        submitted < 250
+        secondDone >= 450
+
+        cleanup:
+        fetcher.shutDown()
+    }
+
+    def "content beyond the maximum download size is truncated"() {
+        given:
+        stubFor(get(urlEqualTo("/big.html")).willReturn(aResponse().withStatus(200).withBody("x" * 2048)))
+        AsyncPageFetcher fetcher = new AsyncPageFetcher(new CrawlConfig(maxDownloadSize: 1024), 1)
+        WebURL url = webUrl("/big.html")
+        Page page = new Page(url)
+
+        when:
+        PageFetchResult result = fetcher.fetchPageAsync(url).get()
+
+        then:
+        result.fetchContent(page, 1024)
+        page.truncated
+        page.contentData.length == 1024
+
+        cleanup:
+        fetcher.shutDown()
+    }
+
+    def "pages take over the pooled buffer the content was read into"() {
+        given:
+        stubFor(get(urlEqualTo("/pooled.html")).willReturn(aResponse().withStatus(200).withBody("y" * 5000)))
+        ContentBufferPool pool = new ContentBufferPool(1)
+        AsyncPageFetcher fetcher = new AsyncPageFetcher(new CrawlConfig(), 1)
+        fetcher.setContentBufferPool(pool)
+        WebURL url = webUrl("/pooled.html")
+
+        when:
+        Page first = new Page(url)
+        first.setContentBufferPool(pool)
+        fetcher.fetchPageAsync(url).get().fetchContent(first, 10000)
+        String content = new String(first.contentData, "UTF-8")
+        first.releaseContent()
+        Page second = new Page(url)
+        second.setContentBufferPool(pool)
+        fetcher.fetchPageAsync(url).get().fetchContent(second, 10000)
+
+        then:
+        content == "y" * 5000
+        second.contentLength == 5000
+        !second.truncated
+        pool.allocatedBuffers == 1
+
+        cleanup:
+        fetcher.shutDown()
+    }
+
+    def "crawlers visit pages fetched asynchronously"() {
+        given:
+        stubFor(get(urlEqualTo("/index.html"))
+                .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/html; charset=UTF-8")
+                .withBody("<html><body><a href=\"/page1.html\">1</a><a href=\"/page2.html\">2</a>" +
+                          "<a href=\"/moved.html\">3</a></body></html>")))
+        stubFor(get(urlPathMatching("/page[12].html"))
+                .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/html; charset=UTF-8")
+                .withBody("<html><body><h1>title</h1></body></html>")))
+        stubFor(get(urlEqualTo("/moved.html"))
+                .willReturn(aResponse()
+                .withStatus(301)
+                .withHeader("Location", "/page1.html")))
+        stubFor(get(urlEqualTo("/robots.txt")).willReturn(aResponse().withStatus(404)))
+
+        CrawlConfig config = new CrawlConfig(
+                crawlStorageFolder: temp.getRoot().getAbsolutePath()
+                , politenessDelay: 50
+                , threadShutdownDelaySeconds: 1
+                , threadMonitoringDelaySeconds: 1
+                , cleanupDelaySeconds: 1
+        )
+        AsyncPageFetcher pageFetcher = new AsyncPageFetcher(config, 4)
+        RobotstxtServer robotstxtServer = new RobotstxtServer(new RobotstxtConfig(), pageFetcher)
+        CrawlController controller = new CrawlController(config, pageFetcher, robotstxtServer)
+        controller.addSeed("http://localhost:" + wireMockRule.port() + "/index.html")
+
+        when:
+        controller.start(VisitRecordingCrawler.class, 1)
+
+        then:
+        VisitRecordingCrawler.visited.sort() == ["/index.html", "/page1.html", "/page2.html"]
+        verify(exactly(1), getRequestedFor(urlEqualTo("/page1.html")))
+        verify(exactly(1), getRequestedFor(urlEqualTo("/moved.html")))
+    }
+
+    private WebURL webUrl(String path) {
+        WebURL webURL = new WebURL()
+        webURL.setURL("http://localhost:" + wireMockRule.port() + path)
+        return webURL
+    }
+}
+
+class VisitRecordingCrawler extends WebCrawler {
+
+    static List<String> visited = Collections.synchronizedList(new ArrayList<String>())
+
+    @Override
+    void visit(Page page) {
+        visited.add(page.getWebURL().getPath().toString())
+    }
+}
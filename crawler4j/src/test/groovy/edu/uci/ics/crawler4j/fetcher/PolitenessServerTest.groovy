@@ -0,0 +1,49 @@
+package edu.uci.ics.crawler4j.fetcher
+
+import edu.uci.ics.crawler4j.crawler.CrawlConfig
+import edu.uci.ics.crawler4j.url.WebURL
+import spock.lang.Specification
+
+class PolitenessServerTest extends Specification {
+
+    def "requests to the same host are spaced by the politeness delay"() {
+        given:
+        PolitenessServer server = new PolitenessServer(new CrawlConfig(politenessDelay: 1000))
+
+        when:
+        long first = server.reserve(webUrl("http://www.example.com/a"))
+        long second = server.reserve(webUrl("http://WWW.example.com:80/b"))
+        long third = server.reserve(webUrl("http://www.example.com/c"))
+
+        then:
+        first == 0
+        second > 900 && second <= 1000
+        third > 1900 && third <= 2000
+    }
+
+    def "requests to different hosts do not wait for each other"() {
+        given:
+        PolitenessServer server = new PolitenessServer(new CrawlConfig(politenessDelay: 1000))
+
+        expect:
+        server.reserve(webUrl("http://www.example.com/a")) == 0
+        server.reserve(webUrl("http://www.example.org/a")) == 0
+        server.reserve(webUrl("http://user@other.example.com/a")) == 0
+        server.numberOfTrackedHosts == 3
+    }
+
+    def "no delay is applied when politeness is disabled"() {
+        given:
+        PolitenessServer server = new PolitenessServer(new CrawlConfig(politenessDelay: 0))
+
+        expect:
+        server.reserve(webUrl("http://www.example.com/a")) == 0
+        server.reserve(webUrl("http://www.example.com/b")) == 0
+    }
+
+    private static WebURL webUrl(String url) {
+        WebURL webURL = new WebURL()
+        webURL.setURL(url)
+        return webURL
+    }
+}
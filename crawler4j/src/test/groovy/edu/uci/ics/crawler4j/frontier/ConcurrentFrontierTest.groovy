@@ -0,0 +1,166 @@
+package edu.uci.ics.crawler4j.frontier
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+import com.sleepycat.je.Environment
+import com.sleepycat.je.EnvironmentConfig
+import edu.uci.ics.crawler4j.crawler.CrawlConfig
+import edu.uci.ics.crawler4j.url.WebURL
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class ConcurrentFrontierTest extends Specification {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder()
+
+    CrawlConfig config = new CrawlConfig()
+
+    def setup() {
+        config.setCrawlStorageFolder(temp.getRoot().getAbsolutePath())
+        config.getFrontierConfig().setConcurrentFrontier(true)
+        config.getFrontierConfig().setFrontierStripes(4)
+    }
+
+    def "scheduled urls are handed out once across all stripes"() {
+        given:
+        Environment env = openEnvironment(false)
+        ConcurrentFrontier frontier = new ConcurrentFrontier(env, config)
+
+        when:
+        frontier.scheduleAll((1..20).collect { webUrl(it) })
+        List<WebURL> claimed = []
+        while (frontier.queueLength > 0) {
+            frontier.getNextURLs(3, claimed)
+        }
+
+        then:
+        claimed*.docid.sort() == (1..20).toList()
+        frontier.numberOfScheduledPages == 20
+
+        cleanup:
+        frontier.close()
+        env.close()
+    }
+
+    def "max pages to fetch is enforced across concurrent schedulers"() {
+        given:
+        config.setMaxPagesToFetch(50)
+        Environment env = openEnvironment(false)
+        ConcurrentFrontier frontier = new ConcurrentFrontier(env, config)
+
+        when:
+        List<Thread> threads = (0..<4).collect { int t ->
+            Thread.start { (0..<30).each { frontier.schedule(webUrl(t * 100 + it)) } }
+        }
+        threads*.join()
+
+        then:
+        frontier.queueLength == 50
+        frontier.numberOfScheduledPages == 50
+
+        cleanup:
+        frontier.close()
+        env.close()
+    }
+
+    def "waiting threads are woken by scheduling and by finish"() {
+        given:
+        Environment env = openEnvironment(false)
+        ConcurrentFrontier frontier = new ConcurrentFrontier(env, config)
+        List<WebURL> first = Collections.synchronizedList([])
+        List<WebURL> second = Collections.synchronizedList([])
+        CountDownLatch done = new CountDownLatch(2)
+        Thread.start { frontier.getNextURLs(10, first); done.countDown() }
+        Thread.start { frontier.getNextURLs(10, second); done.countDown() }
+        Thread.sleep(200)
+
+        when:
+        frontier.schedule(webUrl(1))
+
+        then:
+        !done.await(200, TimeUnit.MILLISECONDS)
+        done.count == 1
+        (first + second)*.docid == [1]
+
+        when:
+        frontier.finish()
+
+        then:
+        done.await(5, TimeUnit.SECONDS)
+
+        cleanup:
+        frontier.close()
+        env.close()
+    }
+
+    def "pending urls of removed stripes are kept when resuming with fewer stripes"() {
+        given:
+        config.setResumableCrawling(true)
+        Environment env = openEnvironment(true)
+        ConcurrentFrontier frontier = new ConcurrentFrontier(env, config)
+        frontier.scheduleAll((1..40).collect { webUrl(it) })
+        frontier.close()
+
+        when:
+        config.getFrontierConfig().setFrontierStripes(2)
+        frontier = new ConcurrentFrontier(env, config)
+        List<WebURL> claimed = []
+        while (frontier.queueLength > 0) {
+            frontier.getNextURLs(50, claimed)
+        }
+
+        then:
+        claimed*.docid.sort() == (1..40).toList()
+        env.databaseNames.count { it.startsWith("PendingURLsDB-") } == 1
+
+        cleanup:
+        frontier.close()
+        env.close()
+    }
+
+    def "urls in process are scheduled again when resuming"() {
+        given:
+        config.setResumableCrawling(true)
+        Environment env = openEnvironment(true)
+        ConcurrentFrontier frontier = new ConcurrentFrontier(env, config)
+        frontier.scheduleAll((1..10).collect { webUrl(it) })
+        List<WebURL> inProcess = []
+        frontier.getNextURLs(4, inProcess)
+        frontier.close()
+
+        when:
+        frontier = new ConcurrentFrontier(env, config)
+        long inProcessAfterResume = frontier.inProcessPages.length
+        List<WebURL> claimed = []
+        while (frontier.queueLength > 0) {
+            frontier.getNextURLs(50, claimed)
+        }
+
+        then:
+        !inProcess.isEmpty()
+        inProcessAfterResume == 0
+        claimed*.docid.sort() == (1..10).toList()
+
+        cleanup:
+        frontier.close()
+        env.close()
+    }
+
+    private Environment openEnvironment(boolean resumable) {
+        EnvironmentConfig envConfig = new EnvironmentConfig()
+        envConfig.setAllowCreate(true)
+        envConfig.setTransactional(resumable)
+        envConfig.setLocking(resumable)
+        return new Environment(temp.getRoot(), envConfig)
+    }
+
+    private static WebURL webUrl(int docid) {
+        WebURL webURL = new WebURL()
+        webURL.setURL("http://www.example.com/" + docid)
+        webURL.setDocid(docid)
+        return webURL
+    }
+}
@@ -0,0 +1,129 @@
+package edu.uci.ics.crawler4j.frontier
+
+import com.sleepycat.je.DatabaseEntry
+import com.sleepycat.je.Environment
+import com.sleepycat.je.EnvironmentConfig
+import com.sleepycat.je.OperationStatus
+import edu.uci.ics.crawler4j.crawler.CrawlConfig
+import edu.uci.ics.crawler4j.util.Util
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import static edu.uci.ics.crawler4j.frontier.Counters.ReservedCounterNames.PROCESSED_PAGES
+import static edu.uci.ics.crawler4j.frontier.Counters.ReservedCounterNames.SCHEDULED_PAGES
+
+class CountersTest extends Specification {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder()
+
+    CrawlConfig config = new CrawlConfig()
+    Environment env
+
+    def setup() {
+        config.setResumableCrawling(true)
+        config.getFrontierConfig().setCountersFlushInterval(60000)
+        config.getFrontierConfig().setCountersFlushBatchSize(10)
+        EnvironmentConfig envConfig = new EnvironmentConfig()
+        envConfig.setAllowCreate(true)
+        envConfig.setTransactional(true)
+        envConfig.setLocking(true)
+        env = new Environment(temp.getRoot(), envConfig)
+    }
+
+    def cleanup() {
+        env.close()
+    }
+
+    PollingConditions conditions = new PollingConditions(timeout: 5)
+
+    def "increments are written in the background once the batch size is reached"() {
+        given:
+        Counters counters = new Counters(env, config)
+
+        when:
+        5.times { counters.increment(PROCESSED_PAGES) }
+        Thread.sleep(200)
+
+        then:
+        counters.getValue(PROCESSED_PAGES) == 5
+        storedValue(counters, PROCESSED_PAGES) == null
+
+        when:
+        5.times { counters.increment(PROCESSED_PAGES) }
+
+        then:
+        conditions.eventually {
+            assert storedValue(counters, PROCESSED_PAGES) == 10
+        }
+
+        cleanup:
+        counters.close()
+    }
+
+    def "increments are written in the background once the interval has passed"() {
+        given:
+        config.getFrontierConfig().setCountersFlushInterval(100)
+        Counters counters = new Counters(env, config)
+
+        when:
+        counters.increment(SCHEDULED_PAGES, 3)
+
+        then:
+        conditions.eventually {
+            assert storedValue(counters, SCHEDULED_PAGES) == 3
+        }
+        counters.counterValues == [(SCHEDULED_PAGES): 3L]
+
+        cleanup:
+        counters.close()
+    }
+
+    def "pending increments are written on close and reloaded"() {
+        given:
+        Counters counters = new Counters(env, config)
+        counters.increment(SCHEDULED_PAGES, 3)
+        counters.increment(PROCESSED_PAGES)
+        counters.close()
+
+        when:
+        counters = new Counters(env, config)
+
+        then:
+        counters.getValue(SCHEDULED_PAGES) == 3
+        counters.getValue(PROCESSED_PAGES) == 1
+
+        cleanup:
+        counters.close()
+    }
+
+    def "concurrent increments are not lost"() {
+        given:
+        Counters counters = new Counters(env, config)
+
+        when:
+        List<Thread> threads = (0..<8).collect {
+            Thread.start { 1000.times { counters.increment(PROCESSED_PAGES) } }
+        }
+        threads*.join()
+        counters.close()
+        counters = new Counters(env, config)
+
+        then:
+        counters.getValue(PROCESSED_PAGES) == 8000
+
+        cleanup:
+        counters.close()
+    }
+
+    private static Long storedValue(Counters counters, String name) {
+        DatabaseEntry key = new DatabaseEntry(name.getBytes())
+        DatabaseEntry value = new DatabaseEntry()
+        if (counters.statisticsDB.get(null, key, value, null) != OperationStatus.SUCCESS) {
+            return null
+        }
+        return Util.byteArray2Long(value.getData())
+    }
+}
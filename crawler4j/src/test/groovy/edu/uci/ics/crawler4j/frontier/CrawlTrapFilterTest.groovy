@@ -0,0 +1,126 @@
+package edu.uci.ics.crawler4j.frontier
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration
+import com.github.tomakehurst.wiremock.junit.WireMockRule
+import edu.uci.ics.crawler4j.crawler.CrawlConfig
+import edu.uci.ics.crawler4j.crawler.CrawlController
+import edu.uci.ics.crawler4j.crawler.Page
+import edu.uci.ics.crawler4j.crawler.WebCrawler
+import edu.uci.ics.crawler4j.fetcher.PageFetcher
+import edu.uci.ics.crawler4j.robotstxt.RobotstxtConfig
+import edu.uci.ics.crawler4j.robotstxt.RobotstxtServer
+import edu.uci.ics.crawler4j.url.WebURL
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*
+
+class CrawlTrapFilterTest extends Specification {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder()
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(new WireMockConfiguration().dynamicPort())
+
+    def "repeated runs of path segments are detected"() {
+        expect:
+        !CrawlTrapFilter.hasRepeatedSegments("/a/b/a/b/", 2)
+        CrawlTrapFilter.hasRepeatedSegments("/a/b/a/b/a/b", 2)
+        CrawlTrapFilter.hasRepeatedSegments("/x/a/b/c/a/b/c/a/b/c/y.html", 2)
+        !CrawlTrapFilter.hasRepeatedSegments("/a/b/c/a/b/d/a/b/e", 2)
+        CrawlTrapFilter.hasRepeatedSegments("/a/a/a", 2)
+        !CrawlTrapFilter.hasRepeatedSegments("/2020/01/01/index.html", 2)
+        !CrawlTrapFilter.hasRepeatedSegments("/", 1)
+    }
+
+    def "urls beyond the limits are pruned and counted"() {
+        given:
+        CrawlTrapFilter filter = new CrawlTrapFilter(new CrawlConfig(frontierConfig: new FrontierConfig(
+                maxPagesPerHost: 5, maxPathRepetitions: 2, maxQueryParameterValues: 2)))
+
+        when:
+        def calendar = (1..4).collect { filter.check(url("http://a.com/calendar?month=" + it + "&view=list")) }
+        def sameMonth = filter.check(url("http://a.com/calendar?month=2&view=grid"))
+        def otherPath = filter.check(url("http://a.com/events?month=3"))
+        def otherParameter = filter.check(url("http://a.com/events?day=3"))
+        def loop = filter.check(url("http://a.com/x/y/x/y/x/y"))
+        def budget = (1..3).collect { filter.check(url("http://a.com/page" + it)) }
+        def otherHost = filter.check(url("http://b.com/page?month=3"))
+
+        then:
+        calendar == [null, null, CrawlTrapFilter.Trap.QUERY_PARAMETER_CARDINALITY,
+                     CrawlTrapFilter.Trap.QUERY_PARAMETER_CARDINALITY]
+        sameMonth == null
+        otherPath == CrawlTrapFilter.Trap.QUERY_PARAMETER_CARDINALITY
+        otherParameter == null
+        loop == CrawlTrapFilter.Trap.PATH_REPETITION
+        budget == [null, CrawlTrapFilter.Trap.HOST_BUDGET, CrawlTrapFilter.Trap.HOST_BUDGET]
+        otherHost == null
+        filter.getPrunedUrls(CrawlTrapFilter.Trap.QUERY_PARAMETER_CARDINALITY) == 3
+        filter.getPrunedUrls(CrawlTrapFilter.Trap.PATH_REPETITION) == 1
+        filter.getPrunedUrls(CrawlTrapFilter.Trap.HOST_BUDGET) == 2
+        filter.getPrunedUrls() == 6
+    }
+
+    def "query parameter values may be counted per path and only recent parameters are tracked"() {
+        given:
+        CrawlTrapFilter perPath = new CrawlTrapFilter(new CrawlConfig(frontierConfig: new FrontierConfig(
+                maxQueryParameterValues: 1, queryParameterLimitPerPath: true)))
+        CrawlTrapFilter bounded = new CrawlTrapFilter(new CrawlConfig(frontierConfig: new FrontierConfig(
+                maxQueryParameterValues: 1, maxTrackedQueryParameters: 1)))
+
+        expect:
+        perPath.check(url("http://a.com/calendar?month=1")) == null
+        perPath.check(url("http://a.com/events?month=2")) == null
+        perPath.check(url("http://a.com/events?month=3")) == CrawlTrapFilter.Trap.QUERY_PARAMETER_CARDINALITY
+
+        bounded.check(url("http://a.com/calendar?month=1")) == null
+        bounded.check(url("http://a.com/calendar?month=2")) == CrawlTrapFilter.Trap.QUERY_PARAMETER_CARDINALITY
+        bounded.check(url("http://a.com/calendar?day=1")) == null
+        bounded.check(url("http://a.com/calendar?month=2")) == null
+    }
+
+    def "a crawl stops following links into an endless path"() {
+        given:
+        stubFor(get(urlPathMatching("/x/.*")).willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/html; charset=UTF-8")
+                .withBody('<html><body><a href="x/">deeper</a></body></html>')))
+
+        CrawlConfig config = new CrawlConfig(
+                crawlStorageFolder: temp.newFolder().getAbsolutePath()
+                , politenessDelay: 0
+                , threadShutdownDelaySeconds: 1
+                , threadMonitoringDelaySeconds: 1
+                , cleanupDelaySeconds: 1
+                , frontierConfig: new FrontierConfig(maxPathRepetitions: 2)
+        )
+        PageFetcher pageFetcher = new PageFetcher(config)
+        RobotstxtServer robotstxtServer = new RobotstxtServer(new RobotstxtConfig(enabled: false), pageFetcher)
+        CrawlController controller = new CrawlController(config, pageFetcher, robotstxtServer)
+        controller.addSeed("http://localhost:" + wireMockRule.port() + "/x/")
+
+        when:
+        controller.start(TrapRecordingCrawler.class, 1)
+
+        then:
+        TrapRecordingCrawler.visited == ["/x/", "/x/x/"]
+        controller.getCrawlTrapFilter().getPrunedUrls(CrawlTrapFilter.Trap.PATH_REPETITION) == 1
+    }
+
+    private static WebURL url(String url) {
+        return new WebURL(URL: url)
+    }
+}
+
+class TrapRecordingCrawler extends WebCrawler {
+
+    static List<String> visited = Collections.synchronizedList(new ArrayList<String>())
+
+    @Override
+    void visit(Page page) {
+        visited.add(page.getWebURL().getPath())
+    }
+}
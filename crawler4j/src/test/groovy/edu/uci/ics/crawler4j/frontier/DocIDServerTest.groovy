@@ -0,0 +1,166 @@
+package edu.uci.ics.crawler4j.frontier
+
+import com.sleepycat.je.Environment
+import com.sleepycat.je.EnvironmentConfig
+import edu.uci.ics.crawler4j.crawler.CrawlConfig
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class DocIDServerTest extends Specification {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder()
+
+    CrawlConfig config = new CrawlConfig()
+    Environment env
+
+    def setup() {
+        config.setResumableCrawling(true)
+        EnvironmentConfig envConfig = new EnvironmentConfig()
+        envConfig.setAllowCreate(true)
+        envConfig.setTransactional(true)
+        envConfig.setLocking(true)
+        env = new Environment(temp.getRoot(), envConfig)
+    }
+
+    def cleanup() {
+        env.close()
+    }
+
+    def "urls keep their docid with the seen filter enabled"() {
+        given:
+        config.getFrontierConfig().setDocIdFilterExpectedUrls(1000)
+        DocIDServer docIdServer = new DocIDServer(env, config)
+
+        when:
+        int first = docIdServer.getNewDocID("http://www.example.com/1")
+        int second = docIdServer.getNewDocID("http://www.example.com/2")
+        docIdServer.addUrlAndDocId("http://www.example.com/3", 10)
+
+        then:
+        docIdServer.getDocId("http://www.example.com/1") == first
+        docIdServer.getDocId("http://www.example.com/2") == second
+        docIdServer.getDocId("http://www.example.com/3") == 10
+        docIdServer.getNewDocID("http://www.example.com/1") == first
+        docIdServer.getDocId("http://www.example.com/4") == -1
+        !docIdServer.isSeenBefore("http://www.example.com/4")
+
+        cleanup:
+        docIdServer.close()
+    }
+
+    def "seen filter is rebuilt when resuming a crawl"() {
+        given:
+        DocIDServer docIdServer = new DocIDServer(env, config)
+        List<Integer> docIds = (1..100).collect { docIdServer.getNewDocID("http://www.example.com/${it}") }
+        docIdServer.close()
+
+        when:
+        config.getFrontierConfig().setDocIdFilterExpectedUrls(1000)
+        docIdServer = new DocIDServer(env, config)
+
+        then:
+        (1..100).collect { docIdServer.getDocId("http://www.example.com/${it}") } == docIds
+        docIdServer.getNewDocID("http://www.example.com/new") == 101
+
+        cleanup:
+        docIdServer.close()
+    }
+
+    def "resolveOrAssign keeps existing docids and assigns new ones in one batch"() {
+        given:
+        config.getFrontierConfig().setDocIdFilterExpectedUrls(filterSize)
+        DocIDServer docIdServer = new DocIDServer(env, config)
+        int existing = docIdServer.getNewDocID("http://www.example.com/b")
+
+        when:
+        Map<String, Integer> docIds = docIdServer.resolveOrAssign(
+            ["http://www.example.com/c", "http://www.example.com/b", "http://www.example.com/a",
+             "http://www.example.com/c"])
+
+        then:
+        docIds.size() == 3
+        docIds["http://www.example.com/b"] == existing
+        docIds.values().toSet() == [1, 2, 3].toSet()
+        docIdServer.getDocId("http://www.example.com/a") == docIds["http://www.example.com/a"]
+        docIdServer.getDocIds(["http://www.example.com/a", "http://www.example.com/d"]) ==
+            ["http://www.example.com/a": docIds["http://www.example.com/a"]]
+        docIdServer.getNewDocID("http://www.example.com/d") == 4
+
+        cleanup:
+        docIdServer.close()
+
+        where:
+        filterSize << [0, 1000]
+    }
+
+    def "urls keep their docid with #bits bit fingerprint keys"() {
+        given:
+        config.getFrontierConfig().setDocIdFingerprintBits(bits)
+        DocIDServer docIdServer = new DocIDServer(env, config)
+
+        when:
+        Map<String, Integer> docIds = docIdServer.resolveOrAssign((1..50).collect { "http://www.example.com/${it}".toString() })
+
+        then:
+        (1..50).collect { docIdServer.getDocId("http://www.example.com/${it}") } == (1..50).collect {
+            docIds["http://www.example.com/${it}"]
+        }
+        docIdServer.getDocId("http://www.example.com/51") == -1
+        docIdServer.getNewDocID("http://www.example.com/51") == 51
+
+        cleanup:
+        docIdServer.close()
+
+        where:
+        bits << [64, 128]
+    }
+
+    def "colliding fingerprints are stored under the next free key"() {
+        given:
+        config.getFrontierConfig().setDocIdFingerprintBits(64)
+        DocIDServer docIdServer = new DocIDServer(env, config)
+        byte[] fingerprint = docIdServer.getKey("http://www.example.com/1")
+        // Simulates another url whose fingerprint collides with the one of /1
+        docIdServer.store(null, "http://www.example.com/other", fingerprint, 7)
+
+        when:
+        int docId = docIdServer.getNewDocID("http://www.example.com/1")
+
+        then:
+        docId == 1
+        docIdServer.getDocId("http://www.example.com/1") == 1
+        docIdServer.lookup(null, "http://www.example.com/other", fingerprint) == 7
+        docIdServer.docCount == 2
+
+        cleanup:
+        docIdServer.close()
+    }
+
+    def "seen urls are migrated when the key format changes"() {
+        given:
+        config.getFrontierConfig().setDocIdFingerprintBits(from)
+        DocIDServer docIdServer = new DocIDServer(env, config)
+        List<Integer> docIds = (1..20).collect { docIdServer.getNewDocID("http://www.example.com/${it}") }
+        docIdServer.close()
+
+        when:
+        config.getFrontierConfig().setDocIdFingerprintBits(to)
+        docIdServer = new DocIDServer(env, config)
+
+        then:
+        (1..20).collect { docIdServer.getDocId("http://www.example.com/${it}") } == docIds
+        docIdServer.getNewDocID("http://www.example.com/new") == 21
+        env.databaseNames.count { it.startsWith("DocIDs") } == 1
+
+        cleanup:
+        docIdServer.close()
+
+        where:
+        from | to
+        0    | 64
+        64   | 128
+        128  | 0
+    }
+}
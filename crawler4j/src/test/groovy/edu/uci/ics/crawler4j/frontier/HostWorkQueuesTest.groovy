@@ -0,0 +1,120 @@
+package edu.uci.ics.crawler4j.frontier
+
+import com.sleepycat.je.Environment
+import com.sleepycat.je.EnvironmentConfig
+import edu.uci.ics.crawler4j.url.WebURL
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class HostWorkQueuesTest extends Specification {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder()
+
+    Environment env
+
+    def setup() {
+        env = openEnvironment()
+    }
+
+    def cleanup() {
+        env.close()
+    }
+
+    def "batches contain one url per host until the politeness delay has passed"() {
+        given:
+        HostWorkQueues queues = new HostWorkQueues(env, "hosts", true, 60000)
+        int docid = 1
+        ["a", "b", "c"].each { host ->
+            3.times { queues.put(webUrl("http://${host}.example.com/${it}", docid++)) }
+        }
+
+        when:
+        List<WebURL> batch = queues.claim(10)
+
+        then:
+        batch.size() == 3
+        batch*.host as Set == ["a.example.com", "b.example.com", "c.example.com"] as Set
+        batch*.path as Set == ["/0"] as Set
+        queues.claim(10).isEmpty()
+        queues.getMillisUntilNextReady() > 0
+        queues.length == 6
+
+        cleanup:
+        queues.close()
+    }
+
+    def "all urls of a host are handed out when there is no politeness delay"() {
+        given:
+        HostWorkQueues queues = new HostWorkQueues(env, "hosts", true, 0)
+        (1..5).each { queues.put(webUrl("http://a.example.com/${it}", it)) }
+
+        expect:
+        queues.claim(3)*.path == ["/1", "/2", "/3"]
+        queues.claim(3)*.path == ["/4", "/5"]
+        queues.getMillisUntilNextReady() == -1
+
+        cleanup:
+        queues.close()
+    }
+
+    def "get and delete go through the hosts in ready order"() {
+        given:
+        HostWorkQueues queues = new HostWorkQueues(env, "hosts", true, 60000)
+        queues.put(webUrl("http://a.example.com/1", 1))
+        queues.put(webUrl("http://a.example.com/2", 2))
+        queues.put(webUrl("http://b.example.com/1", 3))
+        queues.put(webUrl("http://b.example.com/2", 4))
+        List<WebURL> claimed = queues.claim(1)
+        String first = claimed[0].host == "a.example.com" ? "b.example.com" : "a.example.com"
+
+        when:
+        List<WebURL> pending = queues.get(10)
+        queues.delete(2)
+
+        then: "the host claimed from waits for its delay, so comes last"
+        pending*.host == [first, first, claimed[0].host]
+        pending[0..1]*.path == ["/1", "/2"]
+        queues.get(10)*.URL == [pending[2].URL]
+        queues.numberOfReadyHosts == 1
+        queues.length == 1
+
+        cleanup:
+        queues.close()
+    }
+
+    def "pending hosts are restored when the queues are reopened"() {
+        given:
+        HostWorkQueues queues = new HostWorkQueues(env, "hosts", true, 60000)
+        queues.put(webUrl("http://a.example.com/1", 1))
+        queues.put(webUrl("http://a.example.com/2", 2))
+        queues.put(webUrl("http://b.example.com/1", 3))
+        queues.close()
+
+        when:
+        HostWorkQueues reopened = new HostWorkQueues(env, "hosts", true, 60000)
+
+        then:
+        reopened.numberOfReadyHosts == 2
+        reopened.claim(10).size() == 2
+
+        cleanup:
+        reopened.close()
+    }
+
+    private Environment openEnvironment() {
+        EnvironmentConfig envConfig = new EnvironmentConfig()
+        envConfig.setAllowCreate(true)
+        envConfig.setTransactional(true)
+        envConfig.setLocking(true)
+        return new Environment(temp.getRoot(), envConfig)
+    }
+
+    private static WebURL webUrl(String url, int docid) {
+        WebURL webURL = new WebURL()
+        webURL.setURL(url)
+        webURL.setDocid(docid)
+        return webURL
+    }
+}
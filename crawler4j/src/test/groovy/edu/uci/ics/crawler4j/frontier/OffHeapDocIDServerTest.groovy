@@ -0,0 +1,79 @@
+package edu.uci.ics.crawler4j.frontier
+
+import edu.uci.ics.crawler4j.crawler.CrawlConfig
+import spock.lang.Specification
+
+class OffHeapDocIDServerTest extends Specification {
+
+    CrawlConfig config = new CrawlConfig()
+
+    def "urls keep their docid"() {
+        given:
+        OffHeapDocIDServer docIdServer = new OffHeapDocIDServer(config)
+
+        when:
+        int first = docIdServer.getNewDocID("http://www.example.com/1")
+        docIdServer.addUrlAndDocId("http://www.example.com/2", 10)
+
+        then:
+        first == 1
+        docIdServer.getNewDocID("http://www.example.com/1") == 1
+        docIdServer.getDocId("http://www.example.com/2") == 10
+        docIdServer.getNewDocID("http://www.example.com/3") == 11
+        docIdServer.getDocId("http://www.example.com/4") == -1
+        docIdServer.resolveOrAssign(["http://www.example.com/1", "http://www.example.com/4"]) ==
+            ["http://www.example.com/1": 1, "http://www.example.com/4": 12]
+        docIdServer.docCount == 4
+
+        when:
+        docIdServer.addUrlAndDocId("http://www.example.com/5", 5)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        cleanup:
+        docIdServer.close()
+    }
+
+    def "segments grow beyond their initial capacity"() {
+        given:
+        config.getFrontierConfig().setOffHeapDocIdIndexInitialCapacity(0)
+        OffHeapDocIDServer docIdServer = new OffHeapDocIDServer(config)
+        long initialBytes = docIdServer.allocatedBytes
+
+        when:
+        (1..200000).each { docIdServer.getNewDocID("http://www.example.com/" + it) }
+
+        then:
+        docIdServer.docCount == 200000
+        docIdServer.allocatedBytes > initialBytes
+        (1..200000).every { docIdServer.getDocId("http://www.example.com/" + it) == it }
+
+        cleanup:
+        docIdServer.close()
+    }
+
+    def "concurrent assignments hand out every docid once"() {
+        given:
+        OffHeapDocIDServer docIdServer = new OffHeapDocIDServer(config)
+        List<Map<String, Integer>> results = Collections.synchronizedList([])
+
+        when:
+        List<Thread> threads = (0..<8).collect {
+            Thread.start {
+                Map<String, Integer> docIds = [:]
+                (1..5000).each { docIds[it.toString()] = docIdServer.getNewDocID("http://www.example.com/" + it) }
+                results.add(docIds)
+            }
+        }
+        threads*.join()
+
+        then:
+        results.every { it == results[0] }
+        results[0].values().toSet() == (1..5000).toSet()
+        docIdServer.docCount == 5000
+
+        cleanup:
+        docIdServer.close()
+    }
+}
@@ -0,0 +1,66 @@
+package edu.uci.ics.crawler4j.frontier
+
+import com.sleepycat.je.Environment
+import com.sleepycat.je.EnvironmentConfig
+import edu.uci.ics.crawler4j.url.WebURL
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class WorkQueuesTest extends Specification {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder()
+
+    Environment env
+    WorkQueues queues
+    InProcessPagesDB inProcessPages
+
+    def setup() {
+        EnvironmentConfig envConfig = new EnvironmentConfig()
+        envConfig.setAllowCreate(true)
+        envConfig.setTransactional(true)
+        envConfig.setLocking(true)
+        env = new Environment(temp.getRoot(), envConfig)
+        queues = new WorkQueues(env, "pending", true)
+        inProcessPages = new InProcessPagesDB(env)
+    }
+
+    def cleanup() {
+        queues.close()
+        inProcessPages.close()
+        env.close()
+    }
+
+    def "claim removes urls in crawl order and records them as in process"() {
+        given:
+        (1..5).each { queues.put(webUrl("http://www.example.com/${it}", it)) }
+
+        when:
+        List<WebURL> claimed = queues.claim(3, inProcessPages)
+
+        then:
+        claimed*.path == ["/1", "/2", "/3"]
+        queues.length == 2
+        inProcessPages.length == 3
+        inProcessPages.removeURL(claimed[1])
+        inProcessPages.length == 2
+    }
+
+    def "claim returns what is left when the queue is shorter than requested"() {
+        given:
+        queues.put(webUrl("http://www.example.com/1", 1))
+
+        expect:
+        queues.claim(10)*.path == ["/1"]
+        queues.claim(10).isEmpty()
+        inProcessPages.length == 0
+    }
+
+    private static WebURL webUrl(String url, int docid) {
+        WebURL webURL = new WebURL()
+        webURL.setURL(url)
+        webURL.setDocid(docid)
+        return webURL
+    }
+}
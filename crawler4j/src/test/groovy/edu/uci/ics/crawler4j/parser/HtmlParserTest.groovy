@@ -24,4 +24,73 @@ class HtmlParserTest extends Specification {
         noExceptionThrown()
     }
 
+    def "streamed parse extracts the same links without keeping the content"() {
+        given:
+        def config = new CrawlConfig()
+        def parser = new Parser(config, new TikaHtmlParser(config, null), null)
+        def url = new WebURL(url: "http://wiki.c2.com/")
+        def file = new File("src/test/resources/html/wiki.c2.com.html")
+        def entity = new FileEntity(file, new ContentType("text/html", Charset.forName("UTF-8")))
+        def loaded = new Page(url)
+        loaded.load entity, 1000000
+        parser.parse loaded, url.url
+        def streamed = new Page(url)
+
+        when:
+        def content = streamed.openContent(entity, 1000000, retain)
+        parser.parse streamed, url.url, content
+        content.close()
+
+        then:
+        streamed.parseData.outgoingUrls*.URL.sort() == loaded.parseData.outgoingUrls*.URL.sort()
+        streamed.parseData.text == loaded.parseData.text
+        (streamed.contentData != null) == retain
+        (streamed.parseData.html != null) == retain
+
+        where:
+        retain << [false, true]
+    }
+
+    def "streamed content is limited to the maximum download size"() {
+        given:
+        def page = new Page(new WebURL(url: "http://example.com/"))
+        def entity = new ByteArrayEntity(("x" * 2048).bytes, ContentType.TEXT_HTML)
+
+        when:
+        def content = page.openContent(entity, 1024, true)
+        def read = content.bytes.length
+        content.close()
+
+        then:
+        read == 1024
+        page.truncated
+        page.contentData.length == 1024
+    }
+
+    def "extraction profile limits what is extracted"() {
+        given:
+        def config = new CrawlConfig()
+        config.parserConfig.extractionProfile = profile
+        def parser = new Parser(config, new TikaHtmlParser(config, null), null)
+        def url = new WebURL(url: "http://wiki.c2.com/")
+        def file = new File("src/test/resources/html/wiki.c2.com.html")
+        def page = new Page(url)
+        page.load new FileEntity(file, new ContentType("text/html", Charset.forName("UTF-8"))), 1000000
+
+        when:
+        parser.parse page, url.url
+        def parseData = (HtmlParseData) page.parseData
+
+        then:
+        !parseData.outgoingUrls.isEmpty()
+        (parseData.text != null) == text
+        (parseData.html != null) == html
+        (page.language != null) == language
+
+        where:
+        profile                                | text  | html  | language
+        ParserConfig.ExtractionProfile.FULL    | true  | true  | true
+        ParserConfig.ExtractionProfile.TEXT    | true  | false | false
+        ParserConfig.ExtractionProfile.LINKS   | false | false | false
+    }
 }
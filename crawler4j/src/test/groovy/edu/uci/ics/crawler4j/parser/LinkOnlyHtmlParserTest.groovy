@@ -0,0 +1,71 @@
+package edu.uci.ics.crawler4j.parser
+
+import edu.uci.ics.crawler4j.crawler.CrawlConfig
+import edu.uci.ics.crawler4j.crawler.Page
+import edu.uci.ics.crawler4j.url.WebURL
+import org.apache.http.entity.ByteArrayEntity
+import org.apache.http.entity.ContentType
+import org.apache.http.entity.FileEntity
+import spock.lang.Specification
+
+import java.nio.charset.Charset
+
+class LinkOnlyHtmlParserTest extends Specification {
+
+    def config = new CrawlConfig()
+
+    def "extracts the same links as the tika parser"() {
+        given:
+        def url = new WebURL(url: "http://wiki.c2.com/")
+        def file = new File("src/test/resources/html/wiki.c2.com.html")
+        def page = new Page(url)
+        page.load new FileEntity(file, new ContentType("text/html", Charset.forName("UTF-8"))), 1000000
+
+        when:
+        def expected = new TikaHtmlParser(config, null).parse(page, url.URL)
+        def actual = new LinkOnlyHtmlParser(config, null).parse(page, url.URL)
+
+        then:
+        !actual.outgoingUrls.isEmpty()
+        actual.outgoingUrls*.URL.sort() == expected.outgoingUrls*.URL.sort()
+        actual.outgoingUrls.collect { it.URL + " " + it.tag + " " + it.anchor }.sort() ==
+            expected.outgoingUrls.collect { it.URL + " " + it.tag + " " + it.anchor }.sort()
+        actual.text == null
+    }
+
+    def "scans tags, attributes and anchors"() {
+        given:
+        def html = """<html><head><title>A &amp; B</title>
+            <base href="http://example.com/base/">
+            <meta http-equiv="refresh" content="5; url=/refreshed.html">
+            <meta name="robots" content="noindex">
+            <!-- <a href="/commented.html">no</a> -->
+            <script>document.write('<a href="/scripted.html">no</a>')</script>
+            <script src='/app.js'></script>
+            <link rel=stylesheet href=/style.css>
+            </head><body>
+            <a HREF="/page?a=1&amp;b=2" class="nav">First <b>link</b></a>
+            <IMG src="/image.png" alt="x > y">
+            <a href="mailto:someone@example.com">mail</a>
+            </body></html>"""
+        def url = new WebURL(url: "http://example.com/dir/index.html")
+        def page = new Page(url)
+        page.load new ByteArrayEntity(html.getBytes("UTF-8"), ContentType.TEXT_HTML), 1000000
+
+        when:
+        def parseData = new LinkOnlyHtmlParser(config, null).parse(page, url.URL)
+        def urls = parseData.outgoingUrls.collectEntries { [(it.URL): it] }
+
+        then:
+        parseData.title == "A & B"
+        parseData.getMetaTagValue("robots") == "noindex"
+        urls.keySet() == ["http://example.com/refreshed.html", "http://example.com/app.js",
+                          "http://example.com/style.css", "http://example.com/page?a=1&b=2",
+                          "http://example.com/image.png"] as Set
+        urls["http://example.com/page?a=1&b=2"].anchor == "First link"
+        urls["http://example.com/page?a=1&b=2"].tag == "a"
+        urls["http://example.com/page?a=1&b=2"].attributes["class"] == "nav"
+        urls["http://example.com/image.png"].tag == "img"
+        urls["http://example.com/style.css"].tag == "link"
+    }
+}
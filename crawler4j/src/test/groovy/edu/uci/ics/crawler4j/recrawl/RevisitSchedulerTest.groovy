@@ -0,0 +1,184 @@
+package edu.uci.ics.crawler4j.recrawl
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration
+import com.github.tomakehurst.wiremock.junit.WireMockRule
+import com.sleepycat.je.Environment
+import com.sleepycat.je.EnvironmentConfig
+import edu.uci.ics.crawler4j.crawler.CrawlConfig
+import edu.uci.ics.crawler4j.crawler.CrawlController
+import edu.uci.ics.crawler4j.crawler.Page
+import edu.uci.ics.crawler4j.crawler.WebCrawler
+import edu.uci.ics.crawler4j.fetcher.PageFetcher
+import edu.uci.ics.crawler4j.frontier.Frontier
+import edu.uci.ics.crawler4j.robotstxt.RobotstxtConfig
+import edu.uci.ics.crawler4j.robotstxt.RobotstxtServer
+import edu.uci.ics.crawler4j.url.WebURL
+import org.apache.commons.io.IOUtils
+import org.apache.http.entity.BasicHttpEntity
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import java.util.concurrent.atomic.AtomicInteger
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*
+
+class RevisitSchedulerTest extends Specification {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder()
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(new WireMockConfiguration().dynamicPort())
+
+    CrawlConfig config = new CrawlConfig(resumableCrawling: true)
+    Environment env
+
+    def setup() {
+        EnvironmentConfig envConfig = new EnvironmentConfig(allowCreate: true, transactional: true, locking: true)
+        env = new Environment(temp.newFolder(), envConfig)
+    }
+
+    def cleanup() {
+        env.close()
+    }
+
+    def "revisit intervals shrink when pages change and grow when they do not"() {
+        given:
+        config.setRecrawlConfig(new RecrawlConfig(initialRevisitInterval: 1000, minRevisitInterval: 400,
+                                                  maxRevisitInterval: 2000))
+        RevisitScheduler scheduler = new RevisitScheduler(env, config, null)
+        WebURL webUrl = new WebURL(URL: "http://www.example.com/", docid: 1)
+        List<Long> intervals = []
+
+        when:
+        ["a", "a", "b", "c", "c", "c"].each { content ->
+            scheduler.onFetched(page(webUrl, content))
+            intervals.add(scheduler.getRevisit(1).getRevisitInterval())
+        }
+        scheduler.onNotModified(webUrl)
+        intervals.add(scheduler.getRevisit(1).getRevisitInterval())
+        Revisit revisit = scheduler.getRevisit(1)
+
+        then:
+        intervals == [1000, 1500, 750, 400, 600, 900, 1350]
+        revisit.getFetchCount() == 7
+        revisit.getChangeCount() == 2
+        revisit.getUrl() == "http://www.example.com/"
+        revisit.getDueTime() == revisit.getLastFetchTime() + 1350
+        scheduler.getRevisit(2) == null
+
+        cleanup:
+        scheduler.close()
+    }
+
+    def "changes of pages parsed while downloaded are told from the hash of their stream"() {
+        given:
+        config.setRecrawlConfig(new RecrawlConfig(initialRevisitInterval: 1000, minRevisitInterval: 400,
+                                                  maxRevisitInterval: 2000))
+        RevisitScheduler scheduler = new RevisitScheduler(env, config, null)
+        WebURL webUrl = new WebURL(URL: "http://www.example.com/", docid: 1)
+        List<Long> intervals = []
+
+        when:
+        ["a", "a", "b"].each { content ->
+            scheduler.onFetched(streamedPage(webUrl, content))
+            intervals.add(scheduler.getRevisit(1).getRevisitInterval())
+        }
+
+        then:
+        intervals == [1000, 1500, 750]
+        scheduler.getRevisit(1).getChangeCount() == 1
+
+        cleanup:
+        scheduler.close()
+    }
+
+    def "due pages are scheduled once and their history is kept across crawls"() {
+        given:
+        config.setRecrawlConfig(new RecrawlConfig(initialRevisitInterval: 1, minRevisitInterval: 1))
+        Frontier frontier = new Frontier(env, config)
+        RevisitScheduler scheduler = new RevisitScheduler(env, config, null)
+        (1..3).each { scheduler.onFetched(page(new WebURL(URL: "http://www.example.com/" + it, docid: it), "x")) }
+        Thread.sleep(10)
+
+        when:
+        int first = scheduler.scheduleDueUrls(frontier)
+        int second = scheduler.scheduleDueUrls(frontier)
+        scheduler.close()
+        scheduler = new RevisitScheduler(env, config, null)
+
+        then:
+        first == 3
+        second == 0
+        frontier.getQueueLength() == 3
+        scheduler.getRevisit(3).getFetchCount() == 1
+        scheduler.getRevisit(3).getDueTime() > System.currentTimeMillis() + 1000000
+
+        cleanup:
+        scheduler.close()
+        frontier.close()
+    }
+
+    def "a continuous crawl fetches pages again until it is shut down"() {
+        given:
+        stubFor(get(urlEqualTo("/index.html")).willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/html; charset=UTF-8")
+                .withBody("<html><body>always the same</body></html>")))
+
+        CrawlConfig crawlConfig = new CrawlConfig(
+                crawlStorageFolder: temp.newFolder().getAbsolutePath()
+                , politenessDelay: 0
+                , threadShutdownDelaySeconds: 1
+                , threadMonitoringDelaySeconds: 1
+                , cleanupDelaySeconds: 1
+                , recrawlConfig: new RecrawlConfig(continuousCrawl: true, initialRevisitInterval: 100,
+                                                   minRevisitInterval: 100)
+        )
+        PageFetcher pageFetcher = new PageFetcher(crawlConfig)
+        RobotstxtServer robotstxtServer = new RobotstxtServer(new RobotstxtConfig(enabled: false), pageFetcher)
+        CrawlController controller = new CrawlController(crawlConfig, pageFetcher, robotstxtServer)
+        controller.addSeed("http://localhost:" + wireMockRule.port() + "/index.html")
+        RevisitCountingCrawler.visits.set(0)
+
+        when:
+        controller.startNonBlocking(RevisitCountingCrawler.class, 1)
+        long deadline = System.currentTimeMillis() + 20000
+        while ((RevisitCountingCrawler.visits.get() < 3) && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(100)
+        }
+        controller.shutdown()
+        controller.waitUntilFinish()
+
+        then:
+        RevisitCountingCrawler.visits.get() >= 3
+        controller.isFinished()
+    }
+
+    private static Page streamedPage(WebURL webUrl, String content) {
+        Page page = new Page(webUrl)
+        BasicHttpEntity entity = new BasicHttpEntity()
+        entity.setContent(new ByteArrayInputStream(content.getBytes("UTF-8")))
+        InputStream stream = page.openContent(entity, 0, false)
+        IOUtils.toByteArray(stream)
+        stream.close()
+        return page
+    }
+
+    private static Page page(WebURL webUrl, String content) {
+        Page page = new Page(webUrl)
+        page.setContentData(content.getBytes("UTF-8"))
+        return page
+    }
+}
+
+class RevisitCountingCrawler extends WebCrawler {
+
+    static AtomicInteger visits = new AtomicInteger()
+
+    @Override
+    void visit(Page page) {
+        visits.incrementAndGet()
+    }
+}
@@ -0,0 +1,64 @@
+package edu.uci.ics.crawler4j.robotstxt
+
+import spock.lang.Specification
+
+class PathRuleMatcherTest extends Specification {
+
+    static final List<String> PATHS = ["", "/", "/a", "/ab", "/abc", "/abc/", "/abc/d.html", "/fish",
+                                       "/fish.html", "/fish/salmon.php?id=1", "/Fish.asp", "/catfish",
+                                       "/x*y", "/x\\y", "/page.php", "/page.php?q=1", "/dir/\$", "/a\$b"]
+
+    def "patterns match the same paths as their regular expression"() {
+        given:
+        PathRule rule = new PathRule(HostDirectives.DISALLOWED, pattern)
+
+        expect:
+        PATHS.each { path ->
+            assert rule.matches(path) == rule.pattern.matcher(path).matches(): path
+        }
+
+        where:
+        pattern << ["", "/", "/a", "/abc", "/abc\$", "/fish*", "/*.php", "/*.php\$", "/fish*.php", "*",
+                    "**", "/*/", "/x\\*y", "/x\\y", "/\$", "/dir/\$", "/a\$b", "/*a*b*c", "/a*"]
+    }
+
+    def "the most specific rule decides"() {
+        given:
+        UserAgentDirectives directives = new UserAgentDirectives(["*"] as Set)
+        directives.add("disallow", "/")
+        directives.add("allow", "/public/")
+        directives.add("disallow", "/public/*.pdf\$")
+        directives.add("allow", "/public/*/open.pdf")
+        directives.add("disallow", "/tmp")
+        directives.add("allow", "/tmp")
+
+        expect:
+        directives.checkAccess(path, "crawler4j") == verdict
+
+        where:
+        path                          | verdict
+        "/"                           | HostDirectives.DISALLOWED
+        "/private.html"               | HostDirectives.DISALLOWED
+        "/public/"                    | HostDirectives.ALLOWED
+        "/public/index.html"          | HostDirectives.ALLOWED
+        "/public/report.pdf"          | HostDirectives.DISALLOWED
+        "/public/report.pdf?download" | HostDirectives.ALLOWED
+        "/public/docs/open.pdf"       | HostDirectives.ALLOWED
+        "/tmp/file"                   | HostDirectives.ALLOWED
+        ""                            | HostDirectives.UNDEFINED
+    }
+
+    def "rules added after a check are taken into account"() {
+        given:
+        UserAgentDirectives directives = new UserAgentDirectives(["*"] as Set)
+        directives.add("disallow", "/private")
+
+        when:
+        int before = directives.checkAccess("/private/page.html", "crawler4j")
+        directives.add("allow", "/private/page")
+
+        then:
+        before == HostDirectives.DISALLOWED
+        directives.checkAccess("/private/page.html", "crawler4j") == HostDirectives.ALLOWED
+    }
+}
@@ -0,0 +1,179 @@
+package edu.uci.ics.crawler4j.robotstxt
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration
+import com.github.tomakehurst.wiremock.junit.WireMockRule
+import edu.uci.ics.crawler4j.crawler.CrawlConfig
+import edu.uci.ics.crawler4j.fetcher.PageFetcher
+import edu.uci.ics.crawler4j.fetcher.PolitenessServer
+import edu.uci.ics.crawler4j.url.WebURL
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*
+
+class RobotstxtServerTest extends Specification {
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(new WireMockConfiguration().dynamicPort())
+
+    PageFetcher pageFetcher = new PageFetcher(new CrawlConfig(politenessDelay: 0))
+
+    def setup() {
+        stubFor(get(urlEqualTo("/robots.txt"))
+                .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/plain")
+                .withBody("User-agent: *\nDisallow: /private/\n")))
+    }
+
+    def cleanup() {
+        pageFetcher.shutDown()
+    }
+
+    def "robots.txt is fetched once per host and cached"() {
+        given:
+        RobotstxtServer server = newServer(new RobotstxtConfig())
+
+        when:
+        boolean publicAllowed = server.allows(webUrl("localhost", "/public.html"))
+        boolean privateAllowed = server.allows(webUrl("localhost", "/private/page.html"))
+
+        then:
+        publicAllowed
+        !privateAllowed
+        verify(exactly(1), getRequestedFor(urlEqualTo("/robots.txt")))
+        server.cacheStats.hitCount() == 1
+        server.cacheStats.missCount() == 1
+    }
+
+    def "least recently used hosts are evicted when the cache is full"() {
+        given:
+        RobotstxtServer server = newServer(new RobotstxtConfig(cacheSize: 1))
+
+        when:
+        server.allows(webUrl("localhost", "/a.html"))
+        server.allows(webUrl("127.0.0.1", "/a.html"))
+        server.allows(webUrl("localhost", "/b.html"))
+
+        then:
+        verify(exactly(3), getRequestedFor(urlEqualTo("/robots.txt")))
+        server.cacheStats.evictionCount() == 2
+    }
+
+    def "cached robots.txt expires"() {
+        given:
+        RobotstxtServer server = newServer(new RobotstxtConfig(cacheExpiration: 100))
+
+        when:
+        server.allows(webUrl("localhost", "/a.html"))
+        Thread.sleep(200)
+        server.allows(webUrl("localhost", "/b.html"))
+
+        then:
+        verify(exactly(2), getRequestedFor(urlEqualTo("/robots.txt")))
+    }
+
+    def "threads asking for the same host wait for a single fetch"() {
+        given:
+        stubFor(get(urlEqualTo("/robots.txt"))
+                .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/plain")
+                .withFixedDelay(300)
+                .withBody("User-agent: *\nDisallow: /private/\n")))
+        RobotstxtServer server = newServer(new RobotstxtConfig())
+        def executor = Executors.newFixedThreadPool(8)
+
+        when:
+        def results = (1..8).collect { i ->
+            executor.submit({ server.allows(webUrl("localhost", "/private/" + i + ".html")) } as Callable)
+        }.collect { it.get() }
+
+        then:
+        results.every { !it }
+        verify(exactly(1), getRequestedFor(urlEqualTo("/robots.txt")))
+
+        cleanup:
+        executor.shutdownNow()
+    }
+
+    def "a robots.txt which failed to fetch is cached for a shorter time"() {
+        given:
+        stubFor(get(urlEqualTo("/robots.txt")).willReturn(aResponse().withStatus(503)))
+        RobotstxtServer server = newServer(new RobotstxtConfig(failedFetchCacheExpiration: 100))
+
+        when:
+        boolean allowed = server.allows(webUrl("localhost", "/private/a.html"))
+        server.allows(webUrl("localhost", "/private/b.html"))
+
+        then:
+        allowed
+        verify(exactly(1), getRequestedFor(urlEqualTo("/robots.txt")))
+
+        when:
+        Thread.sleep(200)
+        server.allows(webUrl("localhost", "/private/c.html"))
+
+        then:
+        verify(exactly(2), getRequestedFor(urlEqualTo("/robots.txt")))
+    }
+
+    def "a missing robots.txt is not fetched again before the cache expires"() {
+        given:
+        stubFor(get(urlEqualTo("/robots.txt")).willReturn(aResponse().withStatus(404)))
+        RobotstxtServer server = newServer(new RobotstxtConfig(failedFetchCacheExpiration: 100))
+
+        when:
+        server.allows(webUrl("localhost", "/a.html"))
+        Thread.sleep(200)
+        server.allows(webUrl("localhost", "/b.html"))
+
+        then:
+        verify(exactly(1), getRequestedFor(urlEqualTo("/robots.txt")))
+    }
+
+    def "the crawl delay of a cached robots.txt spaces the requests to its host"() {
+        given:
+        stubFor(get(urlEqualTo("/robots.txt"))
+                .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/plain")
+                .withBody("User-agent: *\nCrawl-delay: 1.5\nDisallow: /private/\n")))
+        RobotstxtServer server = newServer(new RobotstxtConfig())
+        PolitenessServer politenessServer = new PolitenessServer(new CrawlConfig(
+                politenessDelay: 100, respectCrawlDelay: true, maxCrawlDelay: maxCrawlDelay))
+        politenessServer.setRobotstxtServer(server)
+
+        when:
+        long beforeFetch = politenessServer.reserve(webUrl("localhost", "/a.html")) +
+                politenessServer.reserve(webUrl("localhost", "/b.html"))
+        server.allows(webUrl("localhost", "/c.html"))
+        long first = politenessServer.reserve(webUrl("localhost", "/c.html"))
+        long crawlDelay = politenessServer.reserve(webUrl("localhost", "/d.html")) - first
+
+        then: "the politeness delay applies until the robots.txt is cached"
+        beforeFetch > 50 && beforeFetch <= 100
+        server.getCrawlDelay("localhost") == 1.5d
+        crawlDelay > expected - 100 && crawlDelay <= expected
+
+        where:
+        maxCrawlDelay | expected
+        30000         | 1500
+        1000          | 1000
+    }
+
+    private RobotstxtServer newServer(RobotstxtConfig config) {
+        RobotstxtServer server = new RobotstxtServer(config, pageFetcher)
+        server.setCrawlConfig(new CrawlConfig())
+        return server
+    }
+
+    private WebURL webUrl(String host, String path) {
+        WebURL webURL = new WebURL()
+        webURL.setURL("http://" + host + ":" + wireMockRule.port() + path)
+        return webURL
+    }
+}
@@ -0,0 +1,159 @@
+package edu.uci.ics.crawler4j.sitemap
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration
+import com.github.tomakehurst.wiremock.junit.WireMockRule
+import edu.uci.ics.crawler4j.crawler.CrawlConfig
+import edu.uci.ics.crawler4j.crawler.CrawlController
+import edu.uci.ics.crawler4j.crawler.Page
+import edu.uci.ics.crawler4j.crawler.WebCrawler
+import edu.uci.ics.crawler4j.fetcher.PageFetcher
+import edu.uci.ics.crawler4j.robotstxt.RobotstxtConfig
+import edu.uci.ics.crawler4j.robotstxt.RobotstxtServer
+import edu.uci.ics.crawler4j.url.WebURL
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import java.time.LocalDate
+import java.util.zip.GZIPOutputStream
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*
+
+class SitemapServerTest extends Specification {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder()
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(new WireMockConfiguration().dynamicPort())
+
+    def "sitemap indexes, gzipped and text sitemaps are read in batches"() {
+        given:
+        String today = LocalDate.now().toString()
+        stubFor(get(urlEqualTo("/sitemap_index.xml")).willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/xml")
+                .withBody("""<?xml version="1.0" encoding="UTF-8"?>
+<sitemapindex xmlns="http://www.sitemaps.org/schemas/sitemap/0.9">
+  <sitemap><loc>${url("/sitemap1.xml.gz")}</loc></sitemap>
+  <sitemap><loc>${url("/sitemap2.txt")}</loc><lastmod>2004-10-01</lastmod></sitemap>
+  <sitemap><loc>${url("/sitemap_index.xml")}</loc></sitemap>
+</sitemapindex>""")))
+        stubFor(get(urlEqualTo("/sitemap1.xml.gz")).willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/x-gzip")
+                .withBody(gzip("""<?xml version="1.0" encoding="UTF-8"?>
+<urlset xmlns="http://www.sitemaps.org/schemas/sitemap/0.9"
+        xmlns:image="http://www.google.com/schemas/sitemap-image/1.1">
+  <url><loc>${url("/a.html")}</loc><lastmod>${today}</lastmod><priority>1.0</priority></url>
+  <url>
+    <loc>${url("/b.html")}</loc>
+    <image:image><image:loc>${url("/b.png")}</image:loc></image:image>
+    <priority>0.2</priority>
+  </url>
+  <url><loc>http://www.example.com/other-host.html</loc></url>
+  <url><loc>${url("/c.html?a=1&amp;b=2")}</loc></url>
+</urlset>"""))))
+        stubFor(get(urlEqualTo("/sitemap2.txt")).willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/plain")
+                .withBody("${url("/d.html")}\n\n${url("/e.html")}\n")))
+        PageFetcher pageFetcher = new PageFetcher(new CrawlConfig(politenessDelay: 0))
+        SitemapServer server = new SitemapServer(new CrawlConfig(sitemapConfig: new SitemapConfig(batchSize: 2)),
+                pageFetcher, null)
+        List<List<WebURL>> batches = []
+
+        when:
+        long read = server.read(url("/sitemap_index.xml"), { urls -> batches.add(urls) })
+
+        then:
+        read == 5
+        batches*.size() == [2, 2, 1]
+        batches.flatten()*.URL == ["/a.html", "/b.html", "/c.html?a=1&b=2", "/d.html", "/e.html"].collect { url(it) }
+        batches.flatten()*.priority == [0, 10, 7, 7, 7]
+        batches.flatten()*.depth == [0, 0, 0, 0, 0]
+        verify(exactly(1), getRequestedFor(urlEqualTo("/sitemap_index.xml")))
+
+        cleanup:
+        pageFetcher.shutDown()
+    }
+
+    def "urls per sitemap and sitemaps per read are limited"() {
+        given:
+        stubFor(get(urlEqualTo("/sitemap.txt")).willReturn(aResponse()
+                .withStatus(200)
+                .withBody((1..10).collect { url("/page" + it + ".html") }.join("\n"))))
+        stubFor(get(urlEqualTo("/missing.xml")).willReturn(aResponse().withStatus(404)))
+        PageFetcher pageFetcher = new PageFetcher(new CrawlConfig(politenessDelay: 0))
+        SitemapServer server = new SitemapServer(new CrawlConfig(
+                sitemapConfig: new SitemapConfig(maxUrlsPerSitemap: 3)), pageFetcher, null)
+
+        expect:
+        server.read(url("/sitemap.txt"), { urls -> }) == 3
+        server.read(url("/missing.xml"), { urls -> }) == 0
+
+        cleanup:
+        pageFetcher.shutDown()
+    }
+
+    def "sitemaps declared in robots.txt drive the crawl"() {
+        given:
+        stubFor(get(urlEqualTo("/robots.txt")).willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/plain")
+                .withBody("User-agent: *\nDisallow: /private/\nSitemap: ${url("/sitemap.xml")}\n")))
+        stubFor(get(urlEqualTo("/sitemap.xml")).willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/xml")
+                .withBody("""<urlset xmlns="http://www.sitemaps.org/schemas/sitemap/0.9">
+  <url><loc>${url("/index.html")}</loc></url>
+  <url><loc>${url("/orphan.html")}</loc></url>
+  <url><loc>${url("/private/secret.html")}</loc></url>
+</urlset>""")))
+        stubFor(get(urlPathMatching("/.*\\.html")).willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "text/html; charset=UTF-8")
+                .withBody("<html><body>no links</body></html>")))
+
+        CrawlConfig config = new CrawlConfig(
+                crawlStorageFolder: temp.getRoot().getAbsolutePath()
+                , politenessDelay: 0
+                , threadShutdownDelaySeconds: 1
+                , threadMonitoringDelaySeconds: 1
+                , cleanupDelaySeconds: 1
+                , sitemapConfig: new SitemapConfig(followRobotstxtSitemaps: true)
+        )
+        PageFetcher pageFetcher = new PageFetcher(config)
+        RobotstxtServer robotstxtServer = new RobotstxtServer(new RobotstxtConfig(), pageFetcher)
+        CrawlController controller = new CrawlController(config, pageFetcher, robotstxtServer)
+        controller.addSeed(url("/index.html"))
+
+        when:
+        controller.start(SitemapVisitRecordingCrawler.class, 1)
+
+        then:
+        SitemapVisitRecordingCrawler.visited.sort() == ["/index.html", "/orphan.html"]
+        verify(exactly(1), getRequestedFor(urlEqualTo("/index.html")))
+        verify(exactly(0), getRequestedFor(urlEqualTo("/private/secret.html")))
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + wireMockRule.port() + path
+    }
+
+    private static byte[] gzip(String content) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream()
+        new GZIPOutputStream(bytes).withCloseable { it.write(content.getBytes("UTF-8")) }
+        return bytes.toByteArray()
+    }
+}
+
+class SitemapVisitRecordingCrawler extends WebCrawler {
+
+    static List<String> visited = Collections.synchronizedList(new ArrayList<String>())
+
+    @Override
+    void visit(Page page) {
+        visited.add(page.getWebURL().getPath().toString())
+    }
+}
@@ -0,0 +1,92 @@
+package edu.uci.ics.crawler4j.tests.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+
+import edu.uci.ics.crawler4j.crawler.CrawlConfig;
+import edu.uci.ics.crawler4j.crawler.Page;
+import edu.uci.ics.crawler4j.parser.HtmlParser;
+import edu.uci.ics.crawler4j.parser.LinkOnlyHtmlParser;
+import edu.uci.ics.crawler4j.parser.ParserConfig;
+import edu.uci.ics.crawler4j.parser.TikaHtmlParser;
+import edu.uci.ics.crawler4j.url.WebURL;
+
+/**
+ * Compares the throughput of the html parsers on a corpus of html files. This is
+ * not run with the tests; run it with the test classpath:
+ *
+ * <pre>
+ * java edu.uci.ics.crawler4j.tests.parser.HtmlParserBenchmark [corpus directory] [seconds per parser]
+ * </pre>
+ *
+ * The corpus defaults to the html files of the test resources. Each parser is
+ * warmed up for the given duration, then measured for the same duration.
+ */
+public class HtmlParserBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        File corpus = new File((args.length > 0) ? args[0] : "src/test/resources/html");
+        long seconds = (args.length > 1) ? Long.parseLong(args[1]) : 10;
+        List<Page> pages = loadPages(corpus);
+        if (pages.isEmpty()) {
+            throw new IllegalArgumentException("No html files in " + corpus.getAbsolutePath());
+        }
+
+        CrawlConfig config = new CrawlConfig();
+        config.getParserConfig().setExtractionProfile(ParserConfig.ExtractionProfile.LINKS);
+        System.out.println("Corpus: " + pages.size() + " pages from " + corpus.getAbsolutePath());
+        run("Tika", new TikaHtmlParser(config, null), pages, seconds);
+        run("Link only", new LinkOnlyHtmlParser(config, null), pages, seconds);
+    }
+
+    private static List<Page> loadPages(File corpus) throws IOException {
+        List<Page> pages = new ArrayList<>();
+        File[] files = corpus.listFiles((dir, name) -> name.endsWith(".html") || name.endsWith(".htm"));
+        if (files == null) {
+            return pages;
+        }
+        for (File file : files) {
+            WebURL url = new WebURL();
+            url.setURL("http://" + file.getName().replaceAll("\\.html?$", "") + "/");
+            Page page = new Page(url);
+            page.load(new ByteArrayEntity(Files.readAllBytes(file.toPath()), ContentType.TEXT_HTML),
+                      Integer.MAX_VALUE);
+            pages.add(page);
+        }
+        return pages;
+    }
+
+    private static void run(String name, HtmlParser parser, List<Page> pages, long seconds) throws Exception {
+        warmUp(parser, pages, seconds);
+        long links = 0;
+        long parsed = 0;
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        while (System.nanoTime() < deadline) {
+            for (Page page : pages) {
+                links += parser.parse(page, page.getWebURL().getURL()).getOutgoingUrls().size();
+                parsed++;
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-10s %10.1f pages/s %10.1f links/s%n", name, parsed / elapsed, links / elapsed);
+    }
+
+    private static long warmUp(HtmlParser parser, List<Page> pages, long seconds) throws Exception {
+        long links = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        while (System.nanoTime() < deadline) {
+            for (Page page : pages) {
+                links += parser.parse(page, page.getWebURL().getURL()).getOutgoingUrls().size();
+            }
+        }
+        return links;
+    }
+}